@@ -0,0 +1,73 @@
+package com.checkout.steaming_app.config;
+
+import com.checkout.steaming_app.topology.PostcodeDictionaryEndOffsets;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.ListOffsetsOptions;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.TimeoutException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link PostcodeDictionaryEndOffsets} listed by an admin client, which is created on first use since most runs never
+ * miss a postcode. Failures surface as a {@link TimeoutException}, so the stream thread stops instead of dropping
+ * the page view.
+ */
+public class AdminEndOffsets implements PostcodeDictionaryEndOffsets, AutoCloseable {
+
+    private final Map<String, Object> adminConfig;
+    private final Duration timeout;
+
+    private Admin admin;
+
+    public AdminEndOffsets(Map<String, Object> adminConfig, Duration timeout) {
+        this.adminConfig = adminConfig;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Map<Integer, Long> endOffsets(String topic) {
+        Admin client = admin();
+        int timeoutMs = (int) timeout.toMillis();
+        try {
+            TopicDescription description = client.describeTopics(List.of(topic),
+                            new DescribeTopicsOptions().timeoutMs(timeoutMs))
+                    .allTopicNames().get().get(topic);
+            Map<TopicPartition, OffsetSpec> latest = description.partitions().stream()
+                    .map(partition -> new TopicPartition(topic, partition.partition()))
+                    .collect(Collectors.toMap(Function.identity(), partition -> OffsetSpec.latest()));
+            Map<Integer, Long> offsets = new HashMap<>();
+            client.listOffsets(latest, new ListOffsetsOptions().timeoutMs(timeoutMs)).all().get()
+                    .forEach((partition, info) -> offsets.put(partition.partition(), info.offset()));
+            return offsets;
+        } catch (InterruptedException e) {
+            throw new InterruptException(e);
+        } catch (ExecutionException e) {
+            throw new TimeoutException("Could not list the end offsets of " + topic, e.getCause());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (admin != null) {
+            admin.close(timeout);
+        }
+    }
+
+    private synchronized Admin admin() {
+        if (admin == null) {
+            admin = Admin.create(adminConfig);
+        }
+        return admin;
+    }
+}
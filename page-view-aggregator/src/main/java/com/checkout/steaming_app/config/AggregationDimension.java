@@ -0,0 +1,23 @@
+package com.checkout.steaming_app.config;
+
+/**
+ * What the page views are counted by. Each dimension has its own windowed count store and output topic.
+ */
+public enum AggregationDimension {
+
+    /**
+     * Counts per postcode, with their rollups, top postcodes and distinct users. Interactive queries need this
+     * dimension.
+     */
+    POSTCODE,
+
+    /**
+     * Counts per webpage, written to {@code webpage-output-topic}.
+     */
+    WEBPAGE,
+
+    /**
+     * Counts per postcode and webpage pair, written to {@code postcode-webpage-output-topic}.
+     */
+    POSTCODE_WEBPAGE
+}
@@ -0,0 +1,109 @@
+package com.checkout.steaming_app.config;
+
+import org.apache.kafka.streams.state.RocksDBConfigSetter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.WriteBufferManager;
+
+import java.util.Map;
+
+/**
+ * Bounds the off-heap memory of all RocksDB stores in the process by a single block cache, which also accounts the
+ * memtables through a shared write buffer manager, and applies the compaction, compression and bloom filter settings
+ * of {@link RocksDbSettings}. Kafka Streams creates one instance per store and passes the streams configs, where
+ * {@link KafkaStreamsConfig} puts the settings under the {@code page-view.rocksdb.*} keys below.
+ * <p>
+ * The cache and write buffer manager are created by the first store opened and live as long as the process.
+ */
+public class BoundedMemoryRocksDBConfig implements RocksDBConfigSetter {
+
+    public static final String BLOCK_CACHE_BYTES_CONFIG = "page-view.rocksdb.block-cache-bytes";
+    public static final String WRITE_BUFFER_MANAGER_BYTES_CONFIG = "page-view.rocksdb.write-buffer-manager-bytes";
+    public static final String WRITE_BUFFER_BYTES_CONFIG = "page-view.rocksdb.write-buffer-bytes";
+    public static final String MAX_WRITE_BUFFERS_CONFIG = "page-view.rocksdb.max-write-buffers";
+    public static final String COMPACTION_STYLE_CONFIG = "page-view.rocksdb.compaction-style";
+    public static final String COMPRESSION_TYPE_CONFIG = "page-view.rocksdb.compression-type";
+    public static final String BLOOM_FILTER_BITS_PER_KEY_CONFIG = "page-view.rocksdb.bloom-filter-bits-per-key";
+
+    /** Share of the cache reserved for index and filter blocks, so that data blocks cannot evict them. */
+    private static final double HIGH_PRIORITY_POOL_RATIO = 0.1;
+
+    private static Cache cache;
+    private static WriteBufferManager writeBufferManager;
+
+    private BloomFilter bloomFilter;
+
+    /**
+     * Adds the settings to the streams configs, where every store's instance of this class reads them.
+     */
+    public static void configure(Map<String, Object> streamsConfig, RocksDbSettings settings) {
+        streamsConfig.put(BLOCK_CACHE_BYTES_CONFIG, settings.getBlockCacheBytes());
+        streamsConfig.put(WRITE_BUFFER_MANAGER_BYTES_CONFIG, settings.getWriteBufferManagerBytes());
+        streamsConfig.put(WRITE_BUFFER_BYTES_CONFIG, settings.getWriteBufferBytes());
+        streamsConfig.put(MAX_WRITE_BUFFERS_CONFIG, settings.getMaxWriteBuffers());
+        streamsConfig.put(COMPACTION_STYLE_CONFIG, settings.getCompactionStyle().name());
+        streamsConfig.put(COMPRESSION_TYPE_CONFIG, settings.getCompressionType().name());
+        streamsConfig.put(BLOOM_FILTER_BITS_PER_KEY_CONFIG, settings.getBloomFilterBitsPerKey());
+    }
+
+    /**
+     * The block cache shared by all stores, or null before the first store has been opened.
+     */
+    public static synchronized Cache sharedCache() {
+        return cache;
+    }
+
+    @Override
+    public void setConfig(String storeName, Options options, Map<String, Object> configs) {
+        BlockBasedTableConfig tableConfig = (BlockBasedTableConfig) options.tableFormatConfig();
+        tableConfig.setBlockCache(sharedCache(configs));
+        tableConfig.setCacheIndexAndFilterBlocks(true);
+        tableConfig.setCacheIndexAndFilterBlocksWithHighPriority(true);
+        tableConfig.setPinTopLevelIndexAndFilter(true);
+
+        double bloomFilterBitsPerKey = ((Number) configs.get(BLOOM_FILTER_BITS_PER_KEY_CONFIG)).doubleValue();
+        if (bloomFilterBitsPerKey > 0) {
+            bloomFilter = new BloomFilter(bloomFilterBitsPerKey);
+            tableConfig.setFilterPolicy(bloomFilter);
+        } else {
+            // Kafka Streams has already set a bloom filter of its own, which it closes itself
+            tableConfig.setFilterPolicy(null);
+        }
+        options.setTableFormatConfig(tableConfig);
+
+        options.setWriteBufferManager(sharedWriteBufferManager(configs));
+        options.setWriteBufferSize(((Number) configs.get(WRITE_BUFFER_BYTES_CONFIG)).longValue());
+        options.setMaxWriteBufferNumber(((Number) configs.get(MAX_WRITE_BUFFERS_CONFIG)).intValue());
+        options.setCompactionStyle(CompactionStyle.valueOf((String) configs.get(COMPACTION_STYLE_CONFIG)));
+        options.setCompressionType(CompressionType.valueOf((String) configs.get(COMPRESSION_TYPE_CONFIG)));
+    }
+
+    @Override
+    public void close(String storeName, Options options) {
+        // The shared cache and write buffer manager outlive individual stores
+        if (bloomFilter != null) {
+            bloomFilter.close();
+        }
+    }
+
+    private static synchronized Cache sharedCache(Map<String, Object> configs) {
+        if (cache == null) {
+            long capacity = ((Number) configs.get(BLOCK_CACHE_BYTES_CONFIG)).longValue();
+            cache = new LRUCache(capacity, -1, false, HIGH_PRIORITY_POOL_RATIO);
+        }
+        return cache;
+    }
+
+    private static synchronized WriteBufferManager sharedWriteBufferManager(Map<String, Object> configs) {
+        if (writeBufferManager == null) {
+            long bufferSize = ((Number) configs.get(WRITE_BUFFER_MANAGER_BYTES_CONFIG)).longValue();
+            writeBufferManager = new WriteBufferManager(bufferSize, sharedCache(configs));
+        }
+        return writeBufferManager;
+    }
+}
@@ -0,0 +1,17 @@
+package com.checkout.steaming_app.config;
+
+/**
+ * Backing store of the windowed page view counts.
+ */
+public enum CountStoreType {
+
+    /**
+     * RocksDB window store, spilling to disk and restored from local state plus the changelog tail after a restart.
+     */
+    ROCKS_DB,
+
+    /**
+     * Heap store keeping the counts in primitive arrays per window, rebuilt from the changelog after every restart.
+     */
+    IN_MEMORY
+}
@@ -0,0 +1,22 @@
+package com.checkout.steaming_app.config;
+
+/**
+ * Controls how often windowed aggregation results are written to the output topics.
+ */
+public enum EmitMode {
+
+    /**
+     * Emit an updated result for every count change (one output record per input record).
+     */
+    EVERY_UPDATE,
+
+    /**
+     * Emit at most one intermediate result per key and window every {@code emit-interval-ms} of stream time.
+     */
+    RATE_LIMITED,
+
+    /**
+     * Emit a single final result per key and window once the window and its grace period have closed.
+     */
+    ON_WINDOW_CLOSE
+}
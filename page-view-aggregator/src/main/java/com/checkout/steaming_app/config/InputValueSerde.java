@@ -0,0 +1,18 @@
+package com.checkout.steaming_app.config;
+
+/**
+ * Deserializer of the page views read from the input topic. Both read the same Confluent framed Avro records.
+ */
+public enum InputValueSerde {
+
+    /**
+     * {@code SpecificAvroSerde}, the default value serde, decoding every field into new objects.
+     */
+    SPECIFIC_AVRO,
+
+    /**
+     * {@link com.checkout.steaming_app.topology.PageViewEventDeserializer}, reading the fields straight from the
+     * record's bytes and reusing the postcode strings already seen.
+     */
+    LEAN
+}
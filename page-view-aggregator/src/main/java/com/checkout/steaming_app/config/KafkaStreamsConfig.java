@@ -1,24 +1,39 @@
 package com.checkout.steaming_app.config;
 
+import com.checkout.steaming_app.dlq.DeadLetterDeserializationExceptionHandler;
+import com.checkout.steaming_app.dlq.DeadLetterProcessingExceptionHandler;
+import com.checkout.steaming_app.dlq.DeadLetterProductionExceptionHandler;
+import com.checkout.steaming_app.dlq.DeadLetterPublisher;
+import com.checkout.steaming_app.restore.StateRestoreTracker;
+import com.checkout.steaming_app.scaling.StreamThreadScaler;
+import com.checkout.steaming_app.topology.HyperLogLog;
+import com.checkout.steaming_app.topology.PageViewTopology;
 import io.confluent.kafka.schemaregistry.client.SchemaRegistryClientConfig;
 import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
 import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
 import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.config.SaslConfigs;
 import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.streams.AutoOffsetReset;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.Topology;
-import org.apache.kafka.streams.errors.LogAndFailExceptionHandler;
 import org.apache.kafka.streams.state.HostInfo;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -29,12 +44,18 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.KafkaStreamsConfiguration;
 import org.springframework.kafka.config.StreamsBuilderFactoryBean;
 import org.springframework.kafka.streams.KafkaStreamsMicrometerListener;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 @Data
 @Validated
@@ -47,9 +68,42 @@ public class KafkaStreamsConfig {
     @NotBlank
     private String applicationId;
 
+    /**
+     * Directory of the local state stores. It must outlive the process for a restart to resume from the local stores
+     * instead of restoring them from their changelogs.
+     */
     @NotBlank
     private String stateDir;
 
+    /**
+     * Replicas of each store kept up to date on other instances, ready to take over a failed instance's tasks.
+     */
+    @NotNull
+    @PositiveOrZero
+    private Integer numStandbyReplicas = 0;
+
+    /**
+     * Extra replicas restored in the background on an instance that is to take over a task, while the task stays
+     * active where it is caught up.
+     */
+    @NotNull
+    @Positive
+    private Integer maxWarmupReplicas = 2;
+
+    /**
+     * Changelog lag within which a replica counts as caught up and can take over a task.
+     */
+    @NotNull
+    @PositiveOrZero
+    private Long acceptableRecoveryLagRecords = 10_000L;
+
+    /**
+     * How often a rebalance checks whether warmup replicas have caught up.
+     */
+    @NotNull
+    @Min(60_000)
+    private Long probingRebalanceIntervalMs = 600_000L;
+
     @NotBlank
     private String bootstrapServers;
 
@@ -81,64 +135,322 @@ public class KafkaStreamsConfig {
     @Positive
     private Integer minInsyncReplicas;
 
-    @NotNull
-    @PositiveOrZero
-    private Long commitIntervalMs;
-
     @NotBlank
     private String pageViewInputTopic;
 
     @NotBlank
     private String pageViewOutputTopic;
 
+    @NotEmpty
+    private Set<AggregationDimension> dimensions = EnumSet.of(AggregationDimension.POSTCODE);
+
+    private String webpageOutputTopic;
+
+    private String postcodeWebpageOutputTopic;
+
+    /**
+     * Receives the page views that arrive after their window's grace period, for batch reconciliation.
+     */
+    @NotBlank
+    private String lateEventsOutputTopic;
+
+    /**
+     * Receives the records that cannot be deserialized or produced, instead of them stopping the aggregator.
+     */
+    @NotBlank
+    private String deadLetterTopic;
+
+    @NotBlank
+    private String topPostcodesOutputTopic;
+
+    @NotNull
+    @Positive
+    private Integer topPostcodesSize = 100;
+
+    @NotBlank
+    private String distinctUsersOutputTopic;
+
+    @NotNull
+    @Min(HyperLogLog.MIN_PRECISION)
+    @Max(HyperLogLog.MAX_PRECISION)
+    private Integer distinctUsersPrecision = 12;
+
+    /**
+     * Compacted topic of postcodes and their compact int ids. When set, postcode keys of the state stores, their
+     * changelogs and the repartition topics are encoded by id. Changing it changes the stores' format, so it needs a
+     * new {@code application-id} or an application reset.
+     */
+    private String postcodeDictionaryTopic;
+
+    /**
+     * How long a stream thread waits for the global thread to read a postcode missing from the dictionary, before
+     * failing rather than dropping the page view. Must stay well below the consumers' {@code max.poll.interval.ms}.
+     */
+    @NotNull
+    @Positive
+    private Long postcodeDictionaryWaitMs = 30_000L;
+
+    @NotNull
+    private ProcessingGuarantee processingGuarantee = ProcessingGuarantee.AT_LEAST_ONCE;
+
+    /**
+     * Upper bound of the commit interval under {@code EXACTLY_ONCE_V2}, where each commit ends a transaction:
+     * {@code read_committed} consumers see results only once it commits, and it must commit well within
+     * {@link #transactionTimeoutMs}.
+     */
+    @NotNull
+    @Positive
+    private Long exactlyOnceCommitIntervalMs = 1_000L;
+
+    /**
+     * How long the broker lets a transaction stay open before aborting it, bounding how long a crashed instance's
+     * open transaction blocks {@code read_committed} consumers.
+     */
+    @NotNull
+    @Positive
+    private Long transactionTimeoutMs = 10_000L;
+
+    @NotNull
+    private TuningProfile tuningProfile = TuningProfile.THROUGHPUT;
+
+    @Valid
+    @NotNull
+    private StreamsTuning throughputProfile = StreamsTuning.throughput();
+
+    @Valid
+    @NotNull
+    private StreamsTuning latencyProfile = StreamsTuning.latency();
+
+    @Valid
+    @NotNull
+    private ThreadScalingSettings threadScaling = new ThreadScalingSettings();
+
+    @Valid
+    @NotNull
+    private List<Rollup> rollups = new ArrayList<>();
+
+    @Valid
+    @NotNull
+    private RocksDbSettings rocksdb = new RocksDbSettings();
+
+    @NotNull
+    private CountStoreType countStoreType = CountStoreType.ROCKS_DB;
+
+    @NotNull
+    private InputValueSerde inputValueSerde = InputValueSerde.SPECIFIC_AVRO;
+
+    @NotNull
+    private EmitMode emitMode = EmitMode.EVERY_UPDATE;
+
+    @NotNull
+    @Positive
+    private Long emitIntervalMs = 10_000L;
+
+    @NotNull
+    @Positive
+    private Long emitBufferMaxRecords = 100_000L;
+
+    /**
+     * Salted sub-keys each postcode's counts are spread over before being merged; 1 counts every postcode on a single
+     * task.
+     */
+    @NotNull
+    @Min(1)
+    private Integer saltBuckets = 1;
+
+    @NotNull
+    @Positive
+    private Long saltFlushIntervalMs = 1_000L;
+
     public boolean isSaslSsl() {
         return "SASL_SSL".equalsIgnoreCase(securityProtocol);
     }
 
+    @AssertTrue(message = "each rollup window-size-ms must be a multiple of the previous resolution's window size")
+    public boolean isRollupsAligned() {
+        long finerWindowSizeMs = Duration.ofSeconds(PageViewTopology.WINDOW_SIZE_SECONDS).toMillis();
+        for (Rollup rollup : rollups) {
+            if (rollup.getWindowSizeMs() == null) {
+                return true;
+            }
+            if (rollup.getWindowSizeMs() <= finerWindowSizeMs || rollup.getWindowSizeMs() % finerWindowSizeMs != 0) {
+                return false;
+            }
+            finerWindowSizeMs = rollup.getWindowSizeMs();
+        }
+        return true;
+    }
+
+    @AssertTrue(message = "webpage-output-topic and postcode-webpage-output-topic must be set when their dimension is")
+    public boolean isDimensionOutputTopicsSet() {
+        return dimensions == null
+                || (!dimensions.contains(AggregationDimension.WEBPAGE) || StringUtils.hasText(webpageOutputTopic))
+                && (!dimensions.contains(AggregationDimension.POSTCODE_WEBPAGE)
+                        || StringUtils.hasText(postcodeWebpageOutputTopic));
+    }
+
+    @AssertTrue(message = "exactly-once-commit-interval-ms must be below transaction-timeout-ms")
+    public boolean isTransactionCommittedInTime() {
+        return exactlyOnceCommitIntervalMs == null || transactionTimeoutMs == null
+                || exactlyOnceCommitIntervalMs < transactionTimeoutMs;
+    }
+
+    public boolean isPostcodeDictionaryEnabled() {
+        return StringUtils.hasText(postcodeDictionaryTopic);
+    }
+
+    public boolean isExactlyOnce() {
+        return processingGuarantee == ProcessingGuarantee.EXACTLY_ONCE_V2;
+    }
+
+    public StreamsTuning activeTuning() {
+        return switch (tuningProfile) {
+            case THROUGHPUT -> throughputProfile;
+            case LATENCY -> latencyProfile;
+        };
+    }
+
     @Bean
     public Map<String, Object> defaultKafkaStreamsConfig() {
         Map<String, Object> props = new HashMap<>();
 
         props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(StreamsConfig.APPLICATION_SERVER_CONFIG, applicationServer);
-        props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, schemaRegistryUrl);
+        props.putAll(schemaRegistryConfig());
 
         props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
         props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, SpecificAvroSerde.class);
         props.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+        props.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, numStandbyReplicas);
+        props.put(StreamsConfig.MAX_WARMUP_REPLICAS_CONFIG, maxWarmupReplicas);
+        props.put(StreamsConfig.ACCEPTABLE_RECOVERY_LAG_CONFIG, acceptableRecoveryLagRecords);
+        props.put(StreamsConfig.PROBING_REBALANCE_INTERVAL_MS_CONFIG, probingRebalanceIntervalMs);
 
         props.put(StreamsConfig.DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG,
-                LogAndFailExceptionHandler.class.getName());
+                DeadLetterDeserializationExceptionHandler.class.getName());
+        props.put(StreamsConfig.PRODUCTION_EXCEPTION_HANDLER_CLASS_CONFIG,
+                DeadLetterProductionExceptionHandler.class.getName());
+        props.put(StreamsConfig.PROCESSING_EXCEPTION_HANDLER_CLASS_CONFIG,
+                DeadLetterProcessingExceptionHandler.class.getName());
         props.put(StreamsConfig.producerPrefix(ProducerConfig.ACKS_CONFIG), "all");
         props.put(StreamsConfig.topicPrefix(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG), minInsyncReplicas);
         props.put(StreamsConfig.REPLICATION_FACTOR_CONFIG, replicationFactor);
-        props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, commitIntervalMs);
+
+        props.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, BoundedMemoryRocksDBConfig.class);
+        BoundedMemoryRocksDBConfig.configure(props, rocksdb);
+        if (rocksdb.isStatisticsEnabled()) {
+            props.put(StreamsConfig.METRICS_RECORDING_LEVEL_CONFIG, "DEBUG");
+        }
+
+        StreamsTuning tuning = activeTuning();
+        props.put(StreamsConfig.PROCESSING_GUARANTEE_CONFIG, processingGuarantee.streamsValue());
+        if (isExactlyOnce()) {
+            // Kafka Streams makes the producers idempotent and transactional and the consumers read_committed
+            props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG,
+                    Math.min(tuning.getCommitIntervalMs(), exactlyOnceCommitIntervalMs));
+            props.put(StreamsConfig.producerPrefix(ProducerConfig.TRANSACTION_TIMEOUT_CONFIG),
+                    transactionTimeoutMs.intValue());
+        } else {
+            props.put(StreamsConfig.COMMIT_INTERVAL_MS_CONFIG, tuning.getCommitIntervalMs());
+        }
+        props.put(StreamsConfig.STATESTORE_CACHE_MAX_BYTES_CONFIG, tuning.getCacheMaxBytes());
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, tuning.getNumStreamThreads());
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.LINGER_MS_CONFIG), tuning.getProducerLingerMs());
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.BATCH_SIZE_CONFIG), tuning.getProducerBatchSize());
+        props.put(StreamsConfig.producerPrefix(ProducerConfig.COMPRESSION_TYPE_CONFIG),
+                tuning.getProducerCompressionType());
+        props.put(StreamsConfig.consumerPrefix(ConsumerConfig.FETCH_MIN_BYTES_CONFIG),
+                tuning.getConsumerFetchMinBytes());
+        props.put(StreamsConfig.consumerPrefix(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG),
+                tuning.getConsumerFetchMaxWaitMs());
+        props.put(StreamsConfig.consumerPrefix(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG),
+                tuning.getConsumerMaxPartitionFetchBytes());
 
         if (isSaslSsl()) {
-            props.put(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, securityProtocol);
-            props.put(SaslConfigs.SASL_MECHANISM, saslMechanism);
-            props.put(SaslConfigs.SASL_JAAS_CONFIG, saslJaasConfig);
-            props.put(CommonClientConfigs.CLIENT_DNS_LOOKUP_CONFIG, clientDnsLookup);
+            putSecurityConfigs(props);
             props.put(CommonClientConfigs.SESSION_TIMEOUT_MS_CONFIG, sessionTimeoutMs);
+        }
+
+        return props;
+    }
+
+    /**
+     * Schema registry settings of the Avro serdes: the default value serde, and the serdes the topology configures
+     * itself, which Kafka Streams leaves unconfigured.
+     */
+    public Map<String, Object> schemaRegistryConfig() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, schemaRegistryUrl);
+        if (isSaslSsl()) {
             props.put(SchemaRegistryClientConfig.BASIC_AUTH_CREDENTIALS_SOURCE, basicAuthCredentialsSource);
             props.put(SchemaRegistryClientConfig.USER_INFO_CONFIG, basicAuthUserInfo);
         }
-
         return props;
     }
 
+    /**
+     * Producer of the dead letter topic, separate from the stream threads' producers so that dead-lettering a record
+     * never fails or blocks a stream task's transaction or batch.
+     */
+    @Bean(destroyMethod = "close")
+    public DeadLetterPublisher deadLetterPublisher(MeterRegistry meterRegistry, Clock clock) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.CLIENT_ID_CONFIG, applicationId + "-dlq");
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 100);
+        // Bounds how long a stream thread can wait for metadata or buffer space when the cluster is unreachable
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 1_000);
+        if (isSaslSsl()) {
+            putSecurityConfigs(props);
+        }
+        return new DeadLetterPublisher(
+                new KafkaProducer<>(props, new ByteArraySerializer(), new ByteArraySerializer()),
+                deadLetterTopic, meterRegistry, clock);
+    }
+
+    /**
+     * End offsets of the postcode dictionary topic, which a stream thread missing a postcode waits for the global
+     * thread to reach. Its admin client is only created for the first such wait.
+     */
+    @Bean(destroyMethod = "close")
+    public AdminEndOffsets postcodeDictionaryEndOffsets() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(AdminClientConfig.CLIENT_ID_CONFIG, applicationId + "-postcode-dictionary");
+        if (isSaslSsl()) {
+            putSecurityConfigs(props);
+        }
+        return new AdminEndOffsets(props, Duration.ofMillis(postcodeDictionaryWaitMs));
+    }
+
+    private void putSecurityConfigs(Map<String, Object> props) {
+        props.put(CommonClientConfigs.SECURITY_PROTOCOL_CONFIG, securityProtocol);
+        props.put(SaslConfigs.SASL_MECHANISM, saslMechanism);
+        props.put(SaslConfigs.SASL_JAAS_CONFIG, saslJaasConfig);
+        props.put(CommonClientConfigs.CLIENT_DNS_LOOKUP_CONFIG, clientDnsLookup);
+    }
+
     @Bean
     public StreamsBuilderFactoryBean streamsBuilderFactoryBean(
             KafkaStreamsConfiguration kafkaStreamsConfiguration,
-            MeterRegistry meterRegistry) {
+            MeterRegistry meterRegistry,
+            StateRestoreTracker stateRestoreTracker) {
         StreamsBuilderFactoryBean factoryBean = new StreamsBuilderFactoryBean(kafkaStreamsConfiguration);
+        factoryBean.setStateRestoreListener(stateRestoreTracker);
         factoryBean.addListener(new KafkaStreamsMicrometerListener(meterRegistry));
         return factoryBean;
     }
 
     @Bean
-    public KafkaStreamsConfiguration kafkaStreamsConfiguration() {
+    public StreamThreadScaler streamThreadScaler(StreamsBuilderFactoryBean streamsBuilderFactoryBean, Clock clock) {
+        return new StreamThreadScaler(streamsBuilderFactoryBean::getKafkaStreams, threadScaling, clock);
+    }
+
+    @Bean
+    public KafkaStreamsConfiguration kafkaStreamsConfiguration(DeadLetterPublisher deadLetterPublisher) {
         Map<String, Object> config = defaultKafkaStreamsConfig();
+        config.put(DeadLetterPublisher.PUBLISHER_CONFIG, deadLetterPublisher);
         config.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
         config.put(StreamsConfig.CLIENT_ID_CONFIG, applicationId + "-client");
         config.put(
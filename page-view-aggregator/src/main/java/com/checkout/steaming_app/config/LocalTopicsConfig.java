@@ -0,0 +1,82 @@
+package com.checkout.steaming_app.config;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the input and output topics on startup under the {@code local} profile, where no Terraform managed cluster
+ * exists. Internal topics are created by Kafka Streams itself.
+ */
+@Data
+@Validated
+@Profile("local")
+@Configuration
+@ConfigurationProperties(prefix = "local-topics")
+public class LocalTopicsConfig {
+
+    @NotNull
+    @Positive
+    private Integer partitions = 4;
+
+    @Bean
+    public KafkaAdmin localKafkaAdmin(KafkaStreamsConfig kafkaStreamsConfig) {
+        KafkaAdmin admin = new KafkaAdmin(Map.of(
+                AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaStreamsConfig.getBootstrapServers()));
+        admin.setFatalIfBrokerNotAvailable(true);
+        return admin;
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics localTopics(KafkaStreamsConfig kafkaStreamsConfig) {
+        return new KafkaAdmin.NewTopics(topics(kafkaStreamsConfig).toArray(NewTopic[]::new));
+    }
+
+    /**
+     * The input and output topics of the aggregator, and the postcode dictionary topic when one is configured.
+     */
+    public List<NewTopic> topics(KafkaStreamsConfig kafkaStreamsConfig) {
+        List<String> names = new ArrayList<>(List.of(
+                kafkaStreamsConfig.getPageViewInputTopic(),
+                kafkaStreamsConfig.getPageViewOutputTopic(),
+                kafkaStreamsConfig.getLateEventsOutputTopic(),
+                kafkaStreamsConfig.getDeadLetterTopic(),
+                kafkaStreamsConfig.getTopPostcodesOutputTopic(),
+                kafkaStreamsConfig.getDistinctUsersOutputTopic()));
+        kafkaStreamsConfig.getRollups().forEach(rollup -> names.add(rollup.getOutputTopic()));
+        if (kafkaStreamsConfig.getDimensions().contains(AggregationDimension.WEBPAGE)) {
+            names.add(kafkaStreamsConfig.getWebpageOutputTopic());
+        }
+        if (kafkaStreamsConfig.getDimensions().contains(AggregationDimension.POSTCODE_WEBPAGE)) {
+            names.add(kafkaStreamsConfig.getPostcodeWebpageOutputTopic());
+        }
+
+        List<NewTopic> topics = new ArrayList<>(names.stream()
+                .map(name -> TopicBuilder.name(name)
+                        .partitions(partitions)
+                        .replicas(kafkaStreamsConfig.getReplicationFactor())
+                        .build())
+                .toList());
+        if (kafkaStreamsConfig.isPostcodeDictionaryEnabled()) {
+            topics.add(TopicBuilder.name(kafkaStreamsConfig.getPostcodeDictionaryTopic())
+                    .partitions(1)
+                    .replicas(kafkaStreamsConfig.getReplicationFactor())
+                    .compact()
+                    .build());
+        }
+        return topics;
+    }
+}
@@ -0,0 +1,31 @@
+package com.checkout.steaming_app.config;
+
+import org.apache.kafka.streams.StreamsConfig;
+
+/**
+ * Whether the results of a replayed record may be written twice after a crash or a rebalance.
+ */
+public enum ProcessingGuarantee {
+
+    /**
+     * Commits offsets after the results are acknowledged, so records processed since the last commit are processed,
+     * counted and emitted again after a failure.
+     */
+    AT_LEAST_ONCE(StreamsConfig.AT_LEAST_ONCE),
+
+    /**
+     * Writes the results, the changelogs and the input offsets of each commit interval in one transaction, so
+     * {@code read_committed} consumers see every record's effect exactly once.
+     */
+    EXACTLY_ONCE_V2(StreamsConfig.EXACTLY_ONCE_V2);
+
+    private final String streamsValue;
+
+    ProcessingGuarantee(String streamsValue) {
+        this.streamsValue = streamsValue;
+    }
+
+    public String streamsValue() {
+        return streamsValue;
+    }
+}
@@ -0,0 +1,43 @@
+package com.checkout.steaming_app.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.rocksdb.Cache;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Usage of the block cache shared by all RocksDB stores. The per-store RocksDB metrics of Kafka Streams, including
+ * compaction statistics when {@code kafka.rocksdb.statistics-enabled} is set, are exported by the
+ * {@code KafkaStreamsMicrometerListener}, but report the shared cache once per store.
+ */
+@Component
+public class RocksDbMetrics implements MeterBinder {
+
+    private final RocksDbSettings settings;
+
+    public RocksDbMetrics(KafkaStreamsConfig kafkaStreamsConfig) {
+        this.settings = kafkaStreamsConfig.getRocksdb();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("rocksdb.shared.block.cache.capacity", settings, RocksDbSettings::getBlockCacheBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("rocksdb.shared.block.cache.usage", () -> sharedCacheBytes(Cache::getUsage))
+                .baseUnit("bytes")
+                .description("Bytes held by data, index and filter blocks and memtables of all stores")
+                .register(registry);
+        Gauge.builder("rocksdb.shared.block.cache.pinned.usage", () -> sharedCacheBytes(Cache::getPinnedUsage))
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static double sharedCacheBytes(ToLongFunction<Cache> usage) {
+        Cache cache = BoundedMemoryRocksDBConfig.sharedCache();
+        return cache == null ? 0 : usage.applyAsLong(cache);
+    }
+}
@@ -0,0 +1,68 @@
+package com.checkout.steaming_app.config;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+
+/**
+ * Memory bounds and table options applied to every RocksDB store of the process by
+ * {@link BoundedMemoryRocksDBConfig}, configured under {@code kafka.rocksdb.*}.
+ */
+@Data
+public class RocksDbSettings {
+
+    /**
+     * Block cache shared by all stores and stream threads, holding data, index and filter blocks as well as the
+     * memtables accounted by the write buffer manager.
+     */
+    @NotNull
+    @Positive
+    private Long blockCacheBytes = 256L * 1024 * 1024;
+
+    /**
+     * Part of the block cache that all memtables together may take before being flushed.
+     */
+    @NotNull
+    @Positive
+    private Long writeBufferManagerBytes = 64L * 1024 * 1024;
+
+    @NotNull
+    @Positive
+    private Long writeBufferBytes = 16L * 1024 * 1024;
+
+    @NotNull
+    @Positive
+    private Integer maxWriteBuffers = 2;
+
+    /**
+     * Window segments are written once and dropped whole on expiry, so the lower write amplification of universal
+     * compaction suits them better than levelled compaction.
+     */
+    @NotNull
+    private CompactionStyle compactionStyle = CompactionStyle.UNIVERSAL;
+
+    @NotNull
+    private CompressionType compressionType = CompressionType.LZ4_COMPRESSION;
+
+    /**
+     * Bits per key of the bloom filters used by point lookups; 0 disables them.
+     */
+    @NotNull
+    @PositiveOrZero
+    private Double bloomFilterBitsPerKey = 10.0;
+
+    /**
+     * Records RocksDB statistics such as compaction bytes and time, by raising {@code metrics.recording.level} to
+     * {@code DEBUG}, which costs a few percent of throughput.
+     */
+    private boolean statisticsEnabled = false;
+
+    @AssertTrue(message = "write-buffer-manager-bytes must not exceed block-cache-bytes")
+    public boolean isWriteBufferManagerWithinBlockCache() {
+        return blockCacheBytes == null || writeBufferManagerBytes == null || writeBufferManagerBytes <= blockCacheBytes;
+    }
+}
@@ -0,0 +1,47 @@
+package com.checkout.steaming_app.config;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+/**
+ * A coarser resolution of the page view counts, built from the final counts of the previous resolution in
+ * {@code kafka.rollups} (the one minute windows for the first entry).
+ */
+@Data
+public class Rollup {
+
+    /**
+     * Suffix of the rollup's store and internal topic names, e.g. {@code 5m}.
+     */
+    @NotBlank
+    private String name;
+
+    @NotNull
+    @Positive
+    private Long windowSizeMs;
+
+    /**
+     * How far the finer resolution's final counts may arrive out of order, e.g. because its tasks are not equally
+     * far in stream time.
+     */
+    @NotNull
+    @PositiveOrZero
+    private Long graceMs;
+
+    @NotNull
+    @Positive
+    private Long retentionMs;
+
+    @NotBlank
+    private String outputTopic;
+
+    @AssertTrue(message = "retention-ms must cover window-size-ms plus grace-ms")
+    public boolean isRetentionCoveringWindow() {
+        return windowSizeMs == null || graceMs == null || retentionMs == null
+                || retentionMs >= windowSizeMs + graceMs;
+    }
+}
@@ -0,0 +1,79 @@
+package com.checkout.steaming_app.config;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+/**
+ * Commit, cache, threading and client batching settings that are tuned together. The defaults of
+ * {@link #throughput()} and {@link #latency()} can be overridden per field under
+ * {@code kafka.throughput-profile.*} and {@code kafka.latency-profile.*}.
+ */
+@Data
+public class StreamsTuning {
+
+    @NotNull
+    @Positive
+    private Long commitIntervalMs;
+
+    @NotNull
+    @PositiveOrZero
+    private Long cacheMaxBytes;
+
+    @NotNull
+    @Positive
+    private Integer numStreamThreads;
+
+    @NotNull
+    @PositiveOrZero
+    private Integer producerLingerMs;
+
+    @NotNull
+    @Positive
+    private Integer producerBatchSize;
+
+    @NotBlank
+    private String producerCompressionType;
+
+    @NotNull
+    @Positive
+    private Integer consumerFetchMinBytes;
+
+    @NotNull
+    @PositiveOrZero
+    private Integer consumerFetchMaxWaitMs;
+
+    @NotNull
+    @Positive
+    private Integer consumerMaxPartitionFetchBytes;
+
+    public static StreamsTuning throughput() {
+        StreamsTuning tuning = new StreamsTuning();
+        tuning.setCommitIntervalMs(10_000L);
+        tuning.setCacheMaxBytes(64L * 1024 * 1024);
+        tuning.setNumStreamThreads(2);
+        tuning.setProducerLingerMs(50);
+        tuning.setProducerBatchSize(256 * 1024);
+        tuning.setProducerCompressionType("lz4");
+        tuning.setConsumerFetchMinBytes(64 * 1024);
+        tuning.setConsumerFetchMaxWaitMs(100);
+        tuning.setConsumerMaxPartitionFetchBytes(4 * 1024 * 1024);
+        return tuning;
+    }
+
+    public static StreamsTuning latency() {
+        StreamsTuning tuning = new StreamsTuning();
+        tuning.setCommitIntervalMs(100L);
+        tuning.setCacheMaxBytes(0L);
+        tuning.setNumStreamThreads(2);
+        tuning.setProducerLingerMs(0);
+        tuning.setProducerBatchSize(16 * 1024);
+        tuning.setProducerCompressionType("none");
+        tuning.setConsumerFetchMinBytes(1);
+        tuning.setConsumerFetchMaxWaitMs(10);
+        tuning.setConsumerMaxPartitionFetchBytes(1024 * 1024);
+        return tuning;
+    }
+}
@@ -0,0 +1,83 @@
+package com.checkout.steaming_app.config;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+/**
+ * Bounds and thresholds of the {@link com.checkout.steaming_app.scaling.StreamThreadScaler}, which adds and removes
+ * stream threads at runtime from the consumer lag, configured under {@code kafka.thread-scaling.*}. The thread count of
+ * the tuning profile is the starting point.
+ */
+@Data
+public class ThreadScalingSettings {
+
+    private boolean enabled = false;
+
+    @NotNull
+    @Min(1)
+    private Integer minThreads = 1;
+
+    @NotNull
+    @Min(1)
+    private Integer maxThreads = 4;
+
+    @NotNull
+    @Positive
+    private Long checkIntervalMs = 10_000L;
+
+    /**
+     * Lag summed over the partitions of this instance above which it is behind, provided that it would also take
+     * longer than {@link #targetDrainMs} to catch up at the current processing rate.
+     */
+    @NotNull
+    @Positive
+    private Long scaleUpLagRecords = 100_000L;
+
+    @NotNull
+    @Positive
+    private Long targetDrainMs = 60_000L;
+
+    /**
+     * Lag below which a thread can be spared. The gap to {@link #scaleUpLagRecords} keeps a lag hovering around one
+     * threshold from adding and removing threads in turn.
+     */
+    @NotNull
+    @PositiveOrZero
+    private Long scaleDownLagRecords = 10_000L;
+
+    /**
+     * Consecutive checks the instance must be behind before a thread is added.
+     */
+    @NotNull
+    @Min(1)
+    private Integer scaleUpChecks = 3;
+
+    /**
+     * Consecutive checks the lag must stay below {@link #scaleDownLagRecords} before a thread is removed. Longer than
+     * {@link #scaleUpChecks}, as the thread removed has to be added back with a rebalance.
+     */
+    @NotNull
+    @Min(1)
+    private Integer scaleDownChecks = 12;
+
+    /**
+     * Time after a change before the next one, for the rebalance it causes to settle and the rate to reflect it.
+     */
+    @NotNull
+    @PositiveOrZero
+    private Long cooldownMs = 120_000L;
+
+    @AssertTrue(message = "thread-scaling min-threads must not exceed max-threads")
+    public boolean isThreadBoundsOrdered() {
+        return minThreads == null || maxThreads == null || minThreads <= maxThreads;
+    }
+
+    @AssertTrue(message = "thread-scaling scale-down-lag-records must be below scale-up-lag-records")
+    public boolean isLagThresholdsOrdered() {
+        return scaleUpLagRecords == null || scaleDownLagRecords == null || scaleDownLagRecords < scaleUpLagRecords;
+    }
+}
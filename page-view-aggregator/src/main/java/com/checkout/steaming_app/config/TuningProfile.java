@@ -0,0 +1,17 @@
+package com.checkout.steaming_app.config;
+
+/**
+ * Selects which {@link StreamsTuning} block of {@link KafkaStreamsConfig} is applied to the Kafka Streams client.
+ */
+public enum TuningProfile {
+
+    /**
+     * Batches commits, caches state store writes and enlarges producer/consumer batches.
+     */
+    THROUGHPUT,
+
+    /**
+     * Commits frequently and forwards every update with minimal batching.
+     */
+    LATENCY
+}
@@ -0,0 +1,34 @@
+package com.checkout.steaming_app.dlq;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.streams.errors.DeserializationExceptionHandler;
+import org.apache.kafka.streams.errors.ErrorHandlerContext;
+
+import java.util.Map;
+
+/**
+ * Sends records that cannot be deserialized to the dead letter topic and skips them, so that a poisoned record does
+ * not stop the aggregator. Retriable failures, such as a postcode id the dictionary has not caught up with in time,
+ * stop the stream thread instead, so that the record is read again rather than dropped.
+ */
+public class DeadLetterDeserializationExceptionHandler implements DeserializationExceptionHandler {
+
+    private DeadLetterPublisher publisher;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        publisher = DeadLetterPublisher.fromConfigs(configs);
+    }
+
+    @Override
+    public DeserializationHandlerResponse handle(ErrorHandlerContext context, ConsumerRecord<byte[], byte[]> record,
+                                                 Exception exception) {
+        if (exception instanceof RetriableException) {
+            return DeserializationHandlerResponse.FAIL;
+        }
+        publisher.publish(ErrorStage.DESERIALIZATION, record.topic(), record.partition(), record.offset(),
+                record.headers(), record.key(), record.value(), exception);
+        return DeserializationHandlerResponse.CONTINUE;
+    }
+}
@@ -0,0 +1,12 @@
+package com.checkout.steaming_app.dlq;
+
+/**
+ * Thrown by a processor to send the input record it is processing to the dead letter topic and skip it, for records
+ * that are readable but cannot be processed correctly. See {@link DeadLetterProcessingExceptionHandler}.
+ */
+public class DeadLetterException extends RuntimeException {
+
+    public DeadLetterException(String message) {
+        super(message);
+    }
+}
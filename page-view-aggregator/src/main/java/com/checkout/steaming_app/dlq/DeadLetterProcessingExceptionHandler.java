@@ -0,0 +1,32 @@
+package com.checkout.steaming_app.dlq;
+
+import org.apache.kafka.streams.errors.ErrorHandlerContext;
+import org.apache.kafka.streams.errors.ProcessingExceptionHandler;
+import org.apache.kafka.streams.processor.api.Record;
+
+import java.util.Map;
+
+/**
+ * Sends the input records rejected by a processor with a {@link DeadLetterException} to the dead letter topic and
+ * skips them. Any other exception is a bug rather than a bad record, and stops the stream thread as by the default
+ * handler.
+ */
+public class DeadLetterProcessingExceptionHandler implements ProcessingExceptionHandler {
+
+    private DeadLetterPublisher publisher;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        publisher = DeadLetterPublisher.fromConfigs(configs);
+    }
+
+    @Override
+    public ProcessingHandlerResponse handle(ErrorHandlerContext context, Record<?, ?> record, Exception exception) {
+        if (!(exception instanceof DeadLetterException)) {
+            return ProcessingHandlerResponse.FAIL;
+        }
+        publisher.publish(ErrorStage.PROCESSING, context.topic(), context.partition(), context.offset(),
+                context.headers(), context.sourceRawKey(), context.sourceRawValue(), exception);
+        return ProcessingHandlerResponse.CONTINUE;
+    }
+}
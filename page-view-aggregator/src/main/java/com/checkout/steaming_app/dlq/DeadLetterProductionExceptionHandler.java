@@ -0,0 +1,42 @@
+package com.checkout.steaming_app.dlq;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.streams.errors.ErrorHandlerContext;
+import org.apache.kafka.streams.errors.ProductionExceptionHandler;
+
+import java.util.Map;
+
+/**
+ * Sends output records the broker rejects, and the source records of outputs that cannot be serialized, to the dead
+ * letter topic and skips them. Retriable send errors are retried as by the default handler.
+ */
+public class DeadLetterProductionExceptionHandler implements ProductionExceptionHandler {
+
+    private DeadLetterPublisher publisher;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        publisher = DeadLetterPublisher.fromConfigs(configs);
+    }
+
+    @Override
+    public ProductionExceptionHandlerResponse handle(ErrorHandlerContext context,
+                                                     ProducerRecord<byte[], byte[]> record, Exception exception) {
+        if (exception instanceof RetriableException) {
+            return ProductionExceptionHandlerResponse.RETRY;
+        }
+        publisher.publish(ErrorStage.PRODUCTION, context.topic(), context.partition(), context.offset(),
+                record.headers(), record.key(), record.value(), exception);
+        return ProductionExceptionHandlerResponse.CONTINUE;
+    }
+
+    @Override
+    public ProductionExceptionHandlerResponse handleSerializationException(ErrorHandlerContext context,
+                                                                          ProducerRecord record, Exception exception,
+                                                                          SerializationExceptionOrigin origin) {
+        publisher.publish(ErrorStage.SERIALIZATION, context.topic(), context.partition(), context.offset(),
+                context.headers(), context.sourceRawKey(), context.sourceRawValue(), exception);
+        return ProductionExceptionHandlerResponse.CONTINUE;
+    }
+}
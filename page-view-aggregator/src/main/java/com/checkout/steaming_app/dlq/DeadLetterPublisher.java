@@ -0,0 +1,122 @@
+package com.checkout.steaming_app.dlq;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends records the aggregator cannot process to the dead letter topic, with their original key, value and headers
+ * plus {@code dlq.*} headers naming the source record and the error. Sends are asynchronous so stream threads do not
+ * wait for the broker; a record whose send fails is counted and logged but lost.
+ * <p>
+ * A poisoned partition can fail on every record, so failures are logged at most once per {@link #LOG_INTERVAL_MS}
+ * with the number of failures suppressed since.
+ */
+@Slf4j
+public class DeadLetterPublisher implements AutoCloseable {
+
+    /**
+     * Streams config key under which the exception handlers find this publisher.
+     */
+    public static final String PUBLISHER_CONFIG = "page-view.dlq.publisher";
+
+    public static final String TOPIC_HEADER = "dlq.topic";
+    public static final String PARTITION_HEADER = "dlq.partition";
+    public static final String OFFSET_HEADER = "dlq.offset";
+    public static final String STAGE_HEADER = "dlq.stage";
+    public static final String ERROR_CLASS_HEADER = "dlq.error.class";
+    public static final String ERROR_MESSAGE_HEADER = "dlq.error.message";
+
+    static final long LOG_INTERVAL_MS = 10_000;
+
+    private final Producer<byte[], byte[]> producer;
+    private final String topic;
+    private final Clock clock;
+    private final Map<ErrorStage, Counter> published = new EnumMap<>(ErrorStage.class);
+    private final Counter sendFailures;
+    private final AtomicLong nextLogAtMs = new AtomicLong();
+    private final AtomicLong suppressedLogs = new AtomicLong();
+
+    public DeadLetterPublisher(Producer<byte[], byte[]> producer, String topic, MeterRegistry meterRegistry,
+                               Clock clock) {
+        this.producer = producer;
+        this.topic = topic;
+        this.clock = clock;
+        for (ErrorStage stage : ErrorStage.values()) {
+            published.put(stage, Counter.builder("dead.letter.records")
+                    .description("Records sent to the dead letter topic")
+                    .tag("stage", stage.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.sendFailures = Counter.builder("dead.letter.send.failures")
+                .description("Records lost because they could not be sent to the dead letter topic")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The publisher put under {@link #PUBLISHER_CONFIG} in the streams configs passed to a handler.
+     */
+    public static DeadLetterPublisher fromConfigs(Map<String, ?> configs) {
+        Object publisher = configs.get(PUBLISHER_CONFIG);
+        if (publisher instanceof DeadLetterPublisher deadLetterPublisher) {
+            return deadLetterPublisher;
+        }
+        throw new ConfigException(PUBLISHER_CONFIG, publisher, "must be a DeadLetterPublisher");
+    }
+
+    public void publish(ErrorStage stage, String sourceTopic, int partition, long offset, Headers headers,
+                        byte[] key, byte[] value, Exception exception) {
+        Headers deadLetterHeaders = new RecordHeaders(headers == null ? null : headers.toArray())
+                .add(TOPIC_HEADER, utf8(sourceTopic))
+                .add(PARTITION_HEADER, utf8(Integer.toString(partition)))
+                .add(OFFSET_HEADER, utf8(Long.toString(offset)))
+                .add(STAGE_HEADER, utf8(stage.name()))
+                .add(ERROR_CLASS_HEADER, utf8(exception.getClass().getName()))
+                .add(ERROR_MESSAGE_HEADER, utf8(String.valueOf(exception.getMessage())));
+
+        producer.send(new ProducerRecord<>(topic, null, key, value, deadLetterHeaders), (metadata, sendException) -> {
+            if (sendException != null) {
+                sendFailures.increment();
+                logRateLimited("Failed to send record {}-{}@{} to dead letter topic {}", sourceTopic, partition,
+                        offset, topic, sendException);
+            }
+        });
+        published.get(stage).increment();
+        logRateLimited("Sent record {}-{}@{} to dead letter topic {} after {} error", sourceTopic, partition, offset,
+                topic, stage, exception);
+    }
+
+    @Override
+    public void close() {
+        producer.close();
+    }
+
+    private void logRateLimited(String message, Object... args) {
+        long now = clock.millis();
+        long nextLogAt = nextLogAtMs.get();
+        if (now < nextLogAt || !nextLogAtMs.compareAndSet(nextLogAt, now + LOG_INTERVAL_MS)) {
+            suppressedLogs.incrementAndGet();
+            return;
+        }
+        long suppressed = suppressedLogs.getAndSet(0);
+        if (suppressed > 0) {
+            log.warn("{} dead letter messages suppressed in the last {} ms", suppressed, LOG_INTERVAL_MS);
+        }
+        log.warn(message, args);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
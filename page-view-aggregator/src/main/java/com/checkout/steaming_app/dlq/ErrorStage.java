@@ -0,0 +1,15 @@
+package com.checkout.steaming_app.dlq;
+
+/**
+ * Where a record failed on its way through the aggregator, recorded in the {@code dlq.stage} header.
+ */
+public enum ErrorStage {
+    /** The input record could not be deserialized. */
+    DESERIALIZATION,
+    /** An output record could not be serialized; the source record is dead-lettered instead. */
+    SERIALIZATION,
+    /** An output record was rejected by the broker, e.g. for exceeding the maximum message size. */
+    PRODUCTION,
+    /** A processor rejected the input record with a {@link DeadLetterException}. */
+    PROCESSING
+}
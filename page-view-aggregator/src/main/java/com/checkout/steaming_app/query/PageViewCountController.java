@@ -0,0 +1,62 @@
+package com.checkout.steaming_app.query;
+
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Instant;
+import java.util.List;
+
+@Slf4j
+@Validated
+@RestController
+@RequiredArgsConstructor
+public class PageViewCountController {
+
+    private final PageViewCountQueryService queryService;
+
+    @GetMapping(PageViewCountQueryService.POSTCODE_PATH)
+    public List<WindowedPageViewCount> countsForPostcode(
+            @PathVariable String postcode,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "10") @Positive int windows) {
+        return queryService.countsForPostcode(postcode, from, to, windows);
+    }
+
+    @GetMapping(PageViewCountQueryService.WINDOW_PATH)
+    public List<WindowedPageViewCount> countsForWindow(
+            @PathVariable Instant windowStart,
+            @RequestParam(defaultValue = "false") boolean local) {
+        return queryService.countsForWindow(windowStart, local);
+    }
+
+    @GetMapping(PageViewCountQueryService.TOP_POSTCODES_PATH)
+    public List<WindowedPageViewCount> topPostcodes(
+            @PathVariable Instant windowStart,
+            @RequestParam(defaultValue = "100") @Positive int limit) {
+        return queryService.topPostcodes(windowStart, limit);
+    }
+
+    /** The store is not queryable while the instance is starting up or rebalancing; clients should retry. */
+    @ExceptionHandler(InvalidStateStoreException.class)
+    public ProblemDetail storeUnavailable(InvalidStateStoreException ex) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
+    @ExceptionHandler(RestClientException.class)
+    public ProblemDetail remoteQueryFailed(RestClientException ex) {
+        log.warn("Forwarded page view count query failed", ex);
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_GATEWAY, ex.getMessage());
+    }
+}
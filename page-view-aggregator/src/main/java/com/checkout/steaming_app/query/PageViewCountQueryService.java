@@ -0,0 +1,200 @@
+package com.checkout.steaming_app.query;
+
+import com.checkout.steaming_app.topology.TopPostcodes;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.StreamsMetadata;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.errors.StreamsNotStartedException;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.checkout.steaming_app.topology.PageViewTopology.STATE_STORE_NAME;
+import static com.checkout.steaming_app.topology.PageViewTopology.TOP_POSTCODES_STORE_NAME;
+
+/**
+ * Serves windowed page view counts from the {@code page-view-count-by-postcode-store} window store and the per window
+ * rankings from the {@code top-postcodes-by-window-store}. Queries for keys owned by another instance are forwarded to
+ * that instance's {@code application.server}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PageViewCountQueryService {
+
+    static final String POSTCODE_PATH = "/page-views/postcodes/{postcode}";
+    static final String WINDOW_PATH = "/page-views/windows/{windowStart}";
+    static final String TOP_POSTCODES_PATH = "/page-views/windows/{windowStart}/top";
+
+    private static final Instant EARLIEST = Instant.EPOCH;
+    private static final Instant LATEST = Instant.ofEpochMilli(Long.MAX_VALUE);
+    private static final ParameterizedTypeReference<List<WindowedPageViewCount>> COUNTS =
+            new ParameterizedTypeReference<>() {};
+
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+    private final HostInfo defaultHostStoreInfo;
+    private final RestClient restClient = RestClient.create();
+
+    /**
+     * Returns up to {@code windows} of the most recent windows of {@code postcode} starting between {@code from} and
+     * {@code to}, newest first. A missing bound leaves that side of the range open.
+     */
+    public List<WindowedPageViewCount> countsForPostcode(String postcode, Instant from, Instant to, int windows) {
+        KafkaStreams streams = kafkaStreams();
+        HostInfo owner = activeHost(streams, STATE_STORE_NAME, postcode, Serdes.String().serializer());
+        if (owner.equals(defaultHostStoreInfo)) {
+            return latestWindows(localWindowStore(streams), postcode,
+                    Optional.ofNullable(from).orElse(EARLIEST), Optional.ofNullable(to).orElse(LATEST), windows);
+        }
+
+        URI uri = UriComponentsBuilder.newInstance()
+                .scheme("http").host(owner.host()).port(owner.port())
+                .path(POSTCODE_PATH)
+                .queryParamIfPresent("from", Optional.ofNullable(from))
+                .queryParamIfPresent("to", Optional.ofNullable(to))
+                .queryParam("windows", windows)
+                .buildAndExpand(postcode)
+                .encode()
+                .toUri();
+        log.debug("Forwarding query for postcode {} to {}", postcode, owner);
+        return restClient.get().uri(uri).retrieve().body(COUNTS);
+    }
+
+    /**
+     * Returns the counts of every postcode in the window starting at {@code windowStart}, ordered by postcode. Unless
+     * {@code localOnly} is set, the other instances hosting active partitions of the store are queried for their share
+     * of the postcodes.
+     */
+    public List<WindowedPageViewCount> countsForWindow(Instant windowStart, boolean localOnly) {
+        KafkaStreams streams = kafkaStreams();
+        List<WindowedPageViewCount> counts = new ArrayList<>();
+
+        if (localOnly) {
+            counts.addAll(postcodesInWindow(localWindowStore(streams), windowStart));
+        } else {
+            for (StreamsMetadata instance : streams.streamsMetadataForStore(STATE_STORE_NAME)) {
+                // Instances with only standby copies of the store refuse queries, and their postcodes are served by
+                // the active ones
+                if (!instance.stateStoreNames().contains(STATE_STORE_NAME)) {
+                    continue;
+                }
+                HostInfo host = instance.hostInfo();
+                if (host.equals(defaultHostStoreInfo)) {
+                    counts.addAll(postcodesInWindow(localWindowStore(streams), windowStart));
+                } else {
+                    URI uri = UriComponentsBuilder.newInstance()
+                            .scheme("http").host(host.host()).port(host.port())
+                            .path(WINDOW_PATH)
+                            .queryParam("local", true)
+                            .buildAndExpand(windowStart)
+                            .encode()
+                            .toUri();
+                    counts.addAll(restClient.get().uri(uri).retrieve().body(COUNTS));
+                }
+            }
+        }
+
+        counts.sort(Comparator.comparing(WindowedPageViewCount::postcode));
+        return counts;
+    }
+
+    /**
+     * Returns up to {@code limit} of the postcodes with the most page views in the closed window starting at
+     * {@code windowStart}, largest first, served by the instance owning the window's ranking.
+     */
+    public List<WindowedPageViewCount> topPostcodes(Instant windowStart, int limit) {
+        KafkaStreams streams = kafkaStreams();
+        HostInfo owner = activeHost(streams, TOP_POSTCODES_STORE_NAME, windowStart.toEpochMilli(),
+                Serdes.Long().serializer());
+        if (owner.equals(defaultHostStoreInfo)) {
+            ReadOnlyKeyValueStore<Long, TopPostcodes> store = streams.store(StoreQueryParameters.fromNameAndType(
+                    TOP_POSTCODES_STORE_NAME, QueryableStoreTypes.keyValueStore()));
+            TopPostcodes ranking = store.get(windowStart.toEpochMilli());
+            if (ranking == null) {
+                return List.of();
+            }
+            return ranking.top().stream()
+                    .limit(limit)
+                    .map(entry -> new WindowedPageViewCount(entry.getKey(), windowStart, entry.getValue()))
+                    .toList();
+        }
+
+        URI uri = UriComponentsBuilder.newInstance()
+                .scheme("http").host(owner.host()).port(owner.port())
+                .path(TOP_POSTCODES_PATH)
+                .queryParam("limit", limit)
+                .buildAndExpand(windowStart)
+                .encode()
+                .toUri();
+        log.debug("Forwarding top postcodes query for window {} to {}", windowStart, owner);
+        return restClient.get().uri(uri).retrieve().body(COUNTS);
+    }
+
+    static List<WindowedPageViewCount> latestWindows(ReadOnlyWindowStore<String, Long> store, String postcode,
+                                                     Instant from, Instant to, int windows) {
+        List<WindowedPageViewCount> counts = new ArrayList<>();
+        try (WindowStoreIterator<Long> iterator = store.backwardFetch(postcode, from, to)) {
+            while (iterator.hasNext() && counts.size() < windows) {
+                KeyValue<Long, Long> window = iterator.next();
+                counts.add(new WindowedPageViewCount(postcode, Instant.ofEpochMilli(window.key), window.value));
+            }
+        }
+        return counts;
+    }
+
+    static List<WindowedPageViewCount> postcodesInWindow(ReadOnlyWindowStore<String, Long> store,
+                                                         Instant windowStart) {
+        List<WindowedPageViewCount> counts = new ArrayList<>();
+        try (KeyValueIterator<Windowed<String>, Long> iterator = store.fetchAll(windowStart, windowStart)) {
+            while (iterator.hasNext()) {
+                KeyValue<Windowed<String>, Long> window = iterator.next();
+                counts.add(new WindowedPageViewCount(
+                        window.key.key(), window.key.window().startTime(), window.value));
+            }
+        }
+        return counts;
+    }
+
+    private KafkaStreams kafkaStreams() {
+        KafkaStreams streams = streamsBuilderFactoryBean.getKafkaStreams();
+        if (streams == null) {
+            throw new StreamsNotStartedException("Kafka Streams has not been started yet");
+        }
+        return streams;
+    }
+
+    private <K> HostInfo activeHost(KafkaStreams streams, String storeName, K key, Serializer<K> keySerializer) {
+        KeyQueryMetadata metadata = streams.queryMetadataForKey(storeName, key, keySerializer);
+        if (metadata == null || KeyQueryMetadata.NOT_AVAILABLE.equals(metadata)) {
+            throw new InvalidStateStoreException("No instance is currently hosting key " + key + " of " + storeName);
+        }
+        return metadata.activeHost();
+    }
+
+    private ReadOnlyWindowStore<String, Long> localWindowStore(KafkaStreams streams) {
+        return streams.store(StoreQueryParameters.fromNameAndType(STATE_STORE_NAME, QueryableStoreTypes.windowStore()));
+    }
+}
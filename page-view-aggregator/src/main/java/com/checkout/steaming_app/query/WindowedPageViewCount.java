@@ -0,0 +1,9 @@
+package com.checkout.steaming_app.query;
+
+import java.time.Instant;
+
+/**
+ * Page view count of a postcode in the window starting at {@code windowStart}.
+ */
+public record WindowedPageViewCount(String postcode, Instant windowStart, long pageViewCount) {
+}
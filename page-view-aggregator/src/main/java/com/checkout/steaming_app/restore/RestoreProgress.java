@@ -0,0 +1,27 @@
+package com.checkout.steaming_app.restore;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Snapshot of the changelog partitions currently restoring.
+ */
+public record RestoreProgress(int partitions, long remainingRecords, double recordsPerSecond) {
+
+    public boolean restoring() {
+        return partitions > 0;
+    }
+
+    /**
+     * Time left at the current rate, zero when nothing is left and empty before the first batch was restored.
+     */
+    public Optional<Duration> eta() {
+        if (remainingRecords == 0) {
+            return Optional.of(Duration.ZERO);
+        }
+        if (recordsPerSecond <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofMillis((long) (remainingRecords * 1000 / recordsPerSecond)));
+    }
+}
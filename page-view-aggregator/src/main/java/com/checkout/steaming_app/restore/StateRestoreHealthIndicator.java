@@ -0,0 +1,31 @@
+package com.checkout.steaming_app.restore;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.health.contributor.AbstractHealthIndicator;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the instance out of service while its state stores are restoring, so that the readiness probe keeps
+ * traffic such as interactive queries away until the counts are complete.
+ */
+@Component
+@RequiredArgsConstructor
+public class StateRestoreHealthIndicator extends AbstractHealthIndicator {
+
+    private final StateRestoreTracker tracker;
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        RestoreProgress progress = tracker.progress();
+        if (progress.restoring()) {
+            builder.outOfService()
+                    .withDetail("partitions", progress.partitions())
+                    .withDetail("remainingRecords", progress.remainingRecords())
+                    .withDetail("recordsPerSecond", Math.round(progress.recordsPerSecond()))
+                    .withDetail("eta", progress.eta().map(Object::toString).orElse("unknown"));
+        } else {
+            builder.up();
+        }
+    }
+}
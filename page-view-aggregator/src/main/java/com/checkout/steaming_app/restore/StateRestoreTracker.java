@@ -0,0 +1,121 @@
+package com.checkout.steaming_app.restore;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.processor.StateRestoreListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the restoration of state stores from their changelogs, e.g. after a redeploy on an instance without local
+ * state, and exposes its progress, rate and estimated remaining time as gauges and to
+ * {@link StateRestoreHealthIndicator}.
+ * <p>
+ * Progress covers the changelog partitions restoring since the last moment none was: the rate is averaged over that
+ * period and the estimate assumes it holds for the records still to restore.
+ */
+@Slf4j
+@Component
+public class StateRestoreTracker implements StateRestoreListener, MeterBinder {
+
+    private final Clock clock;
+    private final Map<TopicPartition, Restoration> restorations = new ConcurrentHashMap<>();
+
+    private Timer restoreDuration;
+    private long periodStartMs;
+    private long restoredInPeriod;
+
+    public StateRestoreTracker(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("state.restore.partitions", this, tracker -> tracker.progress().partitions())
+                .description("Changelog partitions being restored")
+                .register(registry);
+        Gauge.builder("state.restore.remaining", this, tracker -> tracker.progress().remainingRecords())
+                .baseUnit("records")
+                .register(registry);
+        Gauge.builder("state.restore.rate", this, tracker -> tracker.progress().recordsPerSecond())
+                .baseUnit("records/s")
+                .register(registry);
+        Gauge.builder("state.restore.eta", this, tracker -> tracker.progress().eta()
+                        .map(eta -> eta.toMillis() / 1000.0)
+                        .orElse(Double.NaN))
+                .baseUnit("seconds")
+                .register(registry);
+        restoreDuration = Timer.builder("state.restore.duration")
+                .description("Time to restore one changelog partition of a store")
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void onRestoreStart(TopicPartition partition, String storeName, long startingOffset,
+                                            long endingOffset) {
+        if (restorations.isEmpty()) {
+            periodStartMs = clock.millis();
+            restoredInPeriod = 0;
+        }
+        restorations.put(partition, new Restoration(endingOffset - startingOffset, clock.millis()));
+        log.info("Restoring {} records of store {} from {}", endingOffset - startingOffset, storeName, partition);
+    }
+
+    @Override
+    public synchronized void onBatchRestored(TopicPartition partition, String storeName, long batchEndOffset,
+                                             long numRestored) {
+        Restoration restoration = restorations.get(partition);
+        if (restoration != null) {
+            restoration.restored += numRestored;
+            restoredInPeriod += numRestored;
+        }
+    }
+
+    @Override
+    public synchronized void onRestoreEnd(TopicPartition partition, String storeName, long totalRestored) {
+        Restoration restoration = restorations.remove(partition);
+        if (restoration != null) {
+            Duration elapsed = Duration.ofMillis(clock.millis() - restoration.startMs);
+            if (restoreDuration != null) {
+                restoreDuration.record(elapsed);
+            }
+            log.info("Restored {} records of store {} from {} in {}", totalRestored, storeName, partition, elapsed);
+        }
+    }
+
+    @Override
+    public synchronized void onRestoreSuspended(TopicPartition partition, String storeName, long totalRestored) {
+        // The task moved to another instance mid-restore
+        restorations.remove(partition);
+    }
+
+    public synchronized RestoreProgress progress() {
+        long remaining = 0;
+        for (Restoration restoration : restorations.values()) {
+            remaining += Math.max(0, restoration.total - restoration.restored);
+        }
+        long elapsedMs = clock.millis() - periodStartMs;
+        double recordsPerSecond = restorations.isEmpty() || elapsedMs <= 0 ? 0 : restoredInPeriod * 1000.0 / elapsedMs;
+        return new RestoreProgress(restorations.size(), remaining, recordsPerSecond);
+    }
+
+    private static final class Restoration {
+
+        private final long total;
+        private final long startMs;
+        private long restored;
+
+        private Restoration(long total, long startMs) {
+            this.total = total;
+            this.startMs = startMs;
+        }
+    }
+}
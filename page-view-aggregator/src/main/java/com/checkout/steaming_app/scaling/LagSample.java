@@ -0,0 +1,27 @@
+package com.checkout.steaming_app.scaling;
+
+import java.util.Map;
+
+/**
+ * Consumer lag of the partitions assigned to this instance's stream threads, keyed by {@code topic-partition}, and
+ * the records per second they processed, as last reported by their metrics.
+ */
+public record LagSample(Map<String, Long> lagByPartition, double recordsPerSecond) {
+
+    static final LagSample EMPTY = new LagSample(Map.of(), 0);
+
+    public long totalLag() {
+        return lagByPartition.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Time to process the lag at the current rate, {@link Long#MAX_VALUE} while there is lag but nothing is processed.
+     */
+    public long drainMs() {
+        long lag = totalLag();
+        if (lag == 0) {
+            return 0;
+        }
+        return recordsPerSecond > 0 ? (long) (lag * 1000 / recordsPerSecond) : Long.MAX_VALUE;
+    }
+}
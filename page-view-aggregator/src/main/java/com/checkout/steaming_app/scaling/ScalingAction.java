@@ -0,0 +1,6 @@
+package com.checkout.steaming_app.scaling;
+
+public enum ScalingAction {
+    SCALE_UP,
+    SCALE_DOWN
+}
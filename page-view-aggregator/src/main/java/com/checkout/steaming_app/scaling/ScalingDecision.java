@@ -0,0 +1,10 @@
+package com.checkout.steaming_app.scaling;
+
+import java.time.Instant;
+
+/**
+ * A stream thread added or removed by the {@link StreamThreadScaler}, with the lag and rate it was decided on.
+ */
+public record ScalingDecision(Instant at, ScalingAction action, int threadsBefore, int threadsAfter, long lag,
+                              double recordsPerSecond, String reason) {
+}
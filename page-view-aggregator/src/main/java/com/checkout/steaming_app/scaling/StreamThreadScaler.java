@@ -0,0 +1,254 @@
+package com.checkout.steaming_app.scaling;
+
+import com.checkout.steaming_app.config.ThreadScalingSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.ThreadMetadata;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Adds and removes stream threads at runtime when the consumer lag of this instance's partitions grows or shrinks,
+ * within {@code kafka.thread-scaling} bounds, instead of restarting with another thread count and restoring the
+ * state of every task.
+ * <p>
+ * Every {@code check-interval-ms} the lag and processing rate are read from the stream threads' own metrics. The
+ * instance is behind when the lag exceeds {@code scale-up-lag-records} and would take longer than
+ * {@code target-drain-ms} to process at the current rate. A thread is added once it has been behind for
+ * {@code scale-up-checks} checks in a row, and removed once the lag has stayed below {@code scale-down-lag-records}
+ * for {@code scale-down-checks}. A change is followed by {@code cooldown-ms} without another. Each change rebalances
+ * the group. Threads are never added beyond the active tasks of the instance, as the extra ones would sit idle.
+ * <p>
+ * The lag and thread count are sampled even while scaling is disabled, so they can be watched before enabling it.
+ * The consumers report their lag at fetch time, so records fetched but not yet processed are not counted. That is at
+ * most {@code buffered.records.per.partition} per partition.
+ */
+@Slf4j
+public class StreamThreadScaler implements SmartLifecycle, MeterBinder {
+
+    static final String SCALING_METER = "stream.threads.scaling";
+    private static final int DECISION_HISTORY = 20;
+    private static final Duration REMOVE_TIMEOUT = Duration.ofMinutes(1);
+    /** Client id of a stream thread's main consumer, as opposed to its restore consumer or the global consumer. */
+    private static final Pattern MAIN_CONSUMER = Pattern.compile(".*-StreamThread-\\d+-consumer");
+
+    private final Supplier<KafkaStreams> streams;
+    private final ThreadScalingSettings settings;
+    private final Clock clock;
+    private final Deque<ScalingDecision> decisions = new ConcurrentLinkedDeque<>();
+    private final Map<ScalingAction, Counter> scalingCounters = new EnumMap<>(ScalingAction.class);
+
+    private volatile LagSample lastSample = LagSample.EMPTY;
+    private volatile int threads;
+    private ScheduledExecutorService executor;
+    private int behindChecks;
+    private int caughtUpChecks;
+    private long lastChangeMs = -1;
+
+    public StreamThreadScaler(Supplier<KafkaStreams> streams, ThreadScalingSettings settings, Clock clock) {
+        this.streams = streams;
+        this.settings = settings;
+        this.clock = clock;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stream.threads", this, scaler -> scaler.threads)
+                .description("Stream threads of this instance at the last check")
+                .register(registry);
+        Gauge.builder("stream.consumer.lag", this, scaler -> scaler.lastSample.totalLag())
+                .description("Consumer lag of the partitions assigned to this instance at the last check")
+                .baseUnit("records")
+                .register(registry);
+        for (ScalingAction action : ScalingAction.values()) {
+            scalingCounters.put(action, Counter.builder(SCALING_METER)
+                    .description("Stream threads added or removed")
+                    .tag("action", action.name())
+                    .register(registry));
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        long intervalMs = settings.getCheckIntervalMs();
+        executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("stream-thread-scaler").daemon().factory());
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                check();
+            } catch (RuntimeException e) {
+                log.warn("Stream thread scaling check failed", e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * Samples the lag and adds or removes a thread if the thresholds are met. Only checks while the instance is
+     * running, as lag and assignments are in flux during a rebalance. Not thread-safe: the scheduled checks run one at
+     * a time.
+     */
+    public Optional<ScalingDecision> check() {
+        KafkaStreams kafkaStreams = streams.get();
+        if (kafkaStreams == null || kafkaStreams.state() != KafkaStreams.State.RUNNING) {
+            return Optional.empty();
+        }
+        Collection<ThreadMetadata> threadMetadata = kafkaStreams.metadataForLocalThreads();
+        Set<TopicPartition> assigned = threadMetadata.stream()
+                .flatMap(thread -> thread.activeTasks().stream())
+                .flatMap(task -> task.topicPartitions().stream())
+                .collect(Collectors.toSet());
+        LagSample sample = sample(kafkaStreams.metrics().values(), assigned);
+        int activeTasks = threadMetadata.stream().mapToInt(thread -> thread.activeTasks().size()).sum();
+        lastSample = sample;
+        threads = threadMetadata.size();
+        if (!settings.isEnabled()) {
+            return Optional.empty();
+        }
+
+        long nowMs = clock.millis();
+        Proposal proposal = propose(sample, threads, activeTasks, nowMs);
+        if (proposal == null) {
+            return Optional.empty();
+        }
+        ScalingAction action = proposal.action();
+        String reason = proposal.reason();
+        Optional<String> thread = action == ScalingAction.SCALE_UP
+                ? kafkaStreams.addStreamThread()
+                : kafkaStreams.removeStreamThread(REMOVE_TIMEOUT);
+        if (thread.isEmpty()) {
+            log.warn("Could not {} from {} stream threads: {}", action, threads, reason);
+            return Optional.empty();
+        }
+
+        int threadsAfter = threads + (action == ScalingAction.SCALE_UP ? 1 : -1);
+        ScalingDecision decision = new ScalingDecision(clock.instant(), action, threads, threadsAfter,
+                sample.totalLag(), sample.recordsPerSecond(), reason);
+        log.info("{} stream thread {}, {} to {} threads: {}", action == ScalingAction.SCALE_UP ? "Added" : "Removed",
+                thread.get(), threads, threadsAfter, reason);
+        threads = threadsAfter;
+        lastChangeMs = nowMs;
+        behindChecks = 0;
+        caughtUpChecks = 0;
+        decisions.addLast(decision);
+        while (decisions.size() > DECISION_HISTORY) {
+            decisions.pollFirst();
+        }
+        Counter counter = scalingCounters.get(action);
+        if (counter != null) {
+            counter.increment();
+        }
+        return Optional.of(decision);
+    }
+
+    public ThreadScalingStatus status() {
+        LagSample sample = lastSample;
+        return new ThreadScalingStatus(settings.isEnabled(), threads, settings.getMinThreads(),
+                settings.getMaxThreads(), sample.totalLag(), sample.lagByPartition(), sample.recordsPerSecond(),
+                List.copyOf(decisions));
+    }
+
+    /**
+     * Updates the streaks of checks behind and caught up, and returns the thread to add or remove and why, or null to
+     * keep the current count.
+     */
+    private Proposal propose(LagSample sample, int threads, int activeTasks, long nowMs) {
+        long lag = sample.totalLag();
+        boolean behind = lag > settings.getScaleUpLagRecords() && sample.drainMs() > settings.getTargetDrainMs();
+        behindChecks = behind ? behindChecks + 1 : 0;
+        caughtUpChecks = lag < settings.getScaleDownLagRecords() ? caughtUpChecks + 1 : 0;
+
+        if (threads < settings.getMinThreads()) {
+            return new Proposal(ScalingAction.SCALE_UP,
+                    threads + " threads are below min-threads, e.g. after a thread died");
+        }
+        if (lastChangeMs >= 0 && nowMs - lastChangeMs < settings.getCooldownMs()) {
+            return null;
+        }
+        if (behindChecks >= settings.getScaleUpChecks() && threads < settings.getMaxThreads()
+                && threads < activeTasks) {
+            return new Proposal(ScalingAction.SCALE_UP, String.format(
+                    "lag of %d records above %d for %d checks, %s to drain at %.1f records/s", lag,
+                    settings.getScaleUpLagRecords(), behindChecks, drainTime(sample), sample.recordsPerSecond()));
+        }
+        if (caughtUpChecks >= settings.getScaleDownChecks() && threads > settings.getMinThreads()) {
+            return new Proposal(ScalingAction.SCALE_DOWN, String.format("lag of %d records below %d for %d checks",
+                    lag, settings.getScaleDownLagRecords(), caughtUpChecks));
+        }
+        return null;
+    }
+
+    private static String drainTime(LagSample sample) {
+        long drainMs = sample.drainMs();
+        return drainMs == Long.MAX_VALUE ? "forever" : drainMs / 1000 + " s";
+    }
+
+    /**
+     * Reads the lag of the {@code assigned} partitions from the main consumers' metrics. The consumers also report
+     * the lag of a topic with dots in its name under the name with underscores instead, so only the partitions
+     * assigned under the reported name are kept. Matching the names as reported keeps topics such as {@code a.b} and
+     * {@code a_b} apart.
+     */
+    static LagSample sample(Collection<? extends Metric> metrics, Set<TopicPartition> assigned) {
+        Map<String, Long> lagByPartition = new TreeMap<>();
+        double recordsPerSecond = 0;
+        for (Metric metric : metrics) {
+            MetricName name = metric.metricName();
+            if (!(metric.metricValue() instanceof Number number) || Double.isNaN(number.doubleValue())) {
+                // Not measured yet, e.g. a partition not fetched since it was assigned
+                continue;
+            }
+            if (name.group().equals("consumer-fetch-manager-metrics") && name.name().equals("records-lag")
+                    && name.tags().containsKey("partition")
+                    && MAIN_CONSUMER.matcher(name.tags().getOrDefault("client-id", "")).matches()) {
+                TopicPartition partition = new TopicPartition(name.tags().get("topic"),
+                        Integer.parseInt(name.tags().get("partition")));
+                if (assigned.contains(partition)) {
+                    lagByPartition.merge(partition.toString(), Math.max(0, number.longValue()), Math::max);
+                }
+            } else if (name.group().equals("stream-thread-metrics") && name.name().equals("process-rate")) {
+                recordsPerSecond += number.doubleValue();
+            }
+        }
+        return new LagSample(lagByPartition, recordsPerSecond);
+    }
+
+    private record Proposal(ScalingAction action, String reason) {
+    }
+}
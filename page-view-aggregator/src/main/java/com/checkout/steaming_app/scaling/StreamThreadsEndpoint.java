@@ -0,0 +1,23 @@
+package com.checkout.steaming_app.scaling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the stream thread count, the consumer lag and the scaling decisions of the {@link StreamThreadScaler} as
+ * {@code /actuator/streamthreads}.
+ */
+@Component
+@Endpoint(id = "streamthreads")
+@RequiredArgsConstructor
+public class StreamThreadsEndpoint {
+
+    private final StreamThreadScaler scaler;
+
+    @ReadOperation
+    public ThreadScalingStatus status() {
+        return scaler.status();
+    }
+}
@@ -0,0 +1,13 @@
+package com.checkout.steaming_app.scaling;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the {@code streamthreads} actuator endpoint reports: the threads and lag seen by the last check and the most
+ * recent scaling decisions, oldest first.
+ */
+public record ThreadScalingStatus(boolean enabled, int threads, int minThreads, int maxThreads, long lag,
+                                  Map<String, Long> lagByPartition, double recordsPerSecond,
+                                  List<ScalingDecision> decisions) {
+}
@@ -0,0 +1,136 @@
+package com.checkout.steaming_app.topology;
+
+import com.checkout.events.PageViewEvent;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Sensor;
+import org.apache.kafka.common.metrics.stats.Avg;
+import org.apache.kafka.common.metrics.stats.Max;
+import org.apache.kafka.common.metrics.stats.Percentile;
+import org.apache.kafka.common.metrics.stats.Percentiles;
+import org.apache.kafka.streams.StreamsMetrics;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Marks the page views that arrive after their window's grace period, which the windowed aggregations would drop,
+ * and records how far behind event time the input is, as task-level Kafka Streams metrics in the
+ * {@value #METRICS_GROUP} group:
+ * <ul>
+ *     <li>{@code event-lag-avg|max|p50|p95|p99}: wall-clock time minus event timestamp, in milliseconds</li>
+ *     <li>{@code out-of-order-records-rate|total}: events older than the newest event seen on the partition</li>
+ *     <li>{@code late-records-rate|total}: events past their window's grace period</li>
+ *     <li>{@code timestamp-fallback-records-rate|total}: records that are not page views, for which
+ *     {@link PageViewTopology.PageViewEventTimestampExtractor} fell back to the partition time. They are dropped.</li>
+ * </ul>
+ * Lateness is decided as by the windowed aggregations in the same task. With salting the counts are aggregated
+ * after a repartition, so an event close to its window's close can still be dropped there.
+ */
+class EventTimeClassifier implements FixedKeyProcessor<String, PageViewEvent, EventTimeClassifier.ClassifiedPageView> {
+
+    static final String METRICS_SCOPE = "page-view";
+    static final String METRICS_GROUP = "stream-" + METRICS_SCOPE + "-metrics";
+
+    /** Lags above this are recorded in the top percentile bucket; the maximum is still exact. */
+    private static final double MAX_TRACKED_LAG_MS = Duration.ofHours(2).toMillis();
+    private static final int PERCENTILES_SIZE_BYTES = 4 * 1024;
+
+    private final TimeWindows windows;
+
+    private FixedKeyProcessorContext<String, ClassifiedPageView> context;
+    private StreamsMetrics metrics;
+    private Sensor eventLag;
+    private Sensor outOfOrder;
+    private Sensor late;
+    private Sensor timestampFallback;
+    private long observedStreamTime = Long.MIN_VALUE;
+
+    EventTimeClassifier(TimeWindows windows) {
+        this.windows = windows;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, ClassifiedPageView> context) {
+        this.context = context;
+        this.metrics = context.metrics();
+        String taskId = context.taskId().toString();
+        Map<String, String> tags = Map.of(METRICS_SCOPE + "-id", taskId);
+
+        eventLag = metrics.addSensor(sensorName(taskId, "event-lag"), Sensor.RecordingLevel.INFO);
+        eventLag.add(metricName("event-lag-avg", "Average event-time lag in ms", tags), new Avg());
+        eventLag.add(metricName("event-lag-max", "Maximum event-time lag in ms", tags), new Max());
+        eventLag.add(new Percentiles(PERCENTILES_SIZE_BYTES, MAX_TRACKED_LAG_MS, Percentiles.BucketSizing.LINEAR,
+                percentile("event-lag-p50", 50, tags),
+                percentile("event-lag-p95", 95, tags),
+                percentile("event-lag-p99", 99, tags)));
+
+        outOfOrder = rateTotalSensor(taskId, "out-of-order-records");
+        late = rateTotalSensor(taskId, "late-records");
+        timestampFallback = rateTotalSensor(taskId, "timestamp-fallback-records");
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, PageViewEvent> record) {
+        Object value = record.value();
+        if (!(value instanceof PageViewEvent event)) {
+            timestampFallback.record();
+            return;
+        }
+
+        long timestamp = record.timestamp();
+        eventLag.record(context.currentSystemTimeMs() - timestamp);
+        if (timestamp < observedStreamTime) {
+            outOfOrder.record();
+        }
+        observedStreamTime = Math.max(observedStreamTime, timestamp);
+
+        boolean isLate = isWindowClosed(timestamp);
+        if (isLate) {
+            late.record();
+        }
+        context.forward(record.withValue(new ClassifiedPageView(event, isLate)));
+    }
+
+    @Override
+    public void close() {
+        metrics.removeSensor(eventLag);
+        metrics.removeSensor(outOfOrder);
+        metrics.removeSensor(late);
+        metrics.removeSensor(timestampFallback);
+    }
+
+    /**
+     * Same rule as the windowed aggregations: a window closes once stream time passes its end plus the grace period.
+     */
+    private boolean isWindowClosed(long timestamp) {
+        long windowEnd = timestamp - Math.floorMod(timestamp, windows.size()) + windows.size();
+        return windowEnd <= observedStreamTime - windows.gracePeriodMs();
+    }
+
+    private Sensor rateTotalSensor(String taskId, String operation) {
+        return metrics.addRateTotalSensor(METRICS_SCOPE, taskId, operation, Sensor.RecordingLevel.INFO);
+    }
+
+    private static String sensorName(String taskId, String name) {
+        return METRICS_SCOPE + "." + taskId + "." + name;
+    }
+
+    private static MetricName metricName(String name, String description, Map<String, String> tags) {
+        return new MetricName(name, METRICS_GROUP, description, tags);
+    }
+
+    private static Percentile percentile(String name, double percentile, Map<String, String> tags) {
+        return new Percentile(metricName(name, percentile + "th percentile of the event-time lag in ms", tags),
+                percentile);
+    }
+
+    /**
+     * A page view and whether its window had already closed when it arrived.
+     */
+    record ClassifiedPageView(PageViewEvent event, boolean late) {
+    }
+}
@@ -0,0 +1,444 @@
+package com.checkout.steaming_app.topology;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Window;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.processor.StateStoreContext;
+import org.apache.kafka.streams.query.Position;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.TimestampedBytesStore;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Window store for {@code Long} counts that keeps, per window start, an open addressing map from a dense postcode id to
+ * the count and its timestamp in primitive arrays. Unlike the RocksDB store, an increment allocates no key or value
+ * objects inside the store and touches no native code.
+ * <p>
+ * Postcodes are interned into ids that are never released, so the dictionary grows with the number of distinct keys
+ * ever seen, which suits postcodes. The store is not persistent: it is rebuilt from its changelog on restart. Reads from
+ * interactive queries are not synchronized with the stream thread and may miss an update in flight.
+ */
+@Slf4j
+class InMemoryCountWindowStore implements WindowStore<Bytes, byte[]>, TimestampedBytesStore {
+
+    /** A timestamped {@code Long}: 8 bytes of timestamp followed by the 8 byte count. */
+    private static final int VALUE_SIZE = 2 * Long.BYTES;
+    /**
+     * Changelog keys are laid out as the RocksDB window store writes them: the key, then the 8 byte window start and a
+     * 4 byte sequence number, which only distinguishes duplicates and is always 0 for counts.
+     */
+    private static final int CHANGELOG_KEY_SUFFIX_SIZE = Long.BYTES + Integer.BYTES;
+    private static final long NO_TIMESTAMP = -1L;
+
+    private final String name;
+    private final long retentionPeriod;
+    private final TimeWindows timeWindows;
+
+    private final Map<Bytes, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Bytes[] keys = new Bytes[64];
+    private final ConcurrentSkipListMap<Long, WindowCounts> windows = new ConcurrentSkipListMap<>();
+
+    // Most reads and writes hit the latest window, which is looked up without boxing its start
+    private volatile LatestWindow latestWindow;
+    private long observedStreamTime = NO_TIMESTAMP;
+    private final Position position = Position.emptyPosition();
+    private StateStoreContext context;
+    private volatile boolean open;
+
+    InMemoryCountWindowStore(String name, long retentionPeriod, long windowSize) {
+        this.name = name;
+        this.retentionPeriod = retentionPeriod;
+        this.timeWindows = TimeWindows.ofSizeWithNoGrace(Duration.ofMillis(windowSize));
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void init(StateStoreContext context, StateStore root) {
+        this.context = context;
+        context.register(root, (key, value) -> {
+            int keySize = key.length - CHANGELOG_KEY_SUFFIX_SIZE;
+            put(Bytes.wrap(Arrays.copyOfRange(key, 0, keySize)), value, readLong(key, keySize));
+        });
+        open = true;
+    }
+
+    @Override
+    public void put(Bytes key, byte[] value, long windowStartTimestamp) {
+        context.recordMetadata().ifPresent(metadata ->
+                position.withComponent(metadata.topic(), metadata.partition(), metadata.offset()));
+        if (windowStartTimestamp > observedStreamTime) {
+            observedStreamTime = windowStartTimestamp;
+            removeExpiredWindows();
+        }
+        if (windowStartTimestamp <= observedStreamTime - retentionPeriod) {
+            log.debug("Skipping count for expired window {} of store {}", windowStartTimestamp, name);
+            return;
+        }
+
+        if (value == null) {
+            Integer id = ids.get(key);
+            WindowCounts window = windows.get(windowStartTimestamp);
+            if (id != null && window != null) {
+                window.remove(id);
+            }
+            return;
+        }
+        if (value.length != VALUE_SIZE) {
+            throw new IllegalArgumentException("Store " + name + " only holds timestamped Long values but got "
+                    + value.length + " bytes");
+        }
+        windowFor(windowStartTimestamp).put(idOf(key), readLong(value, 0), readLong(value, Long.BYTES));
+    }
+
+    @Override
+    public byte[] fetch(Bytes key, long windowStartTimestamp) {
+        validateStoreOpen();
+        Integer id = ids.get(key);
+        if (id == null || windowStartTimestamp <= observedStreamTime - retentionPeriod) {
+            return null;
+        }
+        LatestWindow latest = latestWindow;
+        WindowCounts window = latest != null && latest.start() == windowStartTimestamp
+                ? latest.counts()
+                : windows.get(windowStartTimestamp);
+        return window == null ? null : window.get(id);
+    }
+
+    @Override
+    public WindowStoreIterator<byte[]> fetch(Bytes key, long timeFrom, long timeTo) {
+        return fetch(key, timeFrom, timeTo, true);
+    }
+
+    @Override
+    public WindowStoreIterator<byte[]> backwardFetch(Bytes key, long timeFrom, long timeTo) {
+        return fetch(key, timeFrom, timeTo, false);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> fetch(Bytes keyFrom, Bytes keyTo, long timeFrom, long timeTo) {
+        return range(keyFrom, keyTo, timeFrom, timeTo, true);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> backwardFetch(Bytes keyFrom, Bytes keyTo, long timeFrom,
+                                                                    long timeTo) {
+        return range(keyFrom, keyTo, timeFrom, timeTo, false);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> fetchAll(long timeFrom, long timeTo) {
+        return range(null, null, timeFrom, timeTo, true);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> backwardFetchAll(long timeFrom, long timeTo) {
+        return range(null, null, timeFrom, timeTo, false);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> all() {
+        return range(null, null, Long.MIN_VALUE, Long.MAX_VALUE, true);
+    }
+
+    @Override
+    public KeyValueIterator<Windowed<Bytes>, byte[]> backwardAll() {
+        return range(null, null, Long.MIN_VALUE, Long.MAX_VALUE, false);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        windows.clear();
+        ids.clear();
+        latestWindow = null;
+    }
+
+    @Override
+    public Position getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean persistent() {
+        return false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    private WindowStoreIterator<byte[]> fetch(Bytes key, long timeFrom, long timeTo, boolean forward) {
+        validateStoreOpen();
+        Integer id = ids.get(key);
+        List<KeyValue<Long, byte[]>> entries = new ArrayList<>();
+        if (id != null) {
+            for (Map.Entry<Long, WindowCounts> window : liveWindows(timeFrom, timeTo, forward).entrySet()) {
+                byte[] value = window.getValue().get(id);
+                if (value != null) {
+                    entries.add(KeyValue.pair(window.getKey(), value));
+                }
+            }
+        }
+        return new WindowEntries(entries);
+    }
+
+    private KeyValueIterator<Windowed<Bytes>, byte[]> range(Bytes keyFrom, Bytes keyTo, long timeFrom, long timeTo,
+                                                             boolean forward) {
+        validateStoreOpen();
+        Bytes[] keysById = keys;
+        Comparator<KeyValue<Windowed<Bytes>, byte[]>> byKey = Comparator.comparing(entry -> entry.key.key());
+        List<KeyValue<Windowed<Bytes>, byte[]>> entries = new ArrayList<>();
+        for (Map.Entry<Long, WindowCounts> window : liveWindows(timeFrom, timeTo, forward).entrySet()) {
+            Window timeWindow = timeWindows.windowsFor(window.getKey()).get(window.getKey());
+            List<KeyValue<Windowed<Bytes>, byte[]>> windowEntries = new ArrayList<>();
+            window.getValue().forEach((id, value) -> {
+                // Ids interned after the keys were read belong to counts newer than this iteration
+                Bytes key = id < keysById.length ? keysById[id] : null;
+                if (key != null && (keyFrom == null || key.compareTo(keyFrom) >= 0) && (keyTo == null || key.compareTo(keyTo) <= 0)) {
+                    windowEntries.add(KeyValue.pair(new Windowed<>(key, timeWindow), value));
+                }
+            });
+            windowEntries.sort(forward ? byKey : byKey.reversed());
+            entries.addAll(windowEntries);
+        }
+        return new Entries<>(entries);
+    }
+
+    private NavigableMap<Long, WindowCounts> liveWindows(long timeFrom, long timeTo, boolean forward) {
+        long from = Math.max(timeFrom, observedStreamTime - retentionPeriod + 1);
+        if (from > timeTo) {
+            return Collections.emptyNavigableMap();
+        }
+        NavigableMap<Long, WindowCounts> live = windows.subMap(from, true, timeTo, true);
+        return forward ? live : live.descendingMap();
+    }
+
+    private WindowCounts windowFor(long windowStart) {
+        LatestWindow latest = latestWindow;
+        if (latest == null || latest.start() != windowStart) {
+            latest = new LatestWindow(windowStart, windows.computeIfAbsent(windowStart, start -> new WindowCounts()));
+            latestWindow = latest;
+        }
+        return latest.counts();
+    }
+
+    private int idOf(Bytes key) {
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        int next = ids.size();
+        if (next == keys.length) {
+            keys = Arrays.copyOf(keys, next * 2);
+        }
+        keys[next] = key;
+        ids.put(key, next);
+        return next;
+    }
+
+    private void removeExpiredWindows() {
+        windows.headMap(observedStreamTime - retentionPeriod, true).clear();
+        LatestWindow latest = latestWindow;
+        if (latest != null && latest.start() <= observedStreamTime - retentionPeriod) {
+            latestWindow = null;
+        }
+    }
+
+    private void validateStoreOpen() {
+        if (!open) {
+            throw new InvalidStateStoreException("Store " + name + " is currently closed");
+        }
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = offset + Long.BYTES - 1; i >= offset; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private record LatestWindow(long start, WindowCounts counts) {
+    }
+
+    /**
+     * Counts of one window, in an open addressing map from postcode id to count and timestamp with linear probing.
+     */
+    private static final class WindowCounts {
+
+        private static final int EMPTY = -1;
+
+        // Replaced as a whole on resize, so that concurrent readers always see arrays of the same length
+        private volatile Slots slots = new Slots(16);
+        private int size;
+
+        void put(int id, long timestamp, long count) {
+            Slots current = slots;
+            int slot = current.slotOf(id);
+            if (current.ids[slot] == EMPTY) {
+                if (2 * (size + 1) > current.ids.length) {
+                    current = resize(current);
+                    slot = current.slotOf(id);
+                }
+                size++;
+            }
+            current.timestamps[slot] = timestamp;
+            current.counts[slot] = count;
+            current.ids[slot] = id;
+        }
+
+        byte[] get(int id) {
+            Slots current = slots;
+            return current.valueAt(current.slotOf(id));
+        }
+
+        /** Keeps the slot of a removed count, so that probing for other ids is unaffected. */
+        void remove(int id) {
+            Slots current = slots;
+            int slot = current.slotOf(id);
+            if (current.ids[slot] != EMPTY) {
+                current.timestamps[slot] = NO_TIMESTAMP;
+            }
+        }
+
+        void forEach(EntryConsumer consumer) {
+            Slots current = slots;
+            for (int slot = 0; slot < current.ids.length; slot++) {
+                byte[] value = current.valueAt(slot);
+                if (value != null) {
+                    consumer.accept(current.ids[slot], value);
+                }
+            }
+        }
+
+        private Slots resize(Slots current) {
+            Slots resized = new Slots(current.ids.length * 2);
+            for (int slot = 0; slot < current.ids.length; slot++) {
+                int id = current.ids[slot];
+                if (id != EMPTY) {
+                    int target = resized.slotOf(id);
+                    resized.ids[target] = id;
+                    resized.counts[target] = current.counts[slot];
+                    resized.timestamps[target] = current.timestamps[slot];
+                }
+            }
+            slots = resized;
+            return resized;
+        }
+
+        private static final class Slots {
+
+            private final int[] ids;
+            private final long[] counts;
+            private final long[] timestamps;
+
+            Slots(int capacity) {
+                ids = new int[capacity];
+                Arrays.fill(ids, EMPTY);
+                counts = new long[capacity];
+                timestamps = new long[capacity];
+            }
+
+            int slotOf(int id) {
+                int mask = ids.length - 1;
+                int hash = id * 0x9E3779B9;
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (ids[slot] != EMPTY && ids[slot] != id) {
+                    slot = (slot + 1) & mask;
+                }
+                return slot;
+            }
+
+            byte[] valueAt(int slot) {
+                if (ids[slot] == EMPTY || timestamps[slot] == NO_TIMESTAMP) {
+                    return null;
+                }
+                byte[] value = new byte[VALUE_SIZE];
+                writeLong(value, 0, timestamps[slot]);
+                writeLong(value, Long.BYTES, counts[slot]);
+                return value;
+            }
+        }
+
+        @FunctionalInterface
+        interface EntryConsumer {
+            void accept(int id, byte[] value);
+        }
+    }
+
+    private static class Entries<K> implements KeyValueIterator<K, byte[]> {
+
+        private final List<KeyValue<K, byte[]>> entries;
+        private int position;
+
+        Entries(List<KeyValue<K, byte[]>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < entries.size();
+        }
+
+        @Override
+        public KeyValue<K, byte[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return entries.get(position++);
+        }
+
+        @Override
+        public K peekNextKey() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return entries.get(position).key;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class WindowEntries extends Entries<Long> implements WindowStoreIterator<byte[]> {
+
+        WindowEntries(List<KeyValue<Long, byte[]>> entries) {
+            super(entries);
+        }
+    }
+}
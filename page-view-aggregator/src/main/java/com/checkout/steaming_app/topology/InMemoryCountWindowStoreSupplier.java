@@ -0,0 +1,60 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.state.WindowBytesStoreSupplier;
+import org.apache.kafka.streams.state.WindowStore;
+
+/**
+ * Supplies {@link InMemoryCountWindowStore}s for windowed counts, selected with {@code kafka.count-store-type}.
+ */
+public class InMemoryCountWindowStoreSupplier implements WindowBytesStoreSupplier {
+
+    private final String name;
+    private final long retentionPeriod;
+    private final long windowSize;
+
+    public InMemoryCountWindowStoreSupplier(String name, long retentionPeriod, long windowSize) {
+        if (retentionPeriod < windowSize) {
+            throw new IllegalArgumentException("retentionPeriod " + retentionPeriod
+                    + " must not be smaller than windowSize " + windowSize);
+        }
+        this.name = name;
+        this.retentionPeriod = retentionPeriod;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public WindowStore<Bytes, byte[]> get() {
+        return new InMemoryCountWindowStore(name, retentionPeriod, windowSize);
+    }
+
+    @Override
+    public String metricsScope() {
+        return "in-memory-count-window";
+    }
+
+    @Override
+    public long segmentIntervalMs() {
+        return windowSize;
+    }
+
+    @Override
+    public long windowSize() {
+        return windowSize;
+    }
+
+    @Override
+    public boolean retainDuplicates() {
+        return false;
+    }
+
+    @Override
+    public long retentionPeriod() {
+        return retentionPeriod;
+    }
+}
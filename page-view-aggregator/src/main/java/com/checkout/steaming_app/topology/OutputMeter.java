@@ -0,0 +1,84 @@
+package com.checkout.steaming_app.topology;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters the windowed results of an output as they are emitted, tagged by output, task and partition:
+ * <ul>
+ *     <li>{@value StageMeter#RECORDS_METER} with stage {@code output}</li>
+ *     <li>{@value #END_TO_END_LATENCY_METER}: wall-clock time minus the result's timestamp, which is the timestamp of
+ *     the newest event counted in it</li>
+ *     <li>{@value #WINDOW_CLOSE_LAG_METER}: wall-clock time minus the window end, for results emitted after the end
+ *     of their window, i.e. the final results and the updates from events that arrived during the grace period</li>
+ * </ul>
+ * The meters are removed when the task is closed, like those of {@link StageMeter}.
+ */
+class OutputMeter<V> implements FixedKeyProcessor<Windowed<String>, V, V> {
+
+    static final String OUTPUT_STAGE = "output";
+    static final String END_TO_END_LATENCY_METER = "page.view.end.to.end.latency";
+    static final String WINDOW_CLOSE_LAG_METER = "page.view.window.close.lag";
+
+    private final MeterRegistry meterRegistry;
+    private final String output;
+
+    private FixedKeyProcessorContext<Windowed<String>, V> context;
+    private Counter records;
+    private Timer endToEndLatency;
+    private Timer windowCloseLag;
+
+    OutputMeter(MeterRegistry meterRegistry, String output) {
+        this.meterRegistry = meterRegistry;
+        this.output = output;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<Windowed<String>, V> context) {
+        this.context = context;
+        Tags tags = StageMeter.taskTags(context.taskId()).and("output", output);
+        records = Counter.builder(StageMeter.RECORDS_METER)
+                .description("Records passing a stage of the page view topology")
+                .tags(tags.and("stage", OUTPUT_STAGE))
+                .register(meterRegistry);
+        endToEndLatency = Timer.builder(END_TO_END_LATENCY_METER)
+                .description("Time from the newest counted event to the emission of a result")
+                .tags(tags)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        windowCloseLag = Timer.builder(WINDOW_CLOSE_LAG_METER)
+                .description("Time from the end of a window to the emission of a result after it")
+                .tags(tags)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<Windowed<String>, V> record) {
+        long now = context.currentSystemTimeMs();
+        records.increment();
+        endToEndLatency.record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS);
+        long sinceWindowEnd = now - record.key().window().end();
+        if (sinceWindowEnd >= 0) {
+            windowCloseLag.record(sinceWindowEnd, TimeUnit.MILLISECONDS);
+        }
+        context.forward(record);
+    }
+
+    @Override
+    public void close() {
+        if (records != null) {
+            meterRegistry.remove(records);
+            meterRegistry.remove(endToEndLatency);
+            meterRegistry.remove(windowCloseLag);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.checkout.steaming_app.topology;
+
+import com.checkout.events.PageViewEvent;
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads Confluent framed {@link PageViewEvent}s (a zero magic byte, the 4 byte schema id, then the Avro binary
+ * encoding) with a fraction of the allocation of {@code SpecificAvroSerde}.
+ * <p>
+ * The writer schema of each schema id is looked up once, through a generic {@link KafkaAvroDeserializer} and so
+ * through the registry client and its cache. When it has the same parsing canonical form as {@code PageViewEvent},
+ * which is the case for everything the publisher writes, the fields are read straight from the record's bytes.
+ * Postcodes are interned in a small per-thread cache keyed by their UTF-8 bytes, so a repeated postcode allocates
+ * nothing. Webpages are not: the publisher's are nearly unique, so a cache would only add a lookup and a copy. Other
+ * writer schemas are resolved against {@code PageViewEvent} once per id, and read with a per-thread
+ * {@link BinaryDecoder}.
+ * <p>
+ * Events are not reused: Kafka Streams keeps the next record of every partition deserialized, and the late events
+ * route republishes them.
+ */
+public class PageViewEventDeserializer implements Deserializer<PageViewEvent> {
+
+    private static final byte MAGIC_BYTE = 0;
+    private static final int HEADER_LENGTH = 1 + Integer.BYTES;
+    private static final long PAGE_VIEW_FINGERPRINT =
+            SchemaNormalization.parsingFingerprint64(PageViewEvent.getClassSchema());
+    /** Reads the fields directly, for writer schemas with the layout of {@code PageViewEvent}. */
+    private static final SpecificDatumReader<PageViewEvent> DIRECT = new SpecificDatumReader<>(PageViewEvent.class);
+
+    private final Map<Integer, SpecificDatumReader<PageViewEvent>> readers = new ConcurrentHashMap<>();
+    private final ThreadLocal<ReadState> readState = ThreadLocal.withInitial(ReadState::new);
+    private final KafkaAvroDeserializer writerSchemas = new KafkaAvroDeserializer();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Map<String, Object> genericConfigs = new HashMap<>(configs);
+        genericConfigs.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, false);
+        writerSchemas.configure(genericConfigs, isKey);
+    }
+
+    @Override
+    public PageViewEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length < HEADER_LENGTH || data[0] != MAGIC_BYTE) {
+            throw new SerializationException("Unknown magic byte!");
+        }
+        int schemaId = (data[1] & 0xFF) << 24 | (data[2] & 0xFF) << 16 | (data[3] & 0xFF) << 8 | data[4] & 0xFF;
+        SpecificDatumReader<PageViewEvent> reader = readers.get(schemaId);
+        if (reader == null) {
+            reader = readers.computeIfAbsent(schemaId, id -> resolve(topic, data));
+        }
+
+        ReadState state = readState.get();
+        try {
+            return reader == DIRECT ? state.readDirect(data) : state.readResolved(reader, data);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException(
+                    "Error deserializing PageViewEvent with schema id " + schemaId + " from " + topic, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        writerSchemas.close();
+    }
+
+    private SpecificDatumReader<PageViewEvent> resolve(String topic, byte[] data) {
+        // Without a reader schema the generic deserializer reads with, and returns, the writer schema
+        Schema writer = ((GenericContainer) writerSchemas.deserialize(topic, data)).getSchema();
+        if (SchemaNormalization.parsingFingerprint64(writer) == PAGE_VIEW_FINGERPRINT) {
+            return DIRECT;
+        }
+        return new SpecificDatumReader<>(writer, PageViewEvent.getClassSchema());
+    }
+
+    /**
+     * The decoder and string caches of one stream thread.
+     */
+    private static final class ReadState {
+
+        private final StringCache postcodes = new StringCache(4096);
+        private BinaryDecoder decoder;
+        private int position;
+
+        PageViewEvent readDirect(byte[] data) {
+            position = HEADER_LENGTH;
+            PageViewEvent event = new PageViewEvent();
+            event.setUserId(readInt(data));
+            event.setPostcode(readString(data, postcodes));
+            event.setWebpage(readString(data));
+            event.setTimestamp(readLong(data));
+            if (position != data.length) {
+                throw new SerializationException((data.length - position) + " bytes left after the last field");
+            }
+            return event;
+        }
+
+        PageViewEvent readResolved(SpecificDatumReader<PageViewEvent> reader, byte[] data) throws IOException {
+            decoder = DecoderFactory.get().binaryDecoder(data, HEADER_LENGTH, data.length - HEADER_LENGTH, decoder);
+            return reader.read(null, decoder);
+        }
+
+        private int readInt(byte[] data) {
+            long value = readLong(data);
+            if (value != (int) value) {
+                throw new SerializationException("Int out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        /** A zig-zag encoded varint, as Avro writes ints and longs. */
+        private long readLong(byte[] data) {
+            long raw = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                byte b = data[position++];
+                raw |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return raw >>> 1 ^ -(raw & 1);
+                }
+            }
+            throw new SerializationException("Invalid varint at " + position);
+        }
+
+        private String readString(byte[] data, StringCache cache) {
+            int length = readLength(data);
+            String value = cache.get(data, position, length);
+            position += length;
+            return value;
+        }
+
+        private String readString(byte[] data) {
+            int length = readLength(data);
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private int readLength(byte[] data) {
+            long length = readLong(data);
+            if (length < 0 || length > data.length - position) {
+                throw new SerializationException("Invalid string length " + length + " at " + position);
+            }
+            return (int) length;
+        }
+    }
+
+    /**
+     * Direct mapped cache of strings by their UTF-8 bytes; a colliding value replaces the one in its slot.
+     */
+    private static final class StringCache {
+
+        private final byte[][] keys;
+        private final String[] values;
+
+        StringCache(int size) {
+            keys = new byte[size][];
+            values = new String[size];
+        }
+
+        String get(byte[] data, int offset, int length) {
+            int hash = 1;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + data[i];
+            }
+            int slot = (hash ^ hash >>> 16) & (keys.length - 1);
+            byte[] key = keys[slot];
+            if (key != null && Arrays.equals(key, 0, key.length, data, offset, offset + length)) {
+                return values[slot];
+            }
+            String value = new String(data, offset, length, StandardCharsets.UTF_8);
+            keys[slot] = Arrays.copyOfRange(data, offset, offset + length);
+            values[slot] = value;
+            return value;
+        }
+    }
+}
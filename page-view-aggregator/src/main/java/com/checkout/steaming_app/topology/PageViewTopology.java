@@ -1,64 +1,456 @@
 package com.checkout.steaming_app.topology;
 
 import com.checkout.events.AggregatedPageViewEvent;
+import com.checkout.events.AggregatedPostcodeWebpageViewEvent;
+import com.checkout.events.AggregatedWebpageViewEvent;
+import com.checkout.events.DistinctUsersEvent;
 import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.AggregationDimension;
+import com.checkout.steaming_app.config.CountStoreType;
+import com.checkout.steaming_app.config.EmitMode;
+import com.checkout.steaming_app.config.InputValueSerde;
+import com.checkout.steaming_app.config.Rollup;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.kstream.*;
 import org.apache.kafka.streams.processor.TimestampExtractor;
+import org.apache.kafka.streams.state.Stores;
 import org.apache.kafka.streams.state.WindowStore;
 import com.checkout.steaming_app.config.KafkaStreamsConfig;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
 
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class PageViewTopology {
 
-    private static final String STATE_STORE_NAME = "page-view-count-by-postcode-store";
-    private static final int WINDOW_SIZE_SECONDS = 60;
+    public static final String STATE_STORE_NAME = "page-view-count-by-postcode-store";
+    public static final String DISTINCT_USERS_STORE_NAME = "distinct-users-by-postcode-store";
+    public static final String TOP_POSTCODES_STORE_NAME = "top-postcodes-by-window-store";
+    private static final String TOP_POSTCODES_PARTIAL_STORE_NAME = "top-postcodes-partial-store";
+    private static final String SALTED_PARTIAL_STORE_NAME = "page-view-count-salted-partial-store";
+    public static final String WEBPAGE_STORE_NAME = "page-view-count-by-webpage-store";
+    public static final String POSTCODE_WEBPAGE_STORE_NAME = "page-view-count-by-postcode-webpage-store";
+    public static final String POSTCODE_DICTIONARY_STORE_NAME = "postcode-dictionary-store";
+    static final String SALT_SEPARATOR = "#";
+    /** Postcodes contain no {@code |}, so the first one splits a postcode and webpage key even if the URL has more. */
+    static final String POSTCODE_WEBPAGE_SEPARATOR = "|";
+    private static final byte[] VIEW = new byte[]{1};
+    public static final int WINDOW_SIZE_SECONDS = 60;
+    private static final Duration STATE_RETENTION = Duration.ofHours(1);
+
+    static final String INGEST_STAGE = "ingest";
+    static final String COUNT_STAGE = "count";
+    static final String OUTPUT_AMPLIFICATION_METER = "page.view.output.amplification";
 
     private final KafkaStreamsConfig kafkaProperties;
+    private final MeterRegistry meterRegistry;
+    private final PostcodeDictionaryEndOffsets postcodeDictionaryEndOffsets;
 
     @Bean
     public KStream<String, PageViewEvent> pageViewAggregationTopology(
             StreamsBuilder streamsBuilder) {
 
-        KStream<String, PageViewEvent> stream = streamsBuilder
+        KStream<String, PageViewEvent> input = streamsBuilder
                 .stream(
                 kafkaProperties.getPageViewInputTopic(),
                 Consumed.<String, PageViewEvent>as("page-view-input")
-                        .withTimestampExtractor(new PageViewEventTimestampExtractor()));
+                        .withValueSerde(inputValueSerde())
+                        .withTimestampExtractor(new PageViewEventTimestampExtractor()))
+                .processValues(() -> new StageMeter<>(meterRegistry, INGEST_STAGE), Named.as("page-view-ingest-meter"));
 
         TimeWindows tumblingWindow = TimeWindows.ofSizeAndGrace(Duration.ofMinutes(1), Duration.ofMinutes(30));
+        KStream<String, PageViewEvent> stream = routeLateEvents(input, tumblingWindow);
+
+        Set<AggregationDimension> dimensions = kafkaProperties.getDimensions();
+        if (dimensions.contains(AggregationDimension.POSTCODE)) {
+            if (kafkaProperties.isPostcodeDictionaryEnabled()) {
+                PostcodeDictionary dictionary = postcodeDictionary(streamsBuilder);
+                postcodeAggregations(streamsBuilder, registeredPostcodes(stream, dictionary), tumblingWindow,
+                        new PostcodeKeySerde(dictionary));
+            } else {
+                postcodeAggregations(streamsBuilder, stream, tumblingWindow, Serdes.String());
+            }
+        }
+        if (dimensions.contains(AggregationDimension.WEBPAGE)) {
+            webpageCounts(stream, tumblingWindow);
+        }
+        if (dimensions.contains(AggregationDimension.POSTCODE_WEBPAGE)) {
+            postcodeWebpageCounts(stream, tumblingWindow);
+        }
+
+        return stream;
+    }
+
+    /**
+     * The serde of the input page views, or null for the default {@code SpecificAvroSerde}. Kafka Streams does not
+     * configure serdes given to {@link Consumed}, so the lean one is configured here.
+     */
+    private Serde<PageViewEvent> inputValueSerde() {
+        if (kafkaProperties.getInputValueSerde() != InputValueSerde.LEAN) {
+            return null;
+        }
+        Serde<PageViewEvent> serde = Serdes.serdeFrom(new SpecificAvroSerde<PageViewEvent>().serializer(),
+                new PageViewEventDeserializer());
+        serde.configure(kafkaProperties.schemaRegistryConfig(), false);
+        return serde;
+    }
+
+    /**
+     * The postcode ids that encode the postcode keys of the stores, changelogs and repartition topics when
+     * {@code kafka.postcode-dictionary-topic} is set. The dictionary is kept in a global store, so every instance reads
+     * the whole topic, and is fully loaded before any page view is processed. Postcodes registered later are read by
+     * the global thread concurrently, so a stream thread missing one waits for it to reach the topic's end offsets.
+     */
+    private PostcodeDictionary postcodeDictionary(StreamsBuilder streamsBuilder) {
+        String topic = kafkaProperties.getPostcodeDictionaryTopic();
+        PostcodeDictionary dictionary = new PostcodeDictionary(() -> postcodeDictionaryEndOffsets.endOffsets(topic),
+                kafkaProperties.getPostcodeDictionaryWaitMs());
+        streamsBuilder.addGlobalStore(
+                Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore(POSTCODE_DICTIONARY_STORE_NAME),
+                                Serdes.String(), Serdes.Integer())
+                        .withLoggingDisabled(),
+                topic,
+                Consumed.<String, Integer>as("postcode-dictionary-input")
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(Serdes.Integer()),
+                () -> new PostcodeDictionaryUpdater(POSTCODE_DICTIONARY_STORE_NAME, dictionary));
+        Gauge.builder("page.view.postcode.dictionary.size", dictionary, PostcodeDictionary::size)
+                .description("Postcodes with a compact id in the postcode dictionary")
+                .register(meterRegistry);
+        return dictionary;
+    }
+
+    /**
+     * The page views whose postcode has an id, see {@link RegisteredPostcodeFilter}.
+     */
+    private KStream<String, PageViewEvent> registeredPostcodes(KStream<String, PageViewEvent> stream,
+                                                               PostcodeDictionary dictionary) {
+        Counter misses = Counter.builder(RegisteredPostcodeFilter.MISSES_METER)
+                .description("Page views dead-lettered because the postcode dictionary does not hold their postcode")
+                .register(meterRegistry);
+        return stream.processValues(() -> new RegisteredPostcodeFilter(dictionary, misses),
+                Named.as("page-view-registered-postcode"));
+    }
+
+    /**
+     * Counts per postcode and everything derived from them. The input is already keyed by postcode, so none of them
+     * repartitions the page views.
+     */
+    private void postcodeAggregations(StreamsBuilder streamsBuilder, KStream<String, PageViewEvent> stream,
+                                      TimeWindows tumblingWindow, Serde<String> postcodeKeys) {
+        KTable<Windowed<String>, Long> counts = kafkaProperties.getSaltBuckets() > 1
+                ? saltedCounts(streamsBuilder, stream, tumblingWindow, postcodeKeys)
+                : stream
+                        .groupByKey()
+                        .windowedBy(tumblingWindow)
+                        .count(countStore(STATE_STORE_NAME, tumblingWindow, postcodeKeys,
+                                kafkaProperties.getCountStoreType()));
+
+        counts.toStream(Named.as("page-view-count-updates"))
+                .processValues(() -> new StageMeter<>(meterRegistry, COUNT_STAGE), Named.as("page-view-count-meter"));
+        emitCounts(counts, "page-view-count", WINDOW_SIZE_SECONDS, kafkaProperties.getPageViewOutputTopic());
+
+        rollups(counts, postcodeKeys);
+        topPostcodes(streamsBuilder, counts, tumblingWindow);
+        distinctUsers(stream, tumblingWindow, postcodeKeys);
+    }
+
+    private void webpageCounts(KStream<String, PageViewEvent> stream, TimeWindows tumblingWindow) {
+        KTable<Windowed<String>, Long> counts = countBy(stream, "page-view-count-by-webpage",
+                (postcode, event) -> event.getWebpage().toString(), WEBPAGE_STORE_NAME, tumblingWindow);
+
+        emit(counts, "page-view-count-by-webpage", kafkaProperties.getWebpageOutputTopic(),
+                (windowedKey, count) -> AggregatedWebpageViewEvent.newBuilder()
+                        .setWebpage(windowedKey.key())
+                        .setPageViewCount(count.intValue())
+                        .setAggregateIntervalInSeconds(WINDOW_SIZE_SECONDS)
+                        .setAggregationWindow(Instant.ofEpochMilli(windowedKey.window().start()))
+                        .build());
+    }
+
+    private void postcodeWebpageCounts(KStream<String, PageViewEvent> stream, TimeWindows tumblingWindow) {
+        KTable<Windowed<String>, Long> counts = countBy(stream, "page-view-count-by-postcode-webpage",
+                (postcode, event) -> postcode + POSTCODE_WEBPAGE_SEPARATOR + event.getWebpage(),
+                POSTCODE_WEBPAGE_STORE_NAME, tumblingWindow);
+
+        emit(counts, "page-view-count-by-postcode-webpage", kafkaProperties.getPostcodeWebpageOutputTopic(),
+                (windowedKey, count) -> {
+                    String key = windowedKey.key();
+                    int separator = key.indexOf(POSTCODE_WEBPAGE_SEPARATOR);
+                    return AggregatedPostcodeWebpageViewEvent.newBuilder()
+                            .setPostcode(key.substring(0, separator))
+                            .setWebpage(key.substring(separator + POSTCODE_WEBPAGE_SEPARATOR.length()))
+                            .setPageViewCount(count.intValue())
+                            .setAggregateIntervalInSeconds(WINDOW_SIZE_SECONDS)
+                            .setAggregationWindow(Instant.ofEpochMilli(windowedKey.window().start()))
+                            .build();
+                });
+    }
+
+    /**
+     * Windowed count of the page views by a key other than the postcode. Only the new key is repartitioned, with a
+     * one byte marker value, rather than the whole Avro event. Always kept in RocksDB: the in-memory store interns
+     * every key for good, which suits postcodes but not keys with a webpage, of which there is no bound.
+     */
+    private KTable<Windowed<String>, Long> countBy(KStream<String, PageViewEvent> stream, String name,
+                                                   KeyValueMapper<String, PageViewEvent, String> keySelector,
+                                                   String storeName, TimeWindows tumblingWindow) {
+        return stream
+                .map((postcode, event) -> KeyValue.pair(keySelector.apply(postcode, event), VIEW),
+                        Named.as(name + "-key"))
+                .groupByKey(Grouped.with(name, Serdes.String(), Serdes.ByteArray()))
+                .windowedBy(tumblingWindow)
+                .count(countStore(storeName, tumblingWindow, Serdes.String(), CountStoreType.ROCKS_DB));
+    }
+
+    /**
+     * Sends the events that arrive after their window's grace period to {@code late-events-output-topic} for batch
+     * reconciliation, instead of the windowed aggregations dropping them, and returns the remaining events. See
+     * {@link EventTimeClassifier} for the event-time metrics recorded on the way.
+     */
+    private KStream<String, PageViewEvent> routeLateEvents(KStream<String, PageViewEvent> input,
+                                                           TimeWindows tumblingWindow) {
+        Map<String, KStream<String, EventTimeClassifier.ClassifiedPageView>> branches = input
+                .processValues(() -> new EventTimeClassifier(tumblingWindow), Named.as("page-view-event-time"))
+                .split(Named.as("page-view-"))
+                .branch((postcode, classified) -> classified.late(), Branched.as("late"))
+                .defaultBranch(Branched.as("on-time"));
 
-        stream
+        branches.get("page-view-late")
+                .mapValues(EventTimeClassifier.ClassifiedPageView::event, Named.as("page-view-late-unwrap"))
+                .to(kafkaProperties.getLateEventsOutputTopic(), Produced.as("page-view-late-output"));
+        return branches.get("page-view-on-time")
+                .mapValues(EventTimeClassifier.ClassifiedPageView::event, Named.as("page-view-on-time-unwrap"));
+    }
+
+    /**
+     * Two-phase count for skewed postcodes. Events are repartitioned under {@code salt-buckets} salted sub-keys per
+     * postcode, so a hot postcode is spread over several tasks, each combining its share into partial counts per
+     * window. The partials are flushed every {@code salt-flush-interval-ms} to the postcode's owning task and summed
+     * into the same {@value #STATE_STORE_NAME} window store as the unsalted count, so the final counts are identical.
+     * Intermediate updates arrive once per flush instead of once per event.
+     */
+    private KTable<Windowed<String>, Long> saltedCounts(StreamsBuilder streamsBuilder,
+                                                        KStream<String, PageViewEvent> stream,
+                                                        TimeWindows tumblingWindow, Serde<String> postcodeKeys) {
+        int saltBuckets = kafkaProperties.getSaltBuckets();
+        streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(SALTED_PARTIAL_STORE_NAME),
+                new WindowedSerdes.TimeWindowedSerde<>(postcodeKeys, tumblingWindow.size()), Serdes.Long()));
+
+        return stream
+                .selectKey((postcode, event) -> postcode + SALT_SEPARATOR + salt(event, saltBuckets),
+                        Named.as("page-view-salt"))
+                .repartition(Repartitioned.as("page-view-by-salted-postcode"))
+                .process(() -> new SaltedCountCombiner(SALTED_PARTIAL_STORE_NAME, tumblingWindow,
+                                Duration.ofMillis(kafkaProperties.getSaltFlushIntervalMs())),
+                        Named.as("page-view-salted-combiner"), SALTED_PARTIAL_STORE_NAME)
+                // Partitioned by the plain postcode like the input, which interactive queries rely on to find its owner
+                .groupByKey(Grouped.with("page-view-count-by-postcode", Serdes.String(), Serdes.Long()))
+                .windowedBy(tumblingWindow)
+                .reduce(Long::sum, countStore(STATE_STORE_NAME, tumblingWindow, postcodeKeys,
+                        kafkaProperties.getCountStoreType()));
+    }
+
+    /**
+     * A window store of counts, backed by RocksDB or by primitive arrays on the heap. Both are restored from the same
+     * changelog.
+     */
+    private Materialized<String, Long, WindowStore<org.apache.kafka.common.utils.Bytes, byte[]>> countStore(
+            String storeName, TimeWindows tumblingWindow, Serde<String> keySerde, CountStoreType storeType) {
+        Materialized<String, Long, WindowStore<org.apache.kafka.common.utils.Bytes, byte[]>> store =
+                switch (storeType) {
+                    case ROCKS_DB -> Materialized.<String, Long, WindowStore<org.apache.kafka.common.utils.Bytes, byte[]>>as(storeName)
+                            .withRetention(STATE_RETENTION);
+                    case IN_MEMORY -> Materialized.as(new InMemoryCountWindowStoreSupplier(
+                            storeName, STATE_RETENTION.toMillis(), tumblingWindow.size()));
+                };
+        return store.withKeySerde(keySerde).withValueSerde(Serdes.Long());
+    }
+
+    /**
+     * Derived from the event rather than drawn at random, so that reprocessing routes every event to the same task.
+     */
+    private static int salt(PageViewEvent event, int saltBuckets) {
+        return Math.floorMod(31 * Long.hashCode(event.getTimestamp()) + event.getUserId(), saltBuckets);
+    }
+
+    /**
+     * Builds each {@code kafka.rollups} resolution from the final counts of the previous one: once a finer window
+     * closes its count is regrouped by postcode and summed into the coarser window. The work per resolution
+     * therefore grows with the number of distinct postcodes per finer window rather than with the event rate.
+     */
+    private void rollups(KTable<Windowed<String>, Long> counts, Serde<String> postcodeKeys) {
+        KTable<Windowed<String>, Long> finer = counts;
+        for (Rollup rollup : kafkaProperties.getRollups()) {
+            String name = "page-view-count-" + rollup.getName();
+            TimeWindows window = TimeWindows.ofSizeAndGrace(
+                    Duration.ofMillis(rollup.getWindowSizeMs()), Duration.ofMillis(rollup.getGraceMs()));
+
+            KTable<Windowed<String>, Long> coarser = finer
+                    .suppress(Suppressed.untilWindowCloses(Suppressed.BufferConfig.unbounded())
+                            .withName(name + "-input"))
+                    .toStream()
+                    .groupBy((windowedKey, count) -> windowedKey.key(),
+                            Grouped.with(name + "-by-postcode", postcodeKeys, Serdes.Long()))
+                    .windowedBy(window)
+                    .reduce(Long::sum, Materialized.<String, Long, WindowStore<org.apache.kafka.common.utils.Bytes, byte[]>>as(rollupStoreName(rollup))
+                            .withKeySerde(postcodeKeys)
+                            .withValueSerde(Serdes.Long())
+                            .withRetention(Duration.ofMillis(rollup.getRetentionMs())));
+
+            emitCounts(coarser, name, (int) Duration.ofMillis(rollup.getWindowSizeMs()).toSeconds(),
+                    rollup.getOutputTopic());
+            finer = coarser;
+        }
+    }
+
+    public static String rollupStoreName(Rollup rollup) {
+        return "page-view-count-" + rollup.getName() + "-store";
+    }
+
+    private void emitCounts(KTable<Windowed<String>, Long> counts, String name, int windowSizeSeconds,
+                            String outputTopic) {
+        emit(counts, name, outputTopic, (windowedKey, count) -> AggregatedPageViewEvent.newBuilder()
+                .setPostcode(windowedKey.key())
+                .setPageViewCount(count.intValue())
+                .setAggregateIntervalInSeconds(windowSizeSeconds)
+                .setAggregationWindow(Instant.ofEpochMilli(windowedKey.window().start()))
+                .build());
+    }
+
+    /**
+     * Writes the windowed counts to {@code outputTopic} as often as {@code kafka.emit-mode} allows, keyed by the
+     * counted key.
+     */
+    private <V> void emit(KTable<Windowed<String>, Long> counts, String name, String outputTopic,
+                          ValueMapperWithKey<Windowed<String>, Long, V> toOutput) {
+        emit(counts, kafkaProperties.getEmitMode(), name)
+                .toStream()
+                .processValues(() -> new OutputMeter<>(meterRegistry, name), Named.as(name + "-output-meter"))
+                .mapValues(toOutput)
+                .selectKey((windowedKey, value) -> windowedKey.key())
+                .to(outputTopic);
+        registerOutputAmplification(name);
+    }
+
+    /**
+     * Results emitted by {@code output} per ingested page view, across all tasks of this instance. Depends on
+     * {@code kafka.emit-mode} and the record cache, which collapses count updates between commits.
+     */
+    private void registerOutputAmplification(String output) {
+        Gauge.builder(OUTPUT_AMPLIFICATION_METER, meterRegistry, registry -> {
+                    double ingested = registry.find(StageMeter.RECORDS_METER).tag("stage", INGEST_STAGE)
+                            .counters().stream().mapToDouble(Counter::count).sum();
+                    double emitted = registry.find(StageMeter.RECORDS_METER).tag("stage", OutputMeter.OUTPUT_STAGE)
+                            .tag("output", output)
+                            .counters().stream().mapToDouble(Counter::count).sum();
+                    return ingested == 0 ? 0 : emitted / ingested;
+                })
+                .description("Results emitted per ingested page view")
+                .tag("output", output)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ranks the postcodes of every window in two stages: each task keeps a bounded {@link TopPostcodes} summary of its
+     * own postcodes, and once the window closes the summaries are repartitioned by window start and merged into the
+     * queryable {@value #TOP_POSTCODES_STORE_NAME}. State stays at {@code top-postcodes-size} entries per window
+     * regardless of the number of distinct postcodes. The partial summaries are rewritten on every count update, so
+     * their store is cached and only the latest summary of a window reaches RocksDB and the changelog on commit.
+     */
+    private void topPostcodes(StreamsBuilder streamsBuilder, KTable<Windowed<String>, Long> counts,
+                              TimeWindows tumblingWindow) {
+        int size = kafkaProperties.getTopPostcodesSize();
+        streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(
+                        Stores.persistentKeyValueStore(TOP_POSTCODES_PARTIAL_STORE_NAME), Serdes.Long(), TopPostcodes.serde())
+                .withCachingEnabled());
+        streamsBuilder.addStateStore(Stores.keyValueStoreBuilder(
+                Stores.persistentKeyValueStore(TOP_POSTCODES_STORE_NAME), Serdes.Long(), TopPostcodes.serde()));
+
+        counts.toStream()
+                .process(() -> new TopPostcodesCollector(TOP_POSTCODES_PARTIAL_STORE_NAME, tumblingWindow, size),
+                        Named.as("top-postcodes-collector"), TOP_POSTCODES_PARTIAL_STORE_NAME)
+                .repartition(Repartitioned.<Long, TopPostcodes>as("top-postcodes-by-window")
+                        .withKeySerde(Serdes.Long())
+                        .withValueSerde(TopPostcodes.serde()))
+                .process(() -> new TopPostcodesMerger(TOP_POSTCODES_STORE_NAME, WINDOW_SIZE_SECONDS, STATE_RETENTION),
+                        Named.as("top-postcodes-merger"), TOP_POSTCODES_STORE_NAME)
+                .to(kafkaProperties.getTopPostcodesOutputTopic());
+    }
+
+    /**
+     * Estimates the distinct users per postcode and window with a {@link HyperLogLog} sketch, emitted together with
+     * the serialized sketch so that downstream rollups can merge windows.
+     */
+    private void distinctUsers(KStream<String, PageViewEvent> stream, TimeWindows tumblingWindow,
+                               Serde<String> postcodeKeys) {
+        int precision = kafkaProperties.getDistinctUsersPrecision();
+
+        KTable<Windowed<String>, HyperLogLog> sketches = stream
                 .groupByKey()
                 .windowedBy(tumblingWindow)
-                .count(Materialized.<String, Long, WindowStore<org.apache.kafka.common.utils.Bytes, byte[]>>as(STATE_STORE_NAME)
-                        .withKeySerde(Serdes.String())
-                        .withValueSerde(Serdes.Long())
-                        .withRetention(Duration.ofHours(1)))
+                .aggregate(
+                        () -> new HyperLogLog(precision),
+                        (postcode, event, sketch) -> {
+                            sketch.add(event.getUserId());
+                            return sketch;
+                        },
+                        Materialized.<String, HyperLogLog, WindowStore<org.apache.kafka.common.utils.Bytes, byte[]>>as(DISTINCT_USERS_STORE_NAME)
+                                .withKeySerde(postcodeKeys)
+                                .withValueSerde(HyperLogLog.serde())
+                                .withRetention(STATE_RETENTION));
+
+        emit(sketches, kafkaProperties.getEmitMode(), "distinct-users")
                 .toStream()
-                .mapValues((windowedKey, count) -> AggregatedPageViewEvent.newBuilder()
+                .processValues(() -> new OutputMeter<>(meterRegistry, "distinct-users"),
+                        Named.as("distinct-users-output-meter"))
+                .mapValues((windowedKey, sketch) -> DistinctUsersEvent.newBuilder()
                         .setPostcode(windowedKey.key())
-                        .setPageViewCount(count.intValue())
+                        .setDistinctUsers(sketch.estimate())
                         .setAggregateIntervalInSeconds(WINDOW_SIZE_SECONDS)
                         .setAggregationWindow(Instant.ofEpochMilli(windowedKey.window().start()))
+                        .setUserSketch(ByteBuffer.wrap(sketch.toByteArray()))
                         .build())
                 .selectKey((windowedKey, value) -> windowedKey.key())
-                .to(kafkaProperties.getPageViewOutputTopic());
+                .to(kafkaProperties.getDistinctUsersOutputTopic());
+    }
 
-        return stream;
+    private <V> KTable<Windowed<String>, V> emit(KTable<Windowed<String>, V> table, EmitMode emitMode, String name) {
+        return switch (emitMode) {
+            case EVERY_UPDATE -> table;
+            case RATE_LIMITED -> table.suppress(Suppressed
+                    .<Windowed<String>>untilTimeLimit(
+                            Duration.ofMillis(kafkaProperties.getEmitIntervalMs()),
+                            Suppressed.BufferConfig.maxRecords(kafkaProperties.getEmitBufferMaxRecords()).emitEarlyWhenFull())
+                    .withName(name + "-rate-limit"));
+            case ON_WINDOW_CLOSE -> table.suppress(Suppressed
+                    .untilWindowCloses(Suppressed.BufferConfig.unbounded())
+                    .withName(name + "-final"));
+        };
     }
 
+    /**
+     * Uses the event's own timestamp. Records that are not page views keep the partition time and are counted and
+     * dropped by {@link EventTimeClassifier}.
+     */
     public static class PageViewEventTimestampExtractor implements TimestampExtractor {
         @Override
         public long extract(ConsumerRecord<Object, Object> record, long partitionTime) {
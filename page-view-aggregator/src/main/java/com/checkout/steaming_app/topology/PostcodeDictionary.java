@@ -0,0 +1,161 @@
+package com.checkout.steaming_app.topology;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.TimeoutException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compact int ids of the postcodes, read from the {@code postcode-dictionary-topic} by the global thread and used by
+ * the stream threads to encode postcode keys. Ids are assigned by whoever publishes the dictionary and never change,
+ * so a postcode registered again under another id, or an id claimed by a second postcode, is rejected.
+ * <p>
+ * The global thread reads the topic independently of the stream threads, so a page view can be processed before the
+ * registration sent ahead of it, and a key can carry an id another instance has read first. The stream threads
+ * therefore wait for a missing entry, for up to {@code waitMs}, rather than treating it as absent.
+ */
+@Slf4j
+public class PostcodeDictionary {
+
+    /** Bounds the id to postcode array, which is indexed by id. */
+    public static final int MAX_ID = (1 << 24) - 1;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Copied on growth only; the volatile write after every update publishes the new entry to the stream threads
+    private volatile String[] postcodes = new String[1024];
+    /** Offset after the last record read from each partition of the topic, guarded by this. */
+    private final Map<Integer, Long> readOffsets = new HashMap<>();
+    private final Supplier<Map<Integer, Long>> endOffsets;
+    private final long waitMs;
+
+    /**
+     * @param endOffsets the current end offset of each partition of the topic
+     * @param waitMs     how long a stream thread waits for the global thread to read a missing entry
+     */
+    public PostcodeDictionary(Supplier<Map<Integer, Long>> endOffsets, long waitMs) {
+        this.endOffsets = endOffsets;
+        this.waitMs = waitMs;
+    }
+
+    /**
+     * The id of {@code postcode}, or -1 if it has not been registered.
+     */
+    public int id(String postcode) {
+        Integer id = ids.get(postcode);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * The postcode registered under {@code id}, the same instance for every call, or null if there is none.
+     */
+    public String postcode(int id) {
+        String[] current = postcodes;
+        return id < current.length ? current[id] : null;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * The id of {@code postcode}, waiting while it is missing until the global thread has read the topic up to its
+     * current end offsets. Returns -1 only if the postcode is still missing then, so was not registered before the
+     * page view being processed was sent.
+     *
+     * @throws TimeoutException if the global thread has not caught up within {@code waitMs}
+     */
+    public int awaitId(String postcode) {
+        int id = id(postcode);
+        if (id >= 0) {
+            return id;
+        }
+        Map<Integer, Long> targets = endOffsets.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+        synchronized (this) {
+            while ((id = id(postcode)) < 0 && !readUpTo(targets)) {
+                awaitUpdate(deadline, "postcode " + postcode);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * The postcode registered under {@code id}, waiting while it is missing, as the id was read from the topic by
+     * another instance and will be read here too.
+     *
+     * @throws TimeoutException if the id has not been read within {@code waitMs}
+     */
+    public String awaitPostcode(int id) {
+        String postcode = postcode(id);
+        if (postcode != null) {
+            return postcode;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+        synchronized (this) {
+            while ((postcode = postcode(id)) == null) {
+                awaitUpdate(deadline, "id " + id);
+            }
+            return postcode;
+        }
+    }
+
+    /**
+     * Records that the global thread has read the record at {@code offset} of {@code partition}, whether or not it
+     * registered anything.
+     */
+    synchronized void read(int partition, long offset) {
+        readOffsets.merge(partition, offset + 1, Math::max);
+        notifyAll();
+    }
+
+    private boolean readUpTo(Map<Integer, Long> targets) {
+        return targets.entrySet().stream()
+                .allMatch(target -> readOffsets.getOrDefault(target.getKey(), 0L) >= target.getValue());
+    }
+
+    private void awaitUpdate(long deadline, String missing) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new TimeoutException("The postcode dictionary has not caught up with " + missing + " within "
+                    + waitMs + " ms");
+        }
+        try {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        } catch (InterruptedException e) {
+            throw new InterruptException(e);
+        }
+    }
+
+    synchronized boolean register(String postcode, int id) {
+        if (id < 0 || id > MAX_ID) {
+            log.error("Ignoring postcode {} with id {} outside 0..{}", postcode, id, MAX_ID);
+            return false;
+        }
+        Integer existing = ids.get(postcode);
+        String owner = postcode(id);
+        if (existing != null || owner != null) {
+            if (existing == null || existing != id || !postcode.equals(owner)) {
+                log.error("Ignoring postcode {} with id {}, the dictionary already maps {} to {} and {} to {}",
+                        postcode, id, postcode, existing, id, owner);
+                return false;
+            }
+            return true;
+        }
+
+        String[] updated = postcodes;
+        if (id >= updated.length) {
+            updated = Arrays.copyOf(updated, Math.max(id + 1, Math.min(updated.length * 2, MAX_ID + 1)));
+        }
+        updated[id] = postcode;
+        ids.put(postcode, id);
+        postcodes = updated;
+        notifyAll();
+        return true;
+    }
+}
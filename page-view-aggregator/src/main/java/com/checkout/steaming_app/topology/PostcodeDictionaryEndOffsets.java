@@ -0,0 +1,16 @@
+package com.checkout.steaming_app.topology;
+
+import java.util.Map;
+
+/**
+ * Reads the current end offsets of a topic from the brokers, for a stream thread to tell whether the global thread
+ * has read the postcode dictionary up to the registrations sent before the page view it is processing.
+ */
+@FunctionalInterface
+public interface PostcodeDictionaryEndOffsets {
+
+    /**
+     * The end offset of every partition of {@code topic}, keyed by partition.
+     */
+    Map<Integer, Long> endOffsets(String topic);
+}
@@ -0,0 +1,48 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+/**
+ * Maintains the global dictionary store from the {@code postcode-dictionary-topic} and mirrors it into the
+ * {@link PostcodeDictionary} read by the key serdes, along with the offsets read. On startup the store has already
+ * been restored from the topic, so its content is loaded before any page view is processed.
+ */
+class PostcodeDictionaryUpdater implements Processor<String, Integer, Void, Void> {
+
+    private final String storeName;
+    private final PostcodeDictionary dictionary;
+
+    private ProcessorContext<Void, Void> context;
+    private KeyValueStore<String, Integer> store;
+
+    PostcodeDictionaryUpdater(String storeName, PostcodeDictionary dictionary) {
+        this.storeName = storeName;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        this.context = context;
+        store = context.getStateStore(storeName);
+        try (KeyValueIterator<String, Integer> entries = store.all()) {
+            while (entries.hasNext()) {
+                KeyValue<String, Integer> entry = entries.next();
+                dictionary.register(entry.key, entry.value);
+            }
+        }
+    }
+
+    @Override
+    public void process(Record<String, Integer> record) {
+        // Ids are never retired, so tombstones and malformed entries are ignored
+        if (record.key() != null && record.value() != null && dictionary.register(record.key(), record.value())) {
+            store.put(record.key(), record.value());
+        }
+        context.recordMetadata().ifPresent(metadata -> dictionary.read(metadata.partition(), metadata.offset()));
+    }
+}
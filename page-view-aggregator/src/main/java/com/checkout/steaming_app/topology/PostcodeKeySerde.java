@@ -0,0 +1,67 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Postcode keys of the state stores, their changelogs and the repartition topics, encoded as the varint of their
+ * {@link PostcodeDictionary} id plus one: one byte for the first 127 postcodes, two up to 16,383 and three up to 2
+ * million. Decoding an id returns the dictionary's own instance rather than a new string.
+ * <p>
+ * Every postcode has a single encoding, so that its counts are never split across two keys: page views of
+ * postcodes missing from the dictionary are dead-lettered by {@link RegisteredPostcodeFilter} before reaching a
+ * store, and serializing one fails. An id this instance has not read yet, written by another instance, is waited
+ * for.
+ */
+public class PostcodeKeySerde implements Serde<String> {
+
+    private final PostcodeDictionary dictionary;
+
+    public PostcodeKeySerde(PostcodeDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public Serializer<String> serializer() {
+        return (topic, postcode) -> postcode == null ? null : serialize(postcode);
+    }
+
+    @Override
+    public Deserializer<String> deserializer() {
+        return (topic, bytes) -> bytes == null ? null : deserialize(bytes);
+    }
+
+    byte[] serialize(String postcode) {
+        int id = dictionary.id(postcode);
+        if (id < 0) {
+            throw new SerializationException("Postcode " + postcode + " is not in the postcode dictionary");
+        }
+
+        int value = id + 1;
+        byte[] bytes = new byte[varintLength(value)];
+        for (int i = 0; i < bytes.length - 1; i++) {
+            bytes[i] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[bytes.length - 1] = (byte) value;
+        return bytes;
+    }
+
+    String deserialize(byte[] bytes) {
+        int value = 0;
+        for (int i = 0, shift = 0; i < bytes.length; i++, shift += 7) {
+            value |= (bytes[i] & 0x7F) << shift;
+        }
+        return dictionary.awaitPostcode(value - 1);
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+}
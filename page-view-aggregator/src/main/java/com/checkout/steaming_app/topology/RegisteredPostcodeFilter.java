@@ -0,0 +1,46 @@
+package com.checkout.steaming_app.topology;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.dlq.DeadLetterException;
+import io.micrometer.core.instrument.Counter;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+
+/**
+ * Passes on the page views whose postcode is in the {@link PostcodeDictionary}, and dead-letters the others before
+ * any postcode key is written. A postcode counted in full before its registration and by id after would otherwise
+ * be counted under two keys in the same windows, each emitting part of the count.
+ * <p>
+ * A postcode missing from the dictionary may just not have been read by the global thread yet, so the page view
+ * waits until the dictionary has caught up with the topic. Only the postcodes still missing then are dead-lettered,
+ * counted in {@value #MISSES_METER}, and can be replayed from the dead letter topic once registered.
+ */
+class RegisteredPostcodeFilter implements FixedKeyProcessor<String, PageViewEvent, PageViewEvent> {
+
+    static final String MISSES_METER = "page.view.postcode.dictionary.misses";
+
+    private final PostcodeDictionary dictionary;
+    private final Counter misses;
+
+    private FixedKeyProcessorContext<String, PageViewEvent> context;
+
+    RegisteredPostcodeFilter(PostcodeDictionary dictionary, Counter misses) {
+        this.dictionary = dictionary;
+        this.misses = misses;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, PageViewEvent> context) {
+        this.context = context;
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, PageViewEvent> record) {
+        if (record.key() != null && dictionary.awaitId(record.key()) < 0) {
+            misses.increment();
+            throw new DeadLetterException("Postcode " + record.key() + " is not in the postcode dictionary");
+        }
+        context.forward(record);
+    }
+}
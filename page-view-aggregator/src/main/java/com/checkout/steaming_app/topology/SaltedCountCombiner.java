@@ -0,0 +1,73 @@
+package com.checkout.steaming_app.topology;
+
+import com.checkout.events.PageViewEvent;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Window;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * First phase of the salted count. Sums the page views of the salted sub-keys owned by this task per postcode and
+ * window, and periodically forwards the partial counts keyed by postcode, so that a hot postcode reaches its owning
+ * task as one record per salt and flush rather than one per event.
+ */
+class SaltedCountCombiner implements Processor<String, PageViewEvent, String, Long> {
+
+    private final String storeName;
+    private final TimeWindows windows;
+    private final Duration flushInterval;
+
+    private ProcessorContext<String, Long> context;
+    private KeyValueStore<Windowed<String>, Long> store;
+
+    SaltedCountCombiner(String storeName, TimeWindows windows, Duration flushInterval) {
+        this.storeName = storeName;
+        this.windows = windows;
+        this.flushInterval = flushInterval;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, Long> context) {
+        this.context = context;
+        this.store = context.getStateStore(storeName);
+        context.schedule(flushInterval, PunctuationType.WALL_CLOCK_TIME, timestamp -> flush());
+    }
+
+    @Override
+    public void process(Record<String, PageViewEvent> record) {
+        if (record.value() == null) {
+            return;
+        }
+        // The windows are tumbling, so a timestamp falls into exactly one
+        Window window = windows.windowsFor(record.timestamp()).values().iterator().next();
+        Windowed<String> key = new Windowed<>(record.value().getPostcode().toString(), window);
+
+        Long partial = store.get(key);
+        store.put(key, partial == null ? 1L : partial + 1);
+    }
+
+    private void flush() {
+        List<KeyValue<Windowed<String>, Long>> partials = new ArrayList<>();
+        try (KeyValueIterator<Windowed<String>, Long> iterator = store.all()) {
+            iterator.forEachRemaining(partials::add);
+        }
+        long streamTime = context.currentStreamTimeMs();
+        for (KeyValue<Windowed<String>, Long> partial : partials) {
+            // Stamped within the window and no later than this task's stream time, so the merge keeps the same window
+            long timestamp = Math.max(partial.key.window().start(),
+                    Math.min(streamTime, partial.key.window().end() - 1));
+            context.forward(new Record<>(partial.key.key(), partial.value, timestamp));
+            store.delete(partial.key);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.checkout.steaming_app.topology;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.kafka.streams.processor.TaskId;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+
+/**
+ * Counts the records passing a stage of the topology in {@value #RECORDS_METER}, tagged by stage, task and
+ * partition, and forwards them unchanged. The counter is removed when the task is closed, e.g. revoked in a
+ * rebalance, so that no stale series is exported for it.
+ */
+class StageMeter<K, V> implements FixedKeyProcessor<K, V, V> {
+
+    static final String RECORDS_METER = "page.view.stage.records";
+
+    private final MeterRegistry meterRegistry;
+    private final String stage;
+
+    private FixedKeyProcessorContext<K, V> context;
+    private Counter records;
+
+    StageMeter(MeterRegistry meterRegistry, String stage) {
+        this.meterRegistry = meterRegistry;
+        this.stage = stage;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<K, V> context) {
+        this.context = context;
+        this.records = Counter.builder(RECORDS_METER)
+                .description("Records passing a stage of the page view topology")
+                .tags(taskTags(context.taskId()).and("stage", stage))
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<K, V> record) {
+        records.increment();
+        context.forward(record);
+    }
+
+    @Override
+    public void close() {
+        if (records != null) {
+            meterRegistry.remove(records);
+        }
+    }
+
+    static Tags taskTags(TaskId taskId) {
+        return Tags.of("task", taskId.toString(), "partition", Integer.toString(taskId.partition()));
+    }
+}
@@ -0,0 +1,145 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded summary of the postcodes with the highest page view counts in a window, holding at most
+ * {@code capacity} entries however many distinct postcodes are offered.
+ * <p>
+ * Like Space-Saving, a full summary evicts its smallest entry to admit a larger one. Because the offered values are
+ * the exact running counts of the windowed count store rather than increments, no over-estimation error is
+ * introduced: a postcode whose final count is among the {@code capacity} largest is always admitted by its last
+ * update, so the summary holds the exact top-{@code capacity} (up to ties).
+ */
+public class TopPostcodes {
+
+    private static final Comparator<Map.Entry<String, Long>> BY_COUNT_DESCENDING =
+            Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final int capacity;
+    private final Map<String, Long> counts;
+    private String minPostcode;
+
+    public TopPostcodes(int capacity) {
+        this.capacity = capacity;
+        this.counts = HashMap.newHashMap(capacity);
+    }
+
+    /**
+     * Records the current count of {@code postcode}, evicting the smallest entry if the summary is full and
+     * {@code count} is larger.
+     */
+    public void offer(String postcode, long count) {
+        Long current = counts.get(postcode);
+        if (current != null) {
+            if (count > current) {
+                counts.put(postcode, count);
+                if (postcode.equals(minPostcode)) {
+                    minPostcode = null;
+                }
+            }
+            return;
+        }
+
+        if (counts.size() < capacity) {
+            counts.put(postcode, count);
+            minPostcode = null;
+            return;
+        }
+
+        String min = minPostcode();
+        if (count > counts.get(min)) {
+            counts.remove(min);
+            counts.put(postcode, count);
+            minPostcode = null;
+        }
+    }
+
+    /**
+     * Merges the entries of another summary into this one.
+     */
+    public void merge(TopPostcodes other) {
+        other.counts.forEach(this::offer);
+    }
+
+    /**
+     * Returns the entries ordered by count, largest first.
+     */
+    public List<Map.Entry<String, Long>> top() {
+        return counts.entrySet().stream()
+                .sorted(BY_COUNT_DESCENDING)
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    public int size() {
+        return counts.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private String minPostcode() {
+        if (minPostcode == null) {
+            minPostcode = counts.entrySet().stream()
+                    .min(BY_COUNT_DESCENDING.reversed())
+                    .orElseThrow()
+                    .getKey();
+        }
+        return minPostcode;
+    }
+
+    /**
+     * Serde used for the summary state stores and the repartition topic.
+     */
+    public static Serde<TopPostcodes> serde() {
+        return Serdes.serdeFrom(TopPostcodes::serialize, TopPostcodes::deserialize);
+    }
+
+    private static byte[] serialize(String topic, TopPostcodes summary) {
+        if (summary == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + summary.size() * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(summary.capacity);
+            out.writeInt(summary.size());
+            for (Map.Entry<String, Long> entry : summary.counts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Failed to serialize top postcodes", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static TopPostcodes deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            TopPostcodes summary = new TopPostcodes(in.readInt());
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                summary.counts.put(in.readUTF(), in.readLong());
+            }
+            return summary;
+        } catch (IOException e) {
+            throw new SerializationException("Failed to deserialize top postcodes", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * First top-K stage. Keeps a {@link TopPostcodes} summary per window of the postcodes owned by this task, fed by the
+ * count updates of the windowed count store, and forwards it keyed by window start once the window has closed.
+ */
+class TopPostcodesCollector implements Processor<Windowed<String>, Long, Long, TopPostcodes> {
+
+    private final String storeName;
+    private final TimeWindows windows;
+    private final int size;
+
+    private ProcessorContext<Long, TopPostcodes> context;
+    private KeyValueStore<Long, TopPostcodes> store;
+
+    TopPostcodesCollector(String storeName, TimeWindows windows, int size) {
+        this.storeName = storeName;
+        this.windows = windows;
+        this.size = size;
+    }
+
+    @Override
+    public void init(ProcessorContext<Long, TopPostcodes> context) {
+        this.context = context;
+        this.store = context.getStateStore(storeName);
+        context.schedule(Duration.ofMillis(windows.size()), PunctuationType.STREAM_TIME, this::forwardClosedWindows);
+    }
+
+    @Override
+    public void process(Record<Windowed<String>, Long> record) {
+        if (record.value() == null) {
+            return;
+        }
+        long windowStart = record.key().window().start();
+        if (isClosed(windowStart, context.currentStreamTimeMs())) {
+            return;
+        }
+
+        TopPostcodes summary = store.get(windowStart);
+        if (summary == null) {
+            summary = new TopPostcodes(size);
+        }
+        summary.offer(record.key().key(), record.value());
+        store.put(windowStart, summary);
+    }
+
+    private void forwardClosedWindows(long streamTime) {
+        List<KeyValue<Long, TopPostcodes>> closed = new ArrayList<>();
+        try (KeyValueIterator<Long, TopPostcodes> iterator = store.all()) {
+            while (iterator.hasNext()) {
+                KeyValue<Long, TopPostcodes> window = iterator.next();
+                if (isClosed(window.key, streamTime)) {
+                    closed.add(window);
+                }
+            }
+        }
+        for (KeyValue<Long, TopPostcodes> window : closed) {
+            context.forward(new Record<>(window.key, window.value, window.key + windows.size()));
+            store.delete(window.key);
+        }
+    }
+
+    private boolean isClosed(long windowStart, long streamTime) {
+        return windowStart + windows.size() + windows.gracePeriodMs() <= streamTime;
+    }
+}
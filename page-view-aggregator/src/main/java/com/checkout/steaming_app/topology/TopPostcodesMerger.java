@@ -0,0 +1,77 @@
+package com.checkout.steaming_app.topology;
+
+import com.checkout.events.PostcodePageViewCount;
+import com.checkout.events.TopPostcodesEvent;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Second top-K stage. Receives the per-task summaries of a closed window, co-partitioned by window start, merges them
+ * into the queryable top postcodes store and forwards the merged ranking. Windows are dropped from the store once
+ * they fall out of {@code retention}.
+ */
+class TopPostcodesMerger implements Processor<Long, TopPostcodes, String, TopPostcodesEvent> {
+
+    private final String storeName;
+    private final int windowSizeSeconds;
+    private final Duration retention;
+
+    private ProcessorContext<String, TopPostcodesEvent> context;
+    private KeyValueStore<Long, TopPostcodes> store;
+
+    TopPostcodesMerger(String storeName, int windowSizeSeconds, Duration retention) {
+        this.storeName = storeName;
+        this.windowSizeSeconds = windowSizeSeconds;
+        this.retention = retention;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, TopPostcodesEvent> context) {
+        this.context = context;
+        this.store = context.getStateStore(storeName);
+        context.schedule(Duration.ofSeconds(windowSizeSeconds), PunctuationType.STREAM_TIME, this::dropExpiredWindows);
+    }
+
+    @Override
+    public void process(Record<Long, TopPostcodes> record) {
+        TopPostcodes merged = store.get(record.key());
+        if (merged == null) {
+            merged = record.value();
+        } else {
+            merged.merge(record.value());
+        }
+        store.put(record.key(), merged);
+
+        Instant windowStart = Instant.ofEpochMilli(record.key());
+        TopPostcodesEvent event = TopPostcodesEvent.newBuilder()
+                .setAggregateIntervalInSeconds(windowSizeSeconds)
+                .setAggregationWindow(windowStart)
+                .setTopPostcodes(merged.top().stream()
+                        .map(entry -> PostcodePageViewCount.newBuilder()
+                                .setPostcode(entry.getKey())
+                                .setPageViewCount(entry.getValue().intValue())
+                                .build())
+                        .toList())
+                .build();
+        context.forward(record.withKey(windowStart.toString()).withValue(event));
+    }
+
+    private void dropExpiredWindows(long streamTime) {
+        List<Long> expired = new ArrayList<>();
+        try (KeyValueIterator<Long, TopPostcodes> iterator = store.range(0L, streamTime - retention.toMillis())) {
+            while (iterator.hasNext()) {
+                expired.add(iterator.next().key);
+            }
+        }
+        expired.forEach(store::delete);
+    }
+}
@@ -0,0 +1,87 @@
+package com.checkout.steaming_app.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedMemoryRocksDBConfigTest {
+
+    @BeforeAll
+    static void loadRocksDB() {
+        RocksDB.loadLibrary();
+    }
+
+    @Test
+    void shouldApplySettingsAndShareCacheAcrossStores() {
+        RocksDbSettings settings = new RocksDbSettings();
+        settings.setCompactionStyle(CompactionStyle.LEVEL);
+        settings.setCompressionType(CompressionType.ZSTD_COMPRESSION);
+        settings.setWriteBufferBytes(4L * 1024 * 1024);
+        settings.setMaxWriteBuffers(3);
+        Map<String, Object> configs = configs(settings);
+
+        try (BloomFilter streamsFilter = new BloomFilter();
+             Options first = storeOptions(streamsFilter); Options second = storeOptions(streamsFilter)) {
+            BoundedMemoryRocksDBConfig firstSetter = new BoundedMemoryRocksDBConfig();
+            BoundedMemoryRocksDBConfig secondSetter = new BoundedMemoryRocksDBConfig();
+            firstSetter.setConfig("first-store", first, configs);
+            secondSetter.setConfig("second-store", second, configs);
+
+            assertThat(first.compactionStyle()).isEqualTo(CompactionStyle.LEVEL);
+            assertThat(first.compressionType()).isEqualTo(CompressionType.ZSTD_COMPRESSION);
+            assertThat(first.writeBufferSize()).isEqualTo(4L * 1024 * 1024);
+            assertThat(first.maxWriteBufferNumber()).isEqualTo(3);
+
+            assertThat(tableConfig(first)).extracting("blockCache").isNotNull()
+                    .isSameAs(BoundedMemoryRocksDBConfig.sharedCache());
+            assertThat(tableConfig(second)).extracting("blockCache")
+                    .isSameAs(BoundedMemoryRocksDBConfig.sharedCache());
+            assertThat(tableConfig(first).filterPolicy()).isInstanceOf(BloomFilter.class).isNotSameAs(streamsFilter);
+
+            firstSetter.close("first-store", first);
+            secondSetter.close("second-store", second);
+        }
+    }
+
+    @Test
+    void shouldRemoveTheStreamsBloomFilterWhenBitsPerKeyIsZero() {
+        RocksDbSettings settings = new RocksDbSettings();
+        settings.setBloomFilterBitsPerKey(0.0);
+
+        try (BloomFilter streamsFilter = new BloomFilter(); Options options = storeOptions(streamsFilter)) {
+            BoundedMemoryRocksDBConfig setter = new BoundedMemoryRocksDBConfig();
+            setter.setConfig("store", options, configs(settings));
+
+            assertThat(tableConfig(options).filterPolicy()).isNull();
+
+            setter.close("store", options);
+        }
+    }
+
+    private static Map<String, Object> configs(RocksDbSettings settings) {
+        Map<String, Object> configs = new HashMap<>();
+        BoundedMemoryRocksDBConfig.configure(configs, settings);
+        return configs;
+    }
+
+    /**
+     * Options as Kafka Streams passes them to the config setter, with a bloom filter already set.
+     */
+    private static Options storeOptions(BloomFilter streamsFilter) {
+        return new Options().setTableFormatConfig(new BlockBasedTableConfig().setFilterPolicy(streamsFilter));
+    }
+
+    private static BlockBasedTableConfig tableConfig(Options options) {
+        return (BlockBasedTableConfig) options.tableFormatConfig();
+    }
+}
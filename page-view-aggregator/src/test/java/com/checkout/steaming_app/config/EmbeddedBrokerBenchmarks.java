@@ -0,0 +1,165 @@
+package com.checkout.steaming_app.config;
+
+import com.checkout.events.AggregatedPageViewEvent;
+import com.checkout.events.PageViewEvent;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.IsolationLevel;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Topics, input and output checks shared by the benchmarks and tests that run the whole topology against an embedded
+ * broker.
+ */
+public final class EmbeddedBrokerBenchmarks {
+
+    static final String MOCK_SCHEMA_REGISTRY_URL = "mock://embedded-broker-benchmark";
+    static final int POSTCODES = 1_000;
+    // Recent timestamps, so that the broker's time based retention does not delete the input while it is read
+    static final Instant START = Instant.now().truncatedTo(ChronoUnit.HOURS);
+
+    private EmbeddedBrokerBenchmarks() {
+    }
+
+    /**
+     * Creates the topics of a run named {@code name} and a configuration reading and writing them.
+     */
+    public static KafkaStreamsConfig benchmarkConfig(EmbeddedKafkaBroker broker, Path stateDir, String name) {
+        String prefix = "benchmark." + name + ".page-view";
+        KafkaStreamsConfig config = new KafkaStreamsConfig();
+        config.setApplicationId("benchmark-" + name);
+        config.setStateDir(stateDir.resolve(name).toString());
+        config.setBootstrapServers(broker.getBrokersAsString());
+        config.setSchemaRegistryUrl(MOCK_SCHEMA_REGISTRY_URL);
+        config.setApplicationServer("localhost:8080");
+        config.setReplicationFactor(1);
+        config.setMinInsyncReplicas(1);
+        config.setPageViewInputTopic(prefix);
+        config.setPageViewOutputTopic(prefix + ".output");
+        config.setTopPostcodesOutputTopic(prefix + ".top-postcodes");
+        config.setDistinctUsersOutputTopic(prefix + ".distinct-users");
+        config.setLateEventsOutputTopic(prefix + ".late");
+        config.setDeadLetterTopic(prefix + ".dlq");
+        broker.addTopics(config.getPageViewInputTopic(), config.getPageViewOutputTopic(),
+                config.getTopPostcodesOutputTopic(), config.getDistinctUsersOutputTopic(),
+                config.getLateEventsOutputTopic());
+        return config;
+    }
+
+    /**
+     * Produces {@code events} page views spread over {@value #POSTCODES} postcodes, one millisecond apart from
+     * {@link #START}.
+     */
+    public static void produceEvents(EmbeddedKafkaBroker broker, String topic, int events) {
+        Map<String, Object> props = producerProps(broker);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+        props.put(ProducerConfig.ACKS_CONFIG, "1");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+
+        AtomicLong failedSends = new AtomicLong();
+        try (KafkaProducer<String, Object> producer = new KafkaProducer<>(props)) {
+            for (int i = 0; i < events; i++) {
+                String postcode = "PC" + (i % POSTCODES);
+                long timestamp = START.toEpochMilli() + i;
+                producer.send(new ProducerRecord<>(topic, null, timestamp, postcode, pageView(postcode, i, timestamp)),
+                        (metadata, ex) -> {
+                            if (ex != null) {
+                                failedSends.incrementAndGet();
+                            }
+                        });
+                if (i % 10_000 == 0) {
+                    producer.flush();
+                }
+            }
+        }
+        assertThat(failedSends).hasValue(0);
+    }
+
+    static Map<String, Object> producerProps(EmbeddedKafkaBroker broker) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+        props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, MOCK_SCHEMA_REGISTRY_URL);
+        return props;
+    }
+
+    static PageViewEvent pageView(String postcode, int userId, long timestamp) {
+        return PageViewEvent.newBuilder()
+                .setUserId(userId)
+                .setPostcode(postcode)
+                .setWebpage("/page")
+                .setTimestamp(timestamp)
+                .build();
+    }
+
+    /**
+     * A {@code read_committed} consumer of the counts, which skips the results of aborted transactions.
+     */
+    static KafkaConsumer<String, AggregatedPageViewEvent> countsConsumer(EmbeddedKafkaBroker broker) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, IsolationLevel.READ_COMMITTED.toString().toLowerCase(Locale.ROOT));
+        props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, MOCK_SCHEMA_REGISTRY_URL);
+
+        SpecificAvroSerde<AggregatedPageViewEvent> valueSerde = new SpecificAvroSerde<>();
+        valueSerde.configure(props, false);
+        return new KafkaConsumer<>(props, new StringDeserializer(), valueSerde.deserializer());
+    }
+
+    static long processedRecords(KafkaStreams streams) {
+        return streams.metrics().values().stream()
+                .filter(metric -> metric.metricName().group().equals("stream-thread-metrics"))
+                .filter(metric -> metric.metricName().name().equals("process-total"))
+                .map(Metric::metricValue)
+                .mapToLong(value -> ((Number) value).longValue())
+                .sum();
+    }
+
+    /**
+     * Reads the output topic from the beginning to its end offsets and sums the last count emitted for every
+     * postcode and window.
+     */
+    public static long totalCount(EmbeddedKafkaBroker broker, String topic) {
+        Map<String, Integer> latestCounts = new HashMap<>();
+        try (KafkaConsumer<String, AggregatedPageViewEvent> consumer = countsConsumer(broker)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(info -> new TopicPartition(topic, info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            while (partitions.stream().anyMatch(tp -> consumer.position(tp) < endOffsets.get(tp))) {
+                for (ConsumerRecord<String, AggregatedPageViewEvent> record : consumer.poll(Duration.ofMillis(200))) {
+                    latestCounts.put(record.key() + "@" + record.value().getAggregationWindow(),
+                            record.value().getPageViewCount());
+                }
+            }
+        }
+        return latestCounts.values().stream().mapToLong(Integer::longValue).sum();
+    }
+}
@@ -0,0 +1,155 @@
+package com.checkout.steaming_app.config;
+
+import com.checkout.events.AggregatedPageViewEvent;
+import com.checkout.steaming_app.dlq.DeadLetterPublisher;
+import com.checkout.steaming_app.topology.PageViewTopology;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.START;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.benchmarkConfig;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.countsConsumer;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.pageView;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.processedRecords;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.produceEvents;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.producerProps;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.totalCount;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput and latency of the {@link ProcessingGuarantee}s under each {@link TuningProfile} against an
+ * embedded broker. Throughput is measured over a backlog of {@code -Dbenchmark.events} (default 200,000) page views,
+ * latency as the time from sending a page view to a {@code read_committed} consumer seeing its count.
+ * Excluded from the default build; run with {@code mvn -pl page-view-aggregator -am test -Pbenchmark}.
+ */
+@EmbeddedKafka(partitions = 2)
+class ProcessingGuaranteeBenchmark {
+
+    private static final int EVENTS = Integer.getInteger("benchmark.events", 200_000);
+    private static final int PROBES = 50;
+    private static final long PROBE_SPACING_MS = 100;
+    private static final Duration DEADLINE = Duration.ofMinutes(10);
+
+    @TempDir
+    Path stateDir;
+
+    @Test
+    void compareProcessingGuarantees(EmbeddedKafkaBroker broker) throws Exception {
+        // Discarded, so that the first measured run does not also pay for class loading and JIT compilation
+        run(broker, "warm-up", TuningProfile.THROUGHPUT, ProcessingGuarantee.AT_LEAST_ONCE);
+
+        List<String> rows = new ArrayList<>();
+        for (TuningProfile profile : TuningProfile.values()) {
+            for (ProcessingGuarantee guarantee : ProcessingGuarantee.values()) {
+                String name = profile.name().toLowerCase() + "-" + guarantee.name().toLowerCase().replace('_', '-');
+                Result result = run(broker, name, profile, guarantee);
+                rows.add(String.format("%-12s %-18s %12.0f %10d %10d", profile, guarantee, result.eventsPerSecond,
+                        result.p50Ms, result.p99Ms));
+            }
+        }
+
+        System.out.printf("%n%-12s %-18s %12s %10s %10s%n", "profile", "guarantee", "events/sec", "p50 ms", "p99 ms");
+        rows.forEach(System.out::println);
+    }
+
+    private Result run(EmbeddedKafkaBroker broker, String name, TuningProfile profile, ProcessingGuarantee guarantee)
+            throws Exception {
+        KafkaStreamsConfig config = benchmarkConfig(broker, stateDir, "guarantee-" + name);
+        produceEvents(broker, config.getPageViewInputTopic(), EVENTS);
+        config.setTuningProfile(profile);
+        config.setProcessingGuarantee(guarantee);
+
+        StreamsBuilder builder = new StreamsBuilder();
+        new PageViewTopology(config, new SimpleMeterRegistry(), topic -> Map.of()).pageViewAggregationTopology(builder);
+        DeadLetterPublisher deadLetterPublisher = config.deadLetterPublisher(new SimpleMeterRegistry(), Clock.systemUTC());
+        Properties props = new Properties();
+        props.putAll(config.kafkaStreamsConfiguration(deadLetterPublisher).asProperties());
+
+        double eventsPerSecond;
+        List<Long> latenciesMs;
+        try (deadLetterPublisher; KafkaStreams streams = new KafkaStreams(builder.build(), props)) {
+            long start = System.nanoTime();
+            streams.start();
+            long deadline = start + DEADLINE.toNanos();
+            while (processedRecords(streams) < EVENTS) {
+                assertThat(System.nanoTime()).as("processing deadline").isLessThan(deadline);
+                Thread.sleep(10);
+            }
+            eventsPerSecond = EVENTS / ((System.nanoTime() - start) / 1e9);
+            latenciesMs = probeLatencies(broker, config);
+        }
+
+        assertThat(totalCount(broker, config.getPageViewOutputTopic())).isEqualTo(EVENTS + PROBES);
+        latenciesMs.sort(null);
+        return new Result(eventsPerSecond, percentile(latenciesMs, 0.5), percentile(latenciesMs, 0.99));
+    }
+
+    /**
+     * Sends {@value #PROBES} page views, each for a postcode of its own and after the backlog in event time, and
+     * returns how long each took to show up in the output topic.
+     */
+    private List<Long> probeLatencies(EmbeddedKafkaBroker broker, KafkaStreamsConfig config) throws Exception {
+        String outputTopic = config.getPageViewOutputTopic();
+        Map<String, Long> sentAtNanos = new HashMap<>();
+        List<Long> latenciesMs = new ArrayList<>();
+        try (KafkaConsumer<String, AggregatedPageViewEvent> consumer = countsConsumer(broker);
+             KafkaProducer<String, Object> producer = new KafkaProducer<>(producerProps(broker))) {
+            List<TopicPartition> partitions = consumer.partitionsFor(outputTopic).stream()
+                    .map(info -> new TopicPartition(outputTopic, info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            consumer.seekToEnd(partitions);
+            partitions.forEach(consumer::position);
+
+            long deadline = System.nanoTime() + DEADLINE.toNanos();
+            long nextProbeAt = System.nanoTime();
+            int sent = 0;
+            while (latenciesMs.size() < PROBES) {
+                assertThat(System.nanoTime()).as("probe deadline").isLessThan(deadline);
+                if (sent < PROBES && System.nanoTime() >= nextProbeAt) {
+                    String postcode = "PROBE-" + sent;
+                    long timestamp = START.toEpochMilli() + EVENTS + sent * PROBE_SPACING_MS;
+                    sentAtNanos.put(postcode, System.nanoTime());
+                    producer.send(new ProducerRecord<>(config.getPageViewInputTopic(), null, timestamp, postcode,
+                            pageView(postcode, sent, timestamp)));
+                    producer.flush();
+                    sent++;
+                    nextProbeAt += Duration.ofMillis(PROBE_SPACING_MS).toNanos();
+                }
+                for (ConsumerRecord<String, AggregatedPageViewEvent> record : consumer.poll(Duration.ofMillis(10))) {
+                    Long sentAt = sentAtNanos.remove(record.key());
+                    if (sentAt != null) {
+                        latenciesMs.add(Duration.ofNanos(System.nanoTime() - sentAt).toMillis());
+                    }
+                }
+            }
+        }
+        return latenciesMs;
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        return sorted.get((int) Math.ceil(quantile * sorted.size()) - 1);
+    }
+
+    private record Result(double eventsPerSecond, long p50Ms, long p99Ms) {
+    }
+}
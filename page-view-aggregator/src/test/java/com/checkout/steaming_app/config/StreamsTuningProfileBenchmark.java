@@ -0,0 +1,83 @@
+package com.checkout.steaming_app.config;
+
+import com.checkout.steaming_app.dlq.DeadLetterPublisher;
+import com.checkout.steaming_app.topology.PageViewTopology;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.benchmarkConfig;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.processedRecords;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.produceEvents;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.totalCount;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares end-to-end processing throughput of the {@link TuningProfile}s against an embedded broker.
+ * Excluded from the default build; run with {@code mvn -pl page-view-aggregator -am test -Pbenchmark}.
+ * The number of events can be changed with {@code -Dbenchmark.events=...}.
+ */
+@EmbeddedKafka(partitions = 2)
+class StreamsTuningProfileBenchmark {
+
+    private static final int EVENTS = Integer.getInteger("benchmark.events", 200_000);
+
+    @TempDir
+    Path stateDir;
+
+    @Test
+    void compareTuningProfiles(EmbeddedKafkaBroker broker) throws Exception {
+        Map<String, Double> eventsPerSecond = new HashMap<>();
+
+        StreamsTuning perRecordCommit = StreamsTuning.latency();
+        perRecordCommit.setCommitIntervalMs(1L);
+
+        eventsPerSecond.put("per-record commit", run(broker, "baseline", TuningProfile.LATENCY, perRecordCommit));
+        eventsPerSecond.put("LATENCY", run(broker, "latency", TuningProfile.LATENCY, StreamsTuning.latency()));
+        eventsPerSecond.put("THROUGHPUT", run(broker, "throughput", TuningProfile.THROUGHPUT, StreamsTuning.throughput()));
+
+        System.out.printf("%n%-20s %15s%n", "profile", "events/sec");
+        eventsPerSecond.forEach((profile, rate) -> System.out.printf("%-20s %15.0f%n", profile, rate));
+    }
+
+    private double run(EmbeddedKafkaBroker broker, String name, TuningProfile profile, StreamsTuning tuning)
+            throws Exception {
+        KafkaStreamsConfig config = benchmarkConfig(broker, stateDir, "tuning-" + name);
+        produceEvents(broker, config.getPageViewInputTopic(), EVENTS);
+        config.setTuningProfile(profile);
+        config.setThroughputProfile(tuning);
+        config.setLatencyProfile(tuning);
+
+        StreamsBuilder builder = new StreamsBuilder();
+        new PageViewTopology(config, new SimpleMeterRegistry(), topic -> Map.of()).pageViewAggregationTopology(builder);
+        DeadLetterPublisher deadLetterPublisher = config.deadLetterPublisher(new SimpleMeterRegistry(), Clock.systemUTC());
+        Properties props = new Properties();
+        props.putAll(config.kafkaStreamsConfiguration(deadLetterPublisher).asProperties());
+
+        double rate;
+        try (deadLetterPublisher; KafkaStreams streams = new KafkaStreams(builder.build(), props)) {
+            long start = System.nanoTime();
+            streams.start();
+            long deadline = start + Duration.ofMinutes(10).toNanos();
+            while (processedRecords(streams) < EVENTS) {
+                assertThat(System.nanoTime()).as("processing deadline").isLessThan(deadline);
+                Thread.sleep(10);
+            }
+            rate = EVENTS / ((System.nanoTime() - start) / 1e9);
+        }
+
+        assertThat(totalCount(broker, config.getPageViewOutputTopic())).isEqualTo(EVENTS);
+        return rate;
+    }
+}
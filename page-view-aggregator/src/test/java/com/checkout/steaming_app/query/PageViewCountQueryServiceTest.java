@@ -0,0 +1,172 @@
+package com.checkout.steaming_app.query;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.KafkaStreamsConfig;
+import com.checkout.steaming_app.topology.PageViewTopology;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.StreamsMetadata;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static com.checkout.steaming_app.topology.PageViewTopology.STATE_STORE_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PageViewCountQueryServiceTest {
+
+    private static final String INPUT_TOPIC = "test.streaming.page-view";
+    private static final String MOCK_SCHEMA_REGISTRY_URL = "mock://query-test-schema-registry";
+    private static final HostInfo LOCAL_HOST = new HostInfo("localhost", 8080);
+    private static final Instant WINDOW_START = Instant.parse("2025-01-01T10:00:00Z");
+
+    private TopologyTestDriver testDriver;
+    private TestInputTopic<String, PageViewEvent> inputTopic;
+    private KafkaStreams kafkaStreams;
+    private PageViewCountQueryService queryService;
+
+    @BeforeEach
+    void setUp() {
+        KafkaStreamsConfig kafkaConfig = new KafkaStreamsConfig();
+        kafkaConfig.setPageViewInputTopic(INPUT_TOPIC);
+        kafkaConfig.setSchemaRegistryUrl(MOCK_SCHEMA_REGISTRY_URL);
+        kafkaConfig.setPageViewOutputTopic("test.streaming.page-view.output");
+        kafkaConfig.setTopPostcodesOutputTopic("test.streaming.page-view.top-postcodes");
+        kafkaConfig.setDistinctUsersOutputTopic("test.streaming.page-view.distinct-users");
+        kafkaConfig.setLateEventsOutputTopic("test.streaming.page-view.late");
+
+        StreamsBuilder streamsBuilder = new StreamsBuilder();
+        new PageViewTopology(kafkaConfig, new SimpleMeterRegistry(), topic -> Map.of()).pageViewAggregationTopology(streamsBuilder);
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "query-test-app");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, SpecificAvroSerde.class);
+        props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, MOCK_SCHEMA_REGISTRY_URL);
+        testDriver = new TopologyTestDriver(streamsBuilder.build(), props);
+
+        SpecificAvroSerde<PageViewEvent> valueSerde = new SpecificAvroSerde<>();
+        valueSerde.configure(Map.of(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, MOCK_SCHEMA_REGISTRY_URL), false);
+        inputTopic = testDriver.createInputTopic(INPUT_TOPIC, Serdes.String().serializer(), valueSerde.serializer());
+
+        ReadOnlyWindowStore<String, Long> store = testDriver.getWindowStore(STATE_STORE_NAME);
+        kafkaStreams = mock(KafkaStreams.class);
+        when(kafkaStreams.store(ArgumentMatchers.<StoreQueryParameters<ReadOnlyWindowStore<String, Long>>>any()))
+                .thenReturn(store);
+
+        StreamsBuilderFactoryBean factoryBean = mock(StreamsBuilderFactoryBean.class);
+        when(factoryBean.getKafkaStreams()).thenReturn(kafkaStreams);
+        queryService = new PageViewCountQueryService(factoryBean, LOCAL_HOST);
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void shouldServeLatestWindowsOfLocallyHostedPostcodeNewestFirst() {
+        ownedBy("SW1", LOCAL_HOST);
+        for (int minute = 0; minute < 5; minute++) {
+            for (int view = 0; view <= minute; view++) {
+                pipePageViewEvent("SW1", WINDOW_START.plusSeconds(minute * 60L + view));
+            }
+        }
+
+        assertThat(queryService.countsForPostcode("SW1", null, null, 3)).containsExactly(
+                new WindowedPageViewCount("SW1", WINDOW_START.plusSeconds(240), 5),
+                new WindowedPageViewCount("SW1", WINDOW_START.plusSeconds(180), 4),
+                new WindowedPageViewCount("SW1", WINDOW_START.plusSeconds(120), 3));
+
+        assertThat(queryService.countsForPostcode("SW1", WINDOW_START, WINDOW_START.plusSeconds(60), 10))
+                .extracting(WindowedPageViewCount::pageViewCount)
+                .containsExactly(2L, 1L);
+    }
+
+    @Test
+    void shouldServeAllPostcodesOfWindowFromEveryHostingInstance() {
+        StreamsMetadata localInstance = activeInstance(LOCAL_HOST);
+        when(kafkaStreams.streamsMetadataForStore(STATE_STORE_NAME)).thenReturn(List.of(localInstance));
+        pipePageViewEvent("SW1", WINDOW_START);
+        pipePageViewEvent("SW1", WINDOW_START.plusSeconds(10));
+        pipePageViewEvent("EC1", WINDOW_START.plusSeconds(20));
+        pipePageViewEvent("EC1", WINDOW_START.plusSeconds(70));
+
+        assertThat(queryService.countsForWindow(WINDOW_START, false)).containsExactly(
+                new WindowedPageViewCount("EC1", WINDOW_START, 1),
+                new WindowedPageViewCount("SW1", WINDOW_START, 2));
+    }
+
+    @Test
+    void shouldSkipInstancesHostingOnlyStandbysOfTheStore() {
+        // Nothing listens there, so a query forwarded to it would fail
+        StreamsMetadata standbyInstance = mock(StreamsMetadata.class);
+        when(standbyInstance.hostInfo()).thenReturn(new HostInfo("localhost", 1));
+        when(standbyInstance.stateStoreNames()).thenReturn(Set.of());
+        when(standbyInstance.standbyStateStoreNames()).thenReturn(Set.of(STATE_STORE_NAME));
+        StreamsMetadata localInstance = activeInstance(LOCAL_HOST);
+        when(kafkaStreams.streamsMetadataForStore(STATE_STORE_NAME))
+                .thenReturn(List.of(standbyInstance, localInstance));
+        pipePageViewEvent("SW1", WINDOW_START);
+
+        assertThat(queryService.countsForWindow(WINDOW_START, false)).containsExactly(
+                new WindowedPageViewCount("SW1", WINDOW_START, 1));
+    }
+
+    @Test
+    void shouldRejectQueryWhilePostcodeIsNotHosted() {
+        when(kafkaStreams.queryMetadataForKey(eq(STATE_STORE_NAME), eq("SW1"), ArgumentMatchers.<Serializer<String>>any()))
+                .thenReturn(KeyQueryMetadata.NOT_AVAILABLE);
+
+        assertThatThrownBy(() -> queryService.countsForPostcode("SW1", null, null, 1))
+                .isInstanceOf(InvalidStateStoreException.class);
+    }
+
+    private static StreamsMetadata activeInstance(HostInfo host) {
+        StreamsMetadata instance = mock(StreamsMetadata.class);
+        when(instance.hostInfo()).thenReturn(host);
+        when(instance.stateStoreNames()).thenReturn(Set.of(STATE_STORE_NAME));
+        return instance;
+    }
+
+    private void ownedBy(String postcode, HostInfo host) {
+        when(kafkaStreams.queryMetadataForKey(eq(STATE_STORE_NAME), eq(postcode), ArgumentMatchers.<Serializer<String>>any()))
+                .thenReturn(new KeyQueryMetadata(host, Set.of(), 0));
+    }
+
+    private void pipePageViewEvent(String postcode, Instant timestamp) {
+        PageViewEvent event = PageViewEvent.newBuilder()
+                .setUserId(1)
+                .setPostcode(postcode)
+                .setWebpage("/home")
+                .setTimestamp(timestamp.toEpochMilli())
+                .build();
+        inputTopic.pipeInput(postcode, event, timestamp);
+    }
+}
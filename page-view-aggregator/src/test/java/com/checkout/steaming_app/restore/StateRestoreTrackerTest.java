@@ -0,0 +1,64 @@
+package com.checkout.steaming_app.restore;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.health.contributor.Status;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StateRestoreTrackerTest {
+
+    private static final TopicPartition COUNTS_0 = new TopicPartition("app-counts-changelog", 0);
+    private static final TopicPartition COUNTS_1 = new TopicPartition("app-counts-changelog", 1);
+
+    private final Clock clock = mock(Clock.class);
+    private StateRestoreTracker tracker;
+    private StateRestoreHealthIndicator healthIndicator;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new StateRestoreTracker(clock);
+        healthIndicator = new StateRestoreHealthIndicator(tracker);
+    }
+
+    @Test
+    void shouldReportProgressRateAndEtaWhileRestoring() {
+        when(clock.millis()).thenReturn(0L);
+        tracker.onRestoreStart(COUNTS_0, "counts", 100, 10_100);
+        tracker.onRestoreStart(COUNTS_1, "counts", 0, 20_000);
+        assertThat(tracker.progress().eta()).isEmpty();
+
+        when(clock.millis()).thenReturn(2_000L);
+        tracker.onBatchRestored(COUNTS_0, "counts", 5_100, 5_000);
+        tracker.onBatchRestored(COUNTS_1, "counts", 5_000, 5_000);
+
+        RestoreProgress progress = tracker.progress();
+        assertThat(progress.partitions()).isEqualTo(2);
+        assertThat(progress.remainingRecords()).isEqualTo(20_000);
+        assertThat(progress.recordsPerSecond()).isEqualTo(5_000);
+        assertThat(progress.eta()).contains(Duration.ofSeconds(4));
+        assertThat(healthIndicator.health(true).getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+    }
+
+    @Test
+    void shouldBeUpOnceAllPartitionsAreRestoredOrSuspended() {
+        when(clock.millis()).thenReturn(0L);
+        tracker.onRestoreStart(COUNTS_0, "counts", 0, 1_000);
+        tracker.onRestoreStart(COUNTS_1, "counts", 0, 1_000);
+
+        when(clock.millis()).thenReturn(1_000L);
+        tracker.onBatchRestored(COUNTS_0, "counts", 1_000, 1_000);
+        tracker.onRestoreEnd(COUNTS_0, "counts", 1_000);
+        tracker.onRestoreSuspended(COUNTS_1, "counts", 0);
+
+        assertThat(tracker.progress().restoring()).isFalse();
+        assertThat(tracker.progress().recordsPerSecond()).isZero();
+        assertThat(healthIndicator.health(true).getStatus()).isEqualTo(Status.UP);
+    }
+}
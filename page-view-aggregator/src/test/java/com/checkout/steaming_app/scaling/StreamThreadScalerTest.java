@@ -0,0 +1,129 @@
+package com.checkout.steaming_app.scaling;
+
+import com.checkout.steaming_app.config.KafkaStreamsConfig;
+import com.checkout.steaming_app.config.ThreadScalingSettings;
+import com.checkout.steaming_app.config.TuningProfile;
+import com.checkout.steaming_app.dlq.DeadLetterPublisher;
+import com.checkout.steaming_app.topology.PageViewTopology;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.benchmarkConfig;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.produceEvents;
+import static com.checkout.steaming_app.config.EmbeddedBrokerBenchmarks.totalCount;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.awaitility.Awaitility.await;
+
+@EmbeddedKafka(partitions = 4)
+class StreamThreadScalerTest {
+
+    private static final int EVENTS = 50_000;
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    @TempDir
+    Path stateDir;
+
+    @Test
+    void addsAThreadWhileBehindAndRemovesItOnceCaughtUp(EmbeddedKafkaBroker broker) throws Exception {
+        KafkaStreamsConfig config = benchmarkConfig(broker, stateDir, "thread-scaling");
+        produceEvents(broker, config.getPageViewInputTopic(), EVENTS);
+        // Single-record fetches and no record cache, so that the backlog takes a while to drain
+        config.setTuningProfile(TuningProfile.LATENCY);
+        config.getLatencyProfile().setNumStreamThreads(1);
+        ThreadScalingSettings settings = config.getThreadScaling();
+        settings.setEnabled(true);
+        settings.setMaxThreads(2);
+        settings.setScaleUpLagRecords(1_000L);
+        settings.setTargetDrainMs(0L);
+        settings.setScaleDownLagRecords(100L);
+        settings.setScaleUpChecks(2);
+        settings.setScaleDownChecks(2);
+        settings.setCooldownMs(0L);
+
+        StreamsBuilder builder = new StreamsBuilder();
+        new PageViewTopology(config, new SimpleMeterRegistry(), topic -> Map.of()).pageViewAggregationTopology(builder);
+        DeadLetterPublisher deadLetterPublisher = config.deadLetterPublisher(new SimpleMeterRegistry(), Clock.systemUTC());
+        Properties props = new Properties();
+        props.putAll(config.kafkaStreamsConfiguration(deadLetterPublisher).asProperties());
+
+        try (deadLetterPublisher; KafkaStreams streams = new KafkaStreams(builder.build(), props)) {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            StreamThreadScaler scaler = new StreamThreadScaler(() -> streams, settings, Clock.systemUTC());
+            scaler.bindTo(meterRegistry);
+            streams.start();
+
+            ScalingDecision scaleUp = awaitDecision(scaler);
+            assertThat(scaleUp.action()).isEqualTo(ScalingAction.SCALE_UP);
+            assertThat(scaleUp.lag()).isGreaterThan(1_000);
+            assertThat(streams.metadataForLocalThreads()).hasSize(2);
+
+            ScalingDecision scaleDown = awaitDecision(scaler);
+            assertThat(scaleDown.action()).isEqualTo(ScalingAction.SCALE_DOWN);
+            assertThat(scaleDown.lag()).isLessThan(100);
+            assertThat(streams.metadataForLocalThreads()).hasSize(1);
+
+            ThreadScalingStatus status = scaler.status();
+            assertThat(status.threads()).isEqualTo(1);
+            assertThat(status.decisions()).containsExactly(scaleUp, scaleDown);
+            assertThat(status.lagByPartition().keySet())
+                    .anyMatch(partition -> partition.startsWith(config.getPageViewInputTopic() + "-"))
+                    .noneMatch(partition -> partition.startsWith(config.getPageViewInputTopic().replace('.', '_')));
+            assertThat(meterRegistry.get(StreamThreadScaler.SCALING_METER).counters())
+                    .allSatisfy(counter -> assertThat(counter.count()).isEqualTo(1));
+
+            // Adding and removing the thread moved tasks between threads without losing or repeating a page view
+            await().atMost(TIMEOUT).until(() -> totalCount(broker, config.getPageViewOutputTopic()) == EVENTS);
+        }
+    }
+
+    @Test
+    void keysLagByTheReportedTopicSoDotsAndUnderscoresDoNotCollide() {
+        String client = "app-StreamThread-1-consumer";
+        List<Metric> metrics = List.of(
+                recordsLag(client, "a.b", 0, 10),
+                // Reported again under the underscored name, alongside a topic that has that name
+                recordsLag(client, "a_b", 0, 10),
+                recordsLag(client, "a_b", 1, 3),
+                recordsLag("app-StreamThread-1-restore-consumer", "a.b", 1, 50),
+                new StubMetric(new MetricName("process-rate", "stream-thread-metrics", "", Map.of()), 4.0));
+
+        LagSample sample = StreamThreadScaler.sample(metrics,
+                Set.of(new TopicPartition("a.b", 0), new TopicPartition("a_b", 1)));
+
+        assertThat(sample.lagByPartition()).containsExactly(entry("a.b-0", 10L), entry("a_b-1", 3L));
+        assertThat(sample.recordsPerSecond()).isEqualTo(4.0);
+    }
+
+    private static Metric recordsLag(String clientId, String topic, int partition, long lag) {
+        return new StubMetric(new MetricName("records-lag", "consumer-fetch-manager-metrics", "",
+                Map.of("client-id", clientId, "topic", topic, "partition", String.valueOf(partition))), lag);
+    }
+
+    private record StubMetric(MetricName metricName, Object metricValue) implements Metric {
+    }
+
+    private static ScalingDecision awaitDecision(StreamThreadScaler scaler) {
+        return await().atMost(TIMEOUT)
+                .pollInterval(Duration.ofMillis(200))
+                .until(scaler::check, Optional::isPresent)
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,248 @@
+package com.checkout.steaming_app.sink;
+
+import com.checkout.events.AggregatedPageViewEvent;
+import com.checkout.events.PageViewEvent;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes the same records the way the S3 sink connectors do under the profiles in
+ * {@code page-view-sink/connectors/profiles}, into a local directory standing in for the bucket, and compares the
+ * number of objects and bytes written. Parquet needs Hadoop on the classpath, so the objects of the parquet profile are
+ * counted but not written.
+ */
+class S3SinkProfileTest {
+
+    private static final Path PROFILES = Path.of(System.getProperty("sink.profiles.dir",
+            "../page-view-sink/connectors/profiles"));
+    private static final DateTimeFormatter MINUTE_PATH =
+            DateTimeFormatter.ofPattern("'year'=yyyy/'month'=MM/'day'=dd/'hour'=HH/'minute'=mm").withZone(ZoneOffset.UTC);
+    private static final Instant START = Instant.parse("2025-01-15T10:00:00Z");
+    private static final int MINUTES = 30;
+    private static final int POSTCODES = 500;
+    private static final int PAGE_VIEWS = 50_000;
+
+    @TempDir
+    Path bucket;
+
+    @Test
+    void batchedAvroWritesFarFewerObjectsAndBytesThanJson() throws IOException {
+        LocalBucket json = aggregatedAndRawOutput("json");
+        LocalBucket avro = aggregatedAndRawOutput("avro");
+
+        // One file per minute of counts, as each new minute rotates them, and one per postcode of page views, as
+        // neither reaches flush.size and rotate.interval.ms only applies to time based partitioners
+        assertThat(avro.objects()).isEqualTo(MINUTES + POSTCODES);
+        assertThat(avro.objects()).isLessThan(json.objects() / 10);
+        assertThat(avro.bytes()).isLessThan(json.bytes() / 2);
+    }
+
+    @Test
+    void parquetBatchesLikeAvro() throws IOException {
+        assertThat(aggregatedAndRawOutput("parquet").objects()).isEqualTo(aggregatedAndRawOutput("avro").objects());
+    }
+
+    @Test
+    void profilesDefineEverySubstitutedSetting() throws IOException {
+        try (Stream<Path> profiles = Files.list(PROFILES)) {
+            assertThat(profiles.map(this::loadProfile)).allSatisfy(profile -> assertThat(profile.stringPropertyNames())
+                    .contains("SINK_FORMAT_CLASS", "SINK_FLUSH_SIZE", "SINK_ROTATE_INTERVAL_MS",
+                            "SINK_ROTATE_SCHEDULE_INTERVAL_MS", "SINK_PARQUET_CODEC", "SINK_AVRO_CODEC",
+                            "SINK_COMPRESSION_TYPE", "SINK_PART_SIZE"));
+        }
+    }
+
+    /**
+     * Sinks the final per minute counts, partitioned by aggregation window, and the raw page views, partitioned by
+     * postcode, as {@code s3-sink-connector.json} and {@code page-view-raw-s3-sink-connector.json} do.
+     */
+    private LocalBucket aggregatedAndRawOutput(String profileName) throws IOException {
+        Properties profile = loadProfile(PROFILES.resolve(profileName + ".env"));
+        LocalBucket output = new LocalBucket(bucket.resolve(profileName));
+
+        Random random = new Random(42);
+        LocalBucket.Connector aggregated = output.connector(profile, true);
+        for (int minute = 0; minute < MINUTES; minute++) {
+            Instant window = START.plus(Duration.ofMinutes(minute));
+            for (int postcode = 0; postcode < POSTCODES; postcode++) {
+                aggregated.write(MINUTE_PATH.format(window), window.toEpochMilli(), new AggregatedPageViewEvent(
+                        postcode(postcode), 1 + random.nextInt(500), 60, window));
+            }
+        }
+        aggregated.close();
+
+        LocalBucket.Connector raw = output.connector(profile, false);
+        long spacingMs = Duration.ofMinutes(MINUTES).toMillis() / PAGE_VIEWS;
+        for (int i = 0; i < PAGE_VIEWS; i++) {
+            long timestamp = START.toEpochMilli() + i * spacingMs;
+            String postcode = postcode(random.nextInt(POSTCODES));
+            raw.write("postcode=" + postcode, timestamp, new PageViewEvent(
+                    random.nextInt(100_000), postcode, "/products/" + random.nextInt(200), timestamp));
+        }
+        raw.close();
+        return output;
+    }
+
+    private Properties loadProfile(Path path) {
+        Properties profile = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            profile.load(reader);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read sink profile " + path, e);
+        }
+        return profile;
+    }
+
+    private static String postcode(int index) {
+        return "PC" + index;
+    }
+
+    private enum Format {
+        JSON, AVRO, PARQUET
+    }
+
+    /**
+     * Counts the objects and bytes the connectors write, each reading a single Kafka partition.
+     */
+    private static class LocalBucket {
+
+        private final Path root;
+        private long objects;
+        private long bytes;
+
+        LocalBucket(Path root) {
+            this.root = root;
+        }
+
+        Connector connector(Properties profile, boolean timeBasedPartitioner) {
+            return new Connector(profile, timeBasedPartitioner);
+        }
+
+        long objects() {
+            return objects;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        /**
+         * Keeps one open file per partition directory, and commits all of them once {@code flush.size} records have
+         * been written since the last commit. With a time based partitioner they are also committed when a record
+         * falls into another directory, or is {@code rotate.interval.ms} past the first record since the last
+         * commit; other partitioners ignore {@code rotate.interval.ms}. The files still open at the end are committed
+         * as {@code rotate.schedule.interval.ms} would.
+         */
+        private class Connector {
+
+            private final Format format;
+            private final CodecFactory avroCodec;
+            private final int flushSize;
+            private final long rotateIntervalMs;
+            private final Map<String, OpenFile> openFiles = new HashMap<>();
+            private String currentPartition;
+            private long baseTimestamp;
+            private int records;
+
+            Connector(Properties profile, boolean timeBasedPartitioner) {
+                String formatClass = profile.getProperty("SINK_FORMAT_CLASS");
+                this.format = formatClass.endsWith("JsonFormat") ? Format.JSON
+                        : formatClass.endsWith("AvroFormat") ? Format.AVRO : Format.PARQUET;
+                this.avroCodec = CodecFactory.fromString(profile.getProperty("SINK_AVRO_CODEC"));
+                this.flushSize = Integer.parseInt(profile.getProperty("SINK_FLUSH_SIZE"));
+                this.rotateIntervalMs = timeBasedPartitioner
+                        ? Long.parseLong(profile.getProperty("SINK_ROTATE_INTERVAL_MS")) : -1;
+            }
+
+            void write(String partition, long timestamp, SpecificRecord record) throws IOException {
+                if (rotateIntervalMs > 0 && currentPartition != null
+                        && (!partition.equals(currentPartition) || timestamp - baseTimestamp >= rotateIntervalMs)) {
+                    close();
+                }
+                if (openFiles.isEmpty()) {
+                    baseTimestamp = timestamp;
+                }
+                currentPartition = partition;
+
+                openFiles.computeIfAbsent(partition, p -> new OpenFile()).append(record);
+                if (++records >= flushSize) {
+                    close();
+                }
+            }
+
+            void close() throws IOException {
+                for (Map.Entry<String, OpenFile> file : openFiles.entrySet()) {
+                    commit(file.getKey(), file.getValue());
+                }
+                openFiles.clear();
+                currentPartition = null;
+                records = 0;
+            }
+
+            private void commit(String partition, OpenFile file) throws IOException {
+                objects++;
+                if (format == Format.PARQUET) {
+                    return;
+                }
+                byte[] content = file.finish();
+                Path object = root.resolve(partition)
+                        .resolve("object-" + objects + (format == Format.JSON ? ".json" : ".avro"));
+                Files.createDirectories(object.getParent());
+                Files.write(object, content);
+                bytes += content.length;
+            }
+
+            private class OpenFile {
+
+                private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                private DataFileWriter<SpecificRecord> avroWriter;
+
+                void append(SpecificRecord record) throws IOException {
+                    SpecificDatumWriter<SpecificRecord> datumWriter = new SpecificDatumWriter<>(record.getSchema());
+                    if (format == Format.JSON) {
+                        Encoder encoder = EncoderFactory.get().jsonEncoder(record.getSchema(), content);
+                        datumWriter.write(record, encoder);
+                        encoder.flush();
+                        content.write('\n');
+                    } else if (format == Format.AVRO) {
+                        if (avroWriter == null) {
+                            avroWriter = new DataFileWriter<>(datumWriter).setCodec(avroCodec);
+                            avroWriter.create(record.getSchema(), content);
+                        }
+                        avroWriter.append(record);
+                    }
+                }
+
+                byte[] finish() throws IOException {
+                    if (avroWriter != null) {
+                        avroWriter.close();
+                    }
+                    return content.toByteArray();
+                }
+            }
+        }
+    }
+}
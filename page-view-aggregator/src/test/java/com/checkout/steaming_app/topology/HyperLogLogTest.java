@@ -0,0 +1,84 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+class HyperLogLogTest {
+
+    private static final int PRECISION = 12;
+    /** Three standard errors at precision 12. */
+    private static final double MAX_ERROR_PERCENT = 5;
+    private static final int DENSE_BYTES = 2 + (1 << PRECISION);
+
+    @Test
+    void estimatesWithinThreeStandardErrors() {
+        for (int cardinality : new int[]{1, 100, 1_000, 10_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = sketch(0, cardinality);
+            // Repeated values leave the estimate unchanged
+            sketch.merge(sketch(0, cardinality));
+
+            assertThat(sketch.estimate()).as("estimate of %d values", cardinality)
+                    .isCloseTo(cardinality, withinPercentage(MAX_ERROR_PERCENT));
+        }
+    }
+
+    @Test
+    void mergesSparseAndDenseSketchesIntoTheirUnion() {
+        HyperLogLog sparse = HyperLogLog.fromByteArray(sketch(1_000_000, 500).toByteArray());
+        HyperLogLog dense = HyperLogLog.fromByteArray(sketch(0, 50_000).toByteArray());
+
+        byte[] sparseIntoDense = HyperLogLog.fromByteArray(dense.toByteArray()).merge(sparse).toByteArray();
+        byte[] denseIntoSparse = HyperLogLog.fromByteArray(sparse.toByteArray()).merge(dense).toByteArray();
+
+        assertThat(denseIntoSparse).isEqualTo(sparseIntoDense).hasSize(DENSE_BYTES);
+        assertThat(HyperLogLog.fromByteArray(sparseIntoDense).estimate())
+                .isCloseTo(50_500, withinPercentage(MAX_ERROR_PERCENT));
+        assertThatThrownBy(() -> sparse.merge(new HyperLogLog(PRECISION + 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void roundTripsThroughTheSparseAndDenseForms() {
+        HyperLogLog empty = new HyperLogLog(PRECISION);
+        HyperLogLog sparse = sketch(0, 500);
+        HyperLogLog dense = sketch(0, 50_000);
+
+        assertThat(empty.toByteArray()).hasSize(2 + Integer.BYTES);
+        assertThat(sparse.toByteArray()).hasSizeLessThan(DENSE_BYTES);
+        assertThat(dense.toByteArray()).hasSize(DENSE_BYTES);
+        for (HyperLogLog sketch : new HyperLogLog[]{empty, sparse, dense}) {
+            byte[] bytes = HyperLogLog.serde().serializer().serialize("topic", sketch);
+            HyperLogLog read = HyperLogLog.serde().deserializer().deserialize("topic", bytes);
+
+            assertThat(read.precision()).isEqualTo(PRECISION);
+            assertThat(read.estimate()).isEqualTo(sketch.estimate());
+            assertThat(read.toByteArray()).isEqualTo(bytes);
+        }
+    }
+
+    @Test
+    void rejectsMalformedSketches() {
+        byte[] truncated = sketch(0, 50_000).toByteArray();
+        byte[] unknownEncoding = {PRECISION, 2};
+        byte[] unsupportedPrecision = {HyperLogLog.MAX_PRECISION + 1, 0};
+
+        for (byte[] bytes : new byte[][]{Arrays.copyOf(truncated, 100), unknownEncoding,
+                unsupportedPrecision}) {
+            assertThatThrownBy(() -> HyperLogLog.fromByteArray(bytes)).isInstanceOf(SerializationException.class);
+        }
+    }
+
+    private static HyperLogLog sketch(long first, int count) {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (long value = first; value < first + count; value++) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+}
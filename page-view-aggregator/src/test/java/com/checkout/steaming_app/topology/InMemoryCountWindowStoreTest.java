@@ -0,0 +1,183 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.processor.StateRestoreCallback;
+import org.apache.kafka.streams.processor.StateStoreContext;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class InMemoryCountWindowStoreTest {
+
+    private static final long WINDOW_SIZE = 60_000;
+    private static final long RETENTION = 10 * WINDOW_SIZE;
+    private static final long WINDOW = 1_735_725_600_000L;
+
+    private InMemoryCountWindowStore store;
+    private StateRestoreCallback restoreCallback;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryCountWindowStore("counts", RETENTION, WINDOW_SIZE);
+        StateStoreContext context = mock(StateStoreContext.class);
+        store.init(context, store);
+
+        ArgumentCaptor<StateRestoreCallback> callback = ArgumentCaptor.forClass(StateRestoreCallback.class);
+        verify(context).register(eq(store), callback.capture());
+        restoreCallback = callback.getValue();
+    }
+
+    @Test
+    void shouldReturnLatestCountPerKeyAndWindow() {
+        store.put(key("SW1"), count(1, WINDOW + 5), WINDOW);
+        store.put(key("SW1"), count(2, WINDOW + 9), WINDOW);
+        store.put(key("SW1"), count(7, WINDOW + WINDOW_SIZE), WINDOW + WINDOW_SIZE);
+        store.put(key("EC1"), count(3, WINDOW + 1), WINDOW);
+
+        assertThat(countOf(store.fetch(key("SW1"), WINDOW))).isEqualTo(ValueAndTimestamp.make(2L, WINDOW + 9));
+        assertThat(countOf(store.fetch(key("SW1"), WINDOW + WINDOW_SIZE))).isEqualTo(
+                ValueAndTimestamp.make(7L, WINDOW + WINDOW_SIZE));
+        assertThat(countOf(store.fetch(key("EC1"), WINDOW))).isEqualTo(ValueAndTimestamp.make(3L, WINDOW + 1));
+        assertThat(store.fetch(key("EC1"), WINDOW + WINDOW_SIZE)).isNull();
+        assertThat(store.fetch(key("N1"), WINDOW)).isNull();
+    }
+
+    @Test
+    void shouldIterateWindowsInTimeOrderAndKeysInByteOrder() {
+        for (long window = WINDOW; window < WINDOW + 3 * WINDOW_SIZE; window += WINDOW_SIZE) {
+            store.put(key("SW1"), count(1, window), window);
+            store.put(key("EC1"), count(2, window), window);
+        }
+
+        try (WindowStoreIterator<byte[]> iterator = store.backwardFetch(key("SW1"), WINDOW, WINDOW + WINDOW_SIZE)) {
+            assertThat(iterator.next().key).isEqualTo(WINDOW + WINDOW_SIZE);
+            assertThat(iterator.next().key).isEqualTo(WINDOW);
+            assertThat(iterator.hasNext()).isFalse();
+        }
+
+        List<String> windowedKeys = new ArrayList<>();
+        try (KeyValueIterator<Windowed<Bytes>, byte[]> iterator = store.fetchAll(WINDOW, WINDOW + WINDOW_SIZE)) {
+            iterator.forEachRemaining(entry -> windowedKeys.add(
+                    new String(entry.key.key().get()) + "@" + (entry.key.window().start() - WINDOW)));
+        }
+        assertThat(windowedKeys).containsExactly("EC1@0", "SW1@0", "EC1@60000", "SW1@60000");
+    }
+
+    @Test
+    void shouldDropWindowsOutsideRetention() {
+        store.put(key("SW1"), count(1, WINDOW), WINDOW);
+        store.put(key("SW1"), count(1, WINDOW + RETENTION), WINDOW + RETENTION);
+
+        assertThat(store.fetch(key("SW1"), WINDOW)).isNull();
+        assertThat(store.fetch(key("SW1"), WINDOW + RETENTION)).isNotNull();
+
+        // A late write to the expired window is ignored
+        store.put(key("SW1"), count(2, WINDOW), WINDOW);
+        assertThat(store.fetch(key("SW1"), WINDOW)).isNull();
+    }
+
+    @Test
+    void shouldRestoreCountsFromChangelogRecords() {
+        restoreCallback.restore(changelogKey("SW1", WINDOW), count(4, WINDOW + 2));
+        restoreCallback.restore(changelogKey("EC1", WINDOW), count(1, WINDOW + 3));
+        restoreCallback.restore(changelogKey("EC1", WINDOW), null);
+
+        assertThat(countOf(store.fetch(key("SW1"), WINDOW))).isEqualTo(ValueAndTimestamp.make(4L, WINDOW + 2));
+        assertThat(store.fetch(key("EC1"), WINDOW)).isNull();
+    }
+
+    @Test
+    void shouldRestoreTheChangelogOfTheRocksDBStore() {
+        StreamsBuilder builder = new StreamsBuilder();
+        builder.stream("page-views", Consumed.with(Serdes.String(), Serdes.String()))
+                .groupByKey()
+                .windowedBy(TimeWindows.ofSizeWithNoGrace(Duration.ofMillis(WINDOW_SIZE)))
+                .count(Materialized.<String, Long>as(Stores.persistentTimestampedWindowStore("rocksdb-counts",
+                                Duration.ofMillis(RETENTION), Duration.ofMillis(WINDOW_SIZE), false))
+                        .withKeySerde(Serdes.String()));
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "test-app");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATESTORE_CACHE_MAX_BYTES_CONFIG, 0);
+
+        List<TestRecord<byte[], byte[]>> changelog;
+        try (TopologyTestDriver driver = new TopologyTestDriver(builder.build(), props)) {
+            TestInputTopic<String, String> pageViews =
+                    driver.createInputTopic("page-views", new StringSerializer(), new StringSerializer());
+            pageViews.pipeInput("SW1", "view", Instant.ofEpochMilli(WINDOW + 5));
+            pageViews.pipeInput("SW1", "view", Instant.ofEpochMilli(WINDOW + 9));
+            pageViews.pipeInput("EC1", "view", Instant.ofEpochMilli(WINDOW + WINDOW_SIZE + 1));
+            changelog = driver.createOutputTopic("test-app-rocksdb-counts-changelog", new ByteArrayDeserializer(),
+                    new ByteArrayDeserializer()).readRecordsToList();
+        }
+        // Restoring a timestamped store prepends the changelog record's timestamp to its value
+        changelog.forEach(record -> restoreCallback.restore(record.key(),
+                ByteBuffer.allocate(Long.BYTES + record.value().length).putLong(record.timestamp())
+                        .put(record.value()).array()));
+
+        assertThat(countOf(store.fetch(key("SW1"), WINDOW))).isEqualTo(ValueAndTimestamp.make(2L, WINDOW + 9));
+        assertThat(countOf(store.fetch(key("EC1"), WINDOW + WINDOW_SIZE))).isEqualTo(
+                ValueAndTimestamp.make(1L, WINDOW + WINDOW_SIZE + 1));
+        try (KeyValueIterator<Windowed<Bytes>, byte[]> iterator = store.all()) {
+            assertThat(iterator.next().key.window()).isEqualTo(
+                    TimeWindows.ofSizeWithNoGrace(Duration.ofMillis(WINDOW_SIZE)).windowsFor(WINDOW).get(WINDOW));
+        }
+    }
+
+    @Test
+    void shouldRejectValuesOtherThanTimestampedLongs() {
+        assertThatThrownBy(() -> store.put(key("SW1"), new byte[4], WINDOW))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /** The timestamped format the DSL stores counts in: the timestamp followed by the serialized count. */
+    private static byte[] count(long count, long timestamp) {
+        return ByteBuffer.allocate(2 * Long.BYTES).putLong(timestamp).putLong(count).array();
+    }
+
+    private static ValueAndTimestamp<Long> countOf(byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        long timestamp = buffer.getLong();
+        return ValueAndTimestamp.make(buffer.getLong(), timestamp);
+    }
+
+    private static Bytes key(String postcode) {
+        return Bytes.wrap(postcode.getBytes());
+    }
+
+    /** The key the window store changelogs: the key, the window start and a sequence number of 0. */
+    private static byte[] changelogKey(String postcode, long windowStart) {
+        byte[] key = postcode.getBytes();
+        return ByteBuffer.allocate(key.length + Long.BYTES + Integer.BYTES).put(key).putLong(windowStart).putInt(0)
+                .array();
+    }
+}
@@ -0,0 +1,106 @@
+package com.checkout.steaming_app.topology;
+
+import com.checkout.events.PageViewEvent;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageViewEventDeserializerTest {
+
+    private static final String TOPIC = "test.streaming.page-view";
+    private static final Map<String, Object> CONFIG = Map.of(
+            AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://page-view-deserializer-test",
+            AbstractKafkaSchemaSerDeConfig.AUTO_REGISTER_SCHEMAS, "true");
+
+    private final SpecificAvroSerde<PageViewEvent> specificSerde = new SpecificAvroSerde<>();
+    private final PageViewEventDeserializer deserializer = new PageViewEventDeserializer();
+
+    @BeforeEach
+    void setUp() {
+        specificSerde.configure(CONFIG, false);
+        deserializer.configure(CONFIG, false);
+    }
+
+    @Test
+    void readsWhatSpecificAvroSerdeWritesAndReusesRepeatedPostcodes() {
+        PageViewEvent first = pageView(-42, "SW19 1AA", 1_735_725_600_000L);
+        PageViewEvent second = pageView(Integer.MAX_VALUE, "SW19 1AA", Long.MIN_VALUE);
+
+        PageViewEvent readFirst = deserializer.deserialize(TOPIC, specificSerde.serializer().serialize(TOPIC, first));
+        PageViewEvent readSecond = deserializer.deserialize(TOPIC, specificSerde.serializer().serialize(TOPIC, second));
+
+        assertThat(readFirst).isEqualTo(specificSerde.deserializer().deserialize(TOPIC,
+                specificSerde.serializer().serialize(TOPIC, first)));
+        assertThat(readSecond.getUserId()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(readSecond.getTimestamp()).isEqualTo(Long.MIN_VALUE);
+        assertThat(readSecond.getPostcode()).isSameAs(readFirst.getPostcode());
+        assertThat(readSecond.getWebpage()).isEqualTo(readFirst.getWebpage());
+        assertThat(readSecond).isNotSameAs(readFirst);
+    }
+
+    @Test
+    void resolvesOtherWriterSchemasAgainstPageViewEvent() {
+        // A newer publisher writing the fields in another order, with one the aggregator does not know
+        Schema writer = SchemaBuilder.record("PageViewEvent").namespace("com.checkout.events").fields()
+                .requiredLong("timestamp")
+                .requiredString("referrer")
+                .requiredString("postcode")
+                .requiredString("webpage")
+                .requiredInt("user_id")
+                .endRecord();
+        GenericRecord record = new GenericData.Record(writer);
+        record.put("timestamp", 1_735_725_600_000L);
+        record.put("referrer", "www.search.com");
+        record.put("postcode", "EC1A 1BB");
+        record.put("webpage", "/checkout");
+        record.put("user_id", 7);
+        byte[] bytes;
+        try (KafkaAvroSerializer serializer = new KafkaAvroSerializer()) {
+            serializer.configure(CONFIG, false);
+            bytes = serializer.serialize(TOPIC, record);
+        }
+
+        PageViewEvent event = deserializer.deserialize(TOPIC, bytes);
+
+        assertThat(event.getUserId()).isEqualTo(7);
+        assertThat(event.getPostcode().toString()).isEqualTo("EC1A 1BB");
+        assertThat(event.getWebpage().toString()).isEqualTo("/checkout");
+        assertThat(event.getTimestamp()).isEqualTo(1_735_725_600_000L);
+    }
+
+    @Test
+    void rejectsRecordsThatAreNotFramedPageViews() {
+        byte[] bytes = specificSerde.serializer().serialize(TOPIC, pageView(1, "SW19", 0));
+        byte[] unframed = bytes.clone();
+        unframed[0] = 1;
+
+        assertThat(deserializer.deserialize(TOPIC, null)).isNull();
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, unframed)).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, Arrays.copyOf(bytes, bytes.length - 1)))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, Arrays.copyOf(bytes, bytes.length + 1)))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    private static PageViewEvent pageView(int userId, String postcode, long timestamp) {
+        return PageViewEvent.newBuilder()
+                .setUserId(userId)
+                .setPostcode(postcode)
+                .setWebpage("www.website.com/index.html")
+                .setTimestamp(timestamp)
+                .build();
+    }
+}
@@ -1,41 +1,116 @@
 package com.checkout.steaming_app.topology;
 
 import com.checkout.events.AggregatedPageViewEvent;
+import com.checkout.events.AggregatedPostcodeWebpageViewEvent;
+import com.checkout.events.AggregatedWebpageViewEvent;
+import com.checkout.events.DistinctUsersEvent;
 import com.checkout.events.PageViewEvent;
+import com.checkout.events.TopPostcodesEvent;
+import com.checkout.steaming_app.config.AggregationDimension;
+import com.checkout.steaming_app.config.CountStoreType;
+import com.checkout.steaming_app.config.EmitMode;
 import com.checkout.steaming_app.config.KafkaStreamsConfig;
+import com.checkout.steaming_app.config.Rollup;
+import com.checkout.steaming_app.dlq.DeadLetterDeserializationExceptionHandler;
+import com.checkout.steaming_app.dlq.DeadLetterProcessingExceptionHandler;
+import com.checkout.steaming_app.dlq.DeadLetterPublisher;
 import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
 import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Utils;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.TestInputTopic;
 import org.apache.kafka.streams.TestOutputTopic;
 import org.apache.kafka.streams.TopologyTestDriver;
 import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.apache.kafka.streams.state.WindowStore;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
 
+import static com.checkout.steaming_app.topology.PageViewTopology.STATE_STORE_NAME;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
 
 class PageViewTopologyIntegrationTest {
 
     private static final String INPUT_TOPIC = "test.streaming.page-view";
     private static final String OUTPUT_TOPIC = "test.streaming.page-view.output";
+    private static final String TOP_POSTCODES_TOPIC = "test.streaming.page-view.top-postcodes";
+    private static final String DISTINCT_USERS_TOPIC = "test.streaming.page-view.distinct-users";
+    private static final String FIVE_MINUTE_TOPIC = "test.streaming.page-view.output.5m";
+    private static final String WEBPAGE_TOPIC = "test.streaming.page-view.output.by-webpage";
+    private static final String POSTCODE_WEBPAGE_TOPIC = "test.streaming.page-view.output.by-postcode-webpage";
+    private static final String HOURLY_TOPIC = "test.streaming.page-view.output.1h";
+    private static final String LATE_EVENTS_TOPIC = "test.streaming.page-view.late";
+    private static final String DEAD_LETTER_TOPIC = "test.streaming.page-view.dlq";
+    private static final String POSTCODE_DICTIONARY_TOPIC = "test.streaming.postcode-dictionary";
     private static final String MOCK_SCHEMA_REGISTRY_URL = "mock://test-schema-registry";
+    private static final int HOT_KEY_EVENTS = 1_000;
+    private static final int COLD_KEY_EVENTS = 10;
+    private static final int TOP_POSTCODES = 10;
+    private static final int DISTINCT_POSTCODES = 500;
+    private static final int ZIPF_MAX_VIEWS = 200;
+    private static final int DISTINCT_USERS = 500;
+    private static final int SALT_BUCKETS = 8;
+    /** Window start and sequence number, which follow the key in the changelog of a window store. */
+    private static final int WINDOWED_CHANGELOG_KEY_SUFFIX = Long.BYTES + Integer.BYTES;
+    /** Partitions of the page view topic in topics.tf, and so of the salted repartition topic. */
+    private static final int PARTITIONS = 2;
 
     private TopologyTestDriver testDriver;
+    private MockProducer<byte[], byte[]> deadLetterProducer;
+    private SimpleMeterRegistry meterRegistry;
     private TestInputTopic<String, PageViewEvent> inputTopic;
     private TestOutputTopic<String, AggregatedPageViewEvent> outputTopic;
+    private TestOutputTopic<String, TopPostcodesEvent> topPostcodesTopic;
+    private TestOutputTopic<String, DistinctUsersEvent> distinctUsersTopic;
+    private TestOutputTopic<String, PageViewEvent> lateEventsTopic;
 
     @BeforeEach
     void setUp() {
+        startDriver(newKafkaConfig());
+    }
+
+    private KafkaStreamsConfig newKafkaConfig() {
+        KafkaStreamsConfig kafkaConfig = new KafkaStreamsConfig();
+        kafkaConfig.setPageViewInputTopic(INPUT_TOPIC);
+        kafkaConfig.setSchemaRegistryUrl(MOCK_SCHEMA_REGISTRY_URL);
+        kafkaConfig.setPageViewOutputTopic(OUTPUT_TOPIC);
+        kafkaConfig.setTopPostcodesOutputTopic(TOP_POSTCODES_TOPIC);
+        kafkaConfig.setDistinctUsersOutputTopic(DISTINCT_USERS_TOPIC);
+        kafkaConfig.setLateEventsOutputTopic(LATE_EVENTS_TOPIC);
+        return kafkaConfig;
+    }
+
+    private void startDriver(KafkaStreamsConfig kafkaConfig) {
+        tearDown();
+
         Map<String, String> schemaRegistryConfig = Map.of(
                 AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, MOCK_SCHEMA_REGISTRY_URL,
                 AbstractKafkaSchemaSerDeConfig.AUTO_REGISTER_SCHEMAS, "true");
@@ -46,13 +121,16 @@ class PageViewTopologyIntegrationTest {
         SpecificAvroSerde<AggregatedPageViewEvent> outputValueSerde = new SpecificAvroSerde<>();
         outputValueSerde.configure(schemaRegistryConfig, false);
 
-        // Build topology
-        KafkaStreamsConfig kafkaConfig = new KafkaStreamsConfig();
-        kafkaConfig.setPageViewInputTopic(INPUT_TOPIC);
-        kafkaConfig.setPageViewOutputTopic(OUTPUT_TOPIC);
+        SpecificAvroSerde<TopPostcodesEvent> topPostcodesValueSerde = new SpecificAvroSerde<>();
+        topPostcodesValueSerde.configure(schemaRegistryConfig, false);
 
+        SpecificAvroSerde<DistinctUsersEvent> distinctUsersValueSerde = new SpecificAvroSerde<>();
+        distinctUsersValueSerde.configure(schemaRegistryConfig, false);
+
+        // Build topology
         StreamsBuilder streamsBuilder = new StreamsBuilder();
-        PageViewTopology topology = new PageViewTopology(kafkaConfig);
+        meterRegistry = new SimpleMeterRegistry();
+        PageViewTopology topology = new PageViewTopology(kafkaConfig, meterRegistry, topic -> Map.of());
         topology.pageViewAggregationTopology(streamsBuilder);
 
         // Configure streams
@@ -62,6 +140,14 @@ class PageViewTopologyIntegrationTest {
         props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
         props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, SpecificAvroSerde.class);
         props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, MOCK_SCHEMA_REGISTRY_URL);
+        props.put(StreamsConfig.DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG,
+                DeadLetterDeserializationExceptionHandler.class.getName());
+        props.put(StreamsConfig.PROCESSING_EXCEPTION_HANDLER_CLASS_CONFIG,
+                DeadLetterProcessingExceptionHandler.class.getName());
+
+        deadLetterProducer = new MockProducer<>(true, null, new ByteArraySerializer(), new ByteArraySerializer());
+        props.put(DeadLetterPublisher.PUBLISHER_CONFIG,
+                new DeadLetterPublisher(deadLetterProducer, DEAD_LETTER_TOPIC, meterRegistry, Clock.systemUTC()));
 
         testDriver = new TopologyTestDriver(streamsBuilder.build(), props);
 
@@ -70,12 +156,22 @@ class PageViewTopologyIntegrationTest {
 
         outputTopic = testDriver.createOutputTopic(
                 OUTPUT_TOPIC, Serdes.String().deserializer(), outputValueSerde.deserializer());
+
+        topPostcodesTopic = testDriver.createOutputTopic(
+                TOP_POSTCODES_TOPIC, Serdes.String().deserializer(), topPostcodesValueSerde.deserializer());
+
+        distinctUsersTopic = testDriver.createOutputTopic(
+                DISTINCT_USERS_TOPIC, Serdes.String().deserializer(), distinctUsersValueSerde.deserializer());
+
+        lateEventsTopic = testDriver.createOutputTopic(
+                LATE_EVENTS_TOPIC, Serdes.String().deserializer(), inputValueSerde.deserializer());
     }
 
     @AfterEach
     void tearDown() {
         if (testDriver != null) {
             testDriver.close();
+            testDriver = null;
         }
     }
 
@@ -114,6 +210,37 @@ class PageViewTopologyIntegrationTest {
         assertThat(ec1Results.getLast().getPageViewCount()).isEqualTo(2);
     }
 
+    @Test
+    void shouldSendCorruptedRecordsToDeadLetterTopicAndKeepAggregating() {
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+        TestInputTopic<String, byte[]> rawInputTopic = testDriver.createInputTopic(
+                INPUT_TOPIC, Serdes.String().serializer(), Serdes.ByteArray().serializer());
+        byte[] corrupted = "not avro".getBytes(StandardCharsets.UTF_8);
+
+        pipePageViewEvent("SW1", 1, "/home", windowStart);
+        rawInputTopic.pipeInput("SW1", corrupted, windowStart.plusSeconds(5));
+        pipePageViewEvent("SW1", 2, "/about", windowStart.plusSeconds(10));
+
+        assertThat(outputTopic.readValuesToList().getLast().getPageViewCount()).isEqualTo(2);
+
+        assertThat(deadLetterProducer.history()).singleElement().satisfies(record -> {
+            assertThat(record.topic()).isEqualTo(DEAD_LETTER_TOPIC);
+            assertThat(record.key()).isEqualTo("SW1".getBytes(StandardCharsets.UTF_8));
+            assertThat(record.value()).isEqualTo(corrupted);
+            assertThat(header(record, DeadLetterPublisher.TOPIC_HEADER)).isEqualTo(INPUT_TOPIC);
+            assertThat(header(record, DeadLetterPublisher.PARTITION_HEADER)).isEqualTo("0");
+            assertThat(header(record, DeadLetterPublisher.OFFSET_HEADER)).isEqualTo("1");
+            assertThat(header(record, DeadLetterPublisher.STAGE_HEADER)).isEqualTo("DESERIALIZATION");
+            assertThat(header(record, DeadLetterPublisher.ERROR_CLASS_HEADER)).isNotBlank();
+        });
+        assertThat(meterRegistry.get("dead.letter.records").tag("stage", "deserialization").counter().count())
+                .isEqualTo(1);
+    }
+
+    private static String header(ProducerRecord<byte[], byte[]> record, String key) {
+        return new String(record.headers().lastHeader(key).value(), StandardCharsets.UTF_8);
+    }
+
     @Test
     void shouldAggregateInSeparateWindowsForDifferentTimeIntervals() {
         Instant firstWindowStart = Instant.parse("2025-01-01T10:00:00Z");
@@ -205,6 +332,76 @@ class PageViewTopologyIntegrationTest {
         assertThat(sw1FirstWindow.getLast().getPageViewCount()).isEqualTo(1);
     }
 
+    @Test
+    void shouldRouteEventsOutsideGracePeriodToLateTopicAndRecordEventTimeMetrics() {
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+
+        pipePageViewEvent("SW1", 1, "/home", windowStart.plusSeconds(20));
+        // Out of order but within the grace period
+        pipePageViewEvent("SW1", 2, "/about", windowStart.plusSeconds(10));
+        // Closes the first window: its end plus the 30 minute grace period is 10:31
+        pipePageViewEvent("EC1", 3, "/other", Instant.parse("2025-01-01T10:31:00Z"));
+        pipePageViewEvent("SW1", 4, "/late", windowStart.plusSeconds(30));
+
+        assertThat(lateEventsTopic.readKeyValuesToList()).singleElement().satisfies(late -> {
+            assertThat(late.key).isEqualTo("SW1");
+            assertThat(late.value.getUserId()).isEqualTo(4);
+        });
+        assertThat(lastCountFor(outputTopic.readKeyValuesToList(), "SW1", windowStart)).isEqualTo(2);
+
+        assertThat(eventTimeMetric("late-records-total")).isEqualTo(1.0);
+        assertThat(eventTimeMetric("out-of-order-records-total")).isEqualTo(2.0);
+        assertThat(eventTimeMetric("timestamp-fallback-records-total")).isZero();
+        // The driver's wall clock starts at the current time, well after the events
+        assertThat(eventTimeMetric("event-lag-max")).isPositive();
+    }
+
+    @Test
+    void shouldMeterRecordsPerStageAndOutputLatency() {
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+
+        pipePageViewEvent("SW1", 1, "/home", windowStart);
+        pipePageViewEvent("SW1", 2, "/about", windowStart.plusSeconds(10));
+        pipePageViewEvent("EC1", 3, "/home", windowStart.plusSeconds(20));
+        pipePageViewEvent("EC1", 4, "/home", windowStart.plusSeconds(30));
+        int outputs = outputTopic.readValuesToList().size();
+
+        assertThat(stageRecords(PageViewTopology.INGEST_STAGE)).isEqualTo(4);
+        assertThat(stageRecords(PageViewTopology.COUNT_STAGE)).isEqualTo(4);
+        assertThat(meterRegistry.get(StageMeter.RECORDS_METER).tag("stage", OutputMeter.OUTPUT_STAGE)
+                .tag("output", "page-view-count").tag("task", "0_0").tag("partition", "0")
+                .counter().count()).isEqualTo(outputs);
+        assertThat(meterRegistry.get(PageViewTopology.OUTPUT_AMPLIFICATION_METER).tag("output", "page-view-count")
+                .gauge().value()).isEqualTo(outputs / 4.0);
+
+        // The driver's wall clock starts at the current time, after the window has ended
+        assertThat(meterRegistry.get(OutputMeter.END_TO_END_LATENCY_METER).tag("output", "page-view-count")
+                .timer().count()).isEqualTo(outputs);
+        assertThat(meterRegistry.get(OutputMeter.WINDOW_CLOSE_LAG_METER).tag("output", "page-view-count")
+                .timer().count()).isEqualTo(outputs);
+
+        // Closing the task, as a rebalance that revokes it does, removes its meters
+        testDriver.close();
+        testDriver = null;
+        assertThat(meterRegistry.find(StageMeter.RECORDS_METER).meters()).isEmpty();
+        assertThat(meterRegistry.find(OutputMeter.END_TO_END_LATENCY_METER).meters()).isEmpty();
+        assertThat(meterRegistry.find(OutputMeter.WINDOW_CLOSE_LAG_METER).meters()).isEmpty();
+    }
+
+    private double stageRecords(String stage) {
+        return meterRegistry.get(StageMeter.RECORDS_METER).tag("stage", stage).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private double eventTimeMetric(String name) {
+        return testDriver.metrics().entrySet().stream()
+                .filter(metric -> metric.getKey().group().equals(EventTimeClassifier.METRICS_GROUP)
+                        && metric.getKey().name().equals(name))
+                .mapToDouble(metric -> ((Number) metric.getValue().metricValue()).doubleValue())
+                .sum();
+    }
+
     @Test
     void shouldOutputCorrectKeyAsPostcode() {
         Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
@@ -314,6 +511,357 @@ class PageViewTopologyIntegrationTest {
         assertThat(lastCountFor(results, "SW1", oldWindow)).isEqualTo(0);
     }
 
+    @Test
+    void shouldEmitOnlyFinalResultPerWindowWhenEmitModeIsOnWindowClose() {
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+
+        pipeSkewedWindow(windowStart);
+        int everyUpdateOutputs = outputTopic.readKeyValuesToList().size();
+
+        KafkaStreamsConfig kafkaConfig = newKafkaConfig();
+        kafkaConfig.setEmitMode(EmitMode.ON_WINDOW_CLOSE);
+        startDriver(kafkaConfig);
+
+        pipeSkewedWindow(windowStart);
+        // Nothing is emitted while the window is still open
+        assertThat(outputTopic.isEmpty()).isTrue();
+
+        // Advance stream time past window end + 30min grace to close the window
+        pipePageViewEvent("EC1", 0, "/home", windowStart.plus(Duration.ofMinutes(32)));
+
+        List<KeyValue<String, AggregatedPageViewEvent>> results = outputTopic.readKeyValuesToList();
+
+        assertThat(results).hasSize(2);
+        assertThat(lastCountFor(results, "SW1", windowStart)).isEqualTo(HOT_KEY_EVENTS);
+        assertThat(lastCountFor(results, "EC1", windowStart)).isEqualTo(COLD_KEY_EVENTS);
+        assertThat(everyUpdateOutputs).isEqualTo(HOT_KEY_EVENTS + COLD_KEY_EVENTS);
+        assertThat(everyUpdateOutputs / results.size()).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    void shouldRateLimitIntermediateResultsWhenEmitModeIsRateLimited() {
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+
+        KafkaStreamsConfig kafkaConfig = newKafkaConfig();
+        kafkaConfig.setEmitMode(EmitMode.RATE_LIMITED);
+        kafkaConfig.setEmitIntervalMs(10_000L);
+        startDriver(kafkaConfig);
+
+        pipeSkewedWindow(windowStart);
+        pipePageViewEvent("EC1", 0, "/home", windowStart.plus(Duration.ofMinutes(2)));
+
+        List<KeyValue<String, AggregatedPageViewEvent>> results = outputTopic.readKeyValuesToList();
+
+        // The hot key spans 60s of stream time, so at most one result per 10s interval
+        long sw1Outputs = results.stream().filter(kv -> "SW1".equals(kv.key)).count();
+        assertThat(sw1Outputs).isBetween(1L, 7L);
+        assertThat(lastCountFor(results, "SW1", windowStart)).isEqualTo(HOT_KEY_EVENTS);
+        assertThat(lastCountFor(results, "EC1", windowStart)).isEqualTo(COLD_KEY_EVENTS);
+    }
+
+    @Test
+    void shouldRankExactTopPostcodesOfClosedWindowWithinBoundedState() {
+        KafkaStreamsConfig kafkaConfig = newKafkaConfig();
+        kafkaConfig.setTopPostcodesSize(TOP_POSTCODES);
+        startDriver(kafkaConfig);
+
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+
+        // Zipf distributed views: the postcode of rank r gets ZIPF_MAX_VIEWS / r views, in random order
+        Map<String, Integer> exactCounts = new HashMap<>();
+        List<String> views = new ArrayList<>();
+        for (int rank = 1; rank <= DISTINCT_POSTCODES; rank++) {
+            String postcode = "PC" + rank;
+            int count = Math.max(1, ZIPF_MAX_VIEWS / rank);
+            exactCounts.put(postcode, count);
+            views.addAll(Collections.nCopies(count, postcode));
+        }
+        Collections.shuffle(views, new Random(42));
+        for (int i = 0; i < views.size(); i++) {
+            pipePageViewEvent(views.get(i), i, "/home", windowStart.plusMillis(i * 60_000L / views.size()));
+        }
+
+        // The ranking is only emitted once the window has closed
+        assertThat(topPostcodesTopic.isEmpty()).isTrue();
+        pipePageViewEvent("EC1", 0, "/home", windowStart.plus(Duration.ofMinutes(32)));
+
+        List<String> expected = exactCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(TOP_POSTCODES)
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .toList();
+
+        List<TopPostcodesEvent> rankings = topPostcodesTopic.readValuesToList();
+        assertThat(rankings).hasSize(1);
+        assertThat(rankings.getFirst().getAggregationWindow()).isEqualTo(windowStart);
+        assertThat(rankings.getFirst().getTopPostcodes())
+                .extracting(count -> count.getPostcode() + "=" + count.getPageViewCount())
+                .containsExactlyElementsOf(expected);
+
+        KeyValueStore<Long, TopPostcodes> store = testDriver.getKeyValueStore(PageViewTopology.TOP_POSTCODES_STORE_NAME);
+        assertThat(store.get(windowStart.toEpochMilli()).size()).isEqualTo(TOP_POSTCODES);
+    }
+
+    @Test
+    void shouldEstimateDistinctUsersPerWindowWithMergeableSketches() {
+        Instant firstWindow = Instant.parse("2025-01-01T10:00:00Z");
+        Instant secondWindow = firstWindow.plusSeconds(60);
+
+        // Every user views twice in the first window; half of them return in the second window with as many new users
+        for (int user = 0; user < DISTINCT_USERS; user++) {
+            Instant timestamp = firstWindow.plusMillis(user * 60_000L / DISTINCT_USERS);
+            pipePageViewEvent("SW1", user, "/home", timestamp);
+            pipePageViewEvent("SW1", user, "/about", timestamp);
+        }
+        for (int user = DISTINCT_USERS / 2; user < DISTINCT_USERS * 3 / 2; user++) {
+            pipePageViewEvent("SW1", user, "/home", secondWindow.plusMillis(user));
+        }
+
+        Map<Instant, DistinctUsersEvent> latest = new HashMap<>();
+        distinctUsersTopic.readValuesToList().forEach(event -> latest.put(event.getAggregationWindow(), event));
+
+        assertThat(latest.get(firstWindow).getDistinctUsers()).isCloseTo(DISTINCT_USERS, withinPercentage(3));
+        assertThat(latest.get(secondWindow).getDistinctUsers()).isCloseTo(DISTINCT_USERS, withinPercentage(3));
+
+        // Sparse sketches stay well below the 4 KB of a dense one
+        assertThat(latest.get(firstWindow).getUserSketch().remaining()).isLessThan(2_048);
+
+        HyperLogLog union = sketchOf(latest.get(firstWindow)).merge(sketchOf(latest.get(secondWindow)));
+        assertThat(union.estimate()).isCloseTo(DISTINCT_USERS * 3 / 2, withinPercentage(3));
+    }
+
+    @Test
+    void shouldCountByWebpageAndByPostcodeAndWebpage() {
+        KafkaStreamsConfig kafkaConfig = newKafkaConfig();
+        kafkaConfig.setDimensions(EnumSet.allOf(AggregationDimension.class));
+        kafkaConfig.setWebpageOutputTopic(WEBPAGE_TOPIC);
+        kafkaConfig.setPostcodeWebpageOutputTopic(POSTCODE_WEBPAGE_TOPIC);
+        startDriver(kafkaConfig);
+
+        TestOutputTopic<String, AggregatedWebpageViewEvent> webpageTopic = avroOutputTopic(WEBPAGE_TOPIC);
+        TestOutputTopic<String, AggregatedPostcodeWebpageViewEvent> postcodeWebpageTopic =
+                avroOutputTopic(POSTCODE_WEBPAGE_TOPIC);
+
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+        pipePageViewEvent("SW1", 1, "/home", windowStart);
+        pipePageViewEvent("SW1", 2, "/home", windowStart.plusSeconds(5));
+        pipePageViewEvent("SW1", 3, "/search?q=a|b", windowStart.plusSeconds(10));
+        pipePageViewEvent("EC1", 4, "/home", windowStart.plusSeconds(15));
+
+        Map<String, AggregatedWebpageViewEvent> webpages = new HashMap<>();
+        webpageTopic.readKeyValuesToList().forEach(kv -> webpages.put(kv.key, kv.value));
+        assertThat(webpages).hasSize(2);
+        assertThat(webpages.get("/home").getPageViewCount()).isEqualTo(3);
+        assertThat(webpages.get("/home").getAggregationWindow()).isEqualTo(windowStart);
+        assertThat(webpages.get("/search?q=a|b").getPageViewCount()).isEqualTo(1);
+
+        Map<String, AggregatedPostcodeWebpageViewEvent> pairs = new HashMap<>();
+        postcodeWebpageTopic.readKeyValuesToList().forEach(kv -> pairs.put(kv.key, kv.value));
+        assertThat(pairs).hasSize(3);
+        assertThat(pairs.get("SW1|/home").getPageViewCount()).isEqualTo(2);
+        assertThat(pairs.get("EC1|/home").getPageViewCount()).isEqualTo(1);
+        assertThat(pairs.get("SW1|/search?q=a|b")).satisfies(pair -> {
+            assertThat(pair.getPostcode().toString()).isEqualTo("SW1");
+            assertThat(pair.getWebpage().toString()).isEqualTo("/search?q=a|b");
+            assertThat(pair.getPageViewCount()).isEqualTo(1);
+        });
+
+        // The postcode counts are unchanged by the other dimensions
+        assertThat(lastCountFor(outputTopic.readKeyValuesToList(), "SW1", windowStart)).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepWebpageDimensionsInRocksDbWithInMemoryCountStore() {
+        KafkaStreamsConfig kafkaConfig = newKafkaConfig();
+        kafkaConfig.setCountStoreType(CountStoreType.IN_MEMORY);
+        kafkaConfig.setDimensions(EnumSet.allOf(AggregationDimension.class));
+        kafkaConfig.setWebpageOutputTopic(WEBPAGE_TOPIC);
+        kafkaConfig.setPostcodeWebpageOutputTopic(POSTCODE_WEBPAGE_TOPIC);
+        startDriver(kafkaConfig);
+
+        // The in-memory store never releases a key, so only the postcode counts are kept there
+        Map<String, StateStore> stores = testDriver.getAllStateStores();
+        assertThat(stores.get(STATE_STORE_NAME).persistent()).isFalse();
+        assertThat(stores.get(PageViewTopology.WEBPAGE_STORE_NAME).persistent()).isTrue();
+        assertThat(stores.get(PageViewTopology.POSTCODE_WEBPAGE_STORE_NAME).persistent()).isTrue();
+    }
+
+    @Test
+    void shouldRollUpClosedWindowsIntoCoarserResolutions() {
+        KafkaStreamsConfig kafkaConfig = newKafkaConfig();
+        kafkaConfig.setRollups(List.of(
+                rollup("5m", Duration.ofMinutes(5), FIVE_MINUTE_TOPIC),
+                rollup("1h", Duration.ofHours(1), HOURLY_TOPIC)));
+        startDriver(kafkaConfig);
+
+        TestOutputTopic<String, AggregatedPageViewEvent> fiveMinuteTopic = aggregatedOutputTopic(FIVE_MINUTE_TOPIC);
+        TestOutputTopic<String, AggregatedPageViewEvent> hourlyTopic = aggregatedOutputTopic(HOURLY_TOPIC);
+
+        // Minute m of 10:00-10:10 gets m + 1 views
+        Instant start = Instant.parse("2025-01-01T10:00:00Z");
+        for (int minute = 0; minute < 10; minute++) {
+            for (int view = 0; view <= minute; view++) {
+                pipePageViewEvent("SW1", view, "/home", start.plusSeconds(minute * 60L + view));
+            }
+        }
+        // Rollups only see one minute windows once they close, 30 minutes after their end
+        assertThat(fiveMinuteTopic.isEmpty()).isTrue();
+
+        // Closes every one minute window of 10:00-10:10, which in turn closes the 10:00 five minute window
+        pipePageViewEvent("SW1", 0, "/home", start.plus(Duration.ofMinutes(80)));
+        // Closes the 11:20 minute window, which closes the 10:05 five minute window
+        pipePageViewEvent("SW1", 0, "/home", start.plus(Duration.ofMinutes(200)));
+
+        List<KeyValue<String, AggregatedPageViewEvent>> fiveMinutes = fiveMinuteTopic.readKeyValuesToList();
+        assertThat(lastCountFor(fiveMinutes, "SW1", start)).isEqualTo(1 + 2 + 3 + 4 + 5);
+        assertThat(lastCountFor(fiveMinutes, "SW1", start.plus(Duration.ofMinutes(5)))).isEqualTo(6 + 7 + 8 + 9 + 10);
+        assertThat(fiveMinutes).allSatisfy(kv -> assertThat(kv.value.getAggregateIntervalInSeconds()).isEqualTo(300));
+
+        List<KeyValue<String, AggregatedPageViewEvent>> hours = hourlyTopic.readKeyValuesToList();
+        assertThat(lastCountFor(hours, "SW1", start)).isEqualTo(55);
+        assertThat(hours).allSatisfy(kv -> assertThat(kv.value.getAggregateIntervalInSeconds()).isEqualTo(3600));
+    }
+
+    @Test
+    void shouldSpreadHotPostcodeOverTasksAndMatchUnsaltedCountsWhenSalted() {
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+        Instant closingEvent = windowStart.plus(Duration.ofMinutes(32));
+
+        KafkaStreamsConfig unsalted = newKafkaConfig();
+        unsalted.setEmitMode(EmitMode.ON_WINDOW_CLOSE);
+        startDriver(unsalted);
+        pipeSkewedWindow(windowStart);
+        pipePageViewEvent("EC1", 0, "/home", closingEvent);
+        List<KeyValue<String, AggregatedPageViewEvent>> unsaltedResults = outputTopic.readKeyValuesToList();
+
+        KafkaStreamsConfig salted = newKafkaConfig();
+        salted.setEmitMode(EmitMode.ON_WINDOW_CLOSE);
+        salted.setSaltBuckets(SALT_BUCKETS);
+        startDriver(salted);
+        TestOutputTopic<String, byte[]> saltedEvents = testDriver.createOutputTopic(
+                "test-app-page-view-by-salted-postcode-repartition",
+                Serdes.String().deserializer(), Serdes.ByteArray().deserializer());
+        TestOutputTopic<String, Long> partialCounts = testDriver.createOutputTopic(
+                "test-app-page-view-count-by-postcode-repartition",
+                Serdes.String().deserializer(), Serdes.Long().deserializer());
+
+        pipeSkewedWindow(windowStart);
+        testDriver.advanceWallClockTime(Duration.ofSeconds(1));
+        pipePageViewEvent("EC1", 0, "/home", closingEvent);
+        testDriver.advanceWallClockTime(Duration.ofSeconds(1));
+
+        assertThat(outputTopic.readKeyValuesToList()).hasSize(2)
+                .containsExactlyInAnyOrderElementsOf(unsaltedResults);
+
+        // The hot postcode's events are shared by every partition of the salted repartition topic
+        Map<Integer, Long> hotKeyEventsByPartition = saltedEvents.readKeyValuesToList().stream()
+                .filter(kv -> kv.key.startsWith("SW1" + PageViewTopology.SALT_SEPARATOR))
+                .collect(Collectors.groupingBy(kv -> partitionOf(kv.key), Collectors.counting()));
+        assertThat(hotKeyEventsByPartition).hasSize(PARTITIONS);
+        assertThat(hotKeyEventsByPartition.values()).allSatisfy(events ->
+                assertThat(events).isGreaterThan((long) HOT_KEY_EVENTS / SALT_BUCKETS));
+
+        // ...and reach the task owning the postcode as at most one partial count per salt and flush
+        List<KeyValue<String, Long>> hotKeyPartials = partialCounts.readKeyValuesToList().stream()
+                .filter(kv -> kv.key.equals("SW1"))
+                .toList();
+        assertThat(hotKeyPartials).hasSizeLessThanOrEqualTo(SALT_BUCKETS);
+        assertThat(hotKeyPartials.stream().mapToLong(kv -> kv.value).sum()).isEqualTo(HOT_KEY_EVENTS);
+    }
+
+    @Test
+    void shouldCountLikeRocksDbWithInMemoryCountStore() {
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+
+        pipeSkewedWindow(windowStart);
+        pipePageViewEvent("EC1", 0, "/home", windowStart.plus(Duration.ofMinutes(1)));
+        List<KeyValue<String, AggregatedPageViewEvent>> rocksDbResults = outputTopic.readKeyValuesToList();
+
+        KafkaStreamsConfig kafkaConfig = newKafkaConfig();
+        kafkaConfig.setCountStoreType(CountStoreType.IN_MEMORY);
+        startDriver(kafkaConfig);
+        pipeSkewedWindow(windowStart);
+        pipePageViewEvent("EC1", 0, "/home", windowStart.plus(Duration.ofMinutes(1)));
+
+        assertThat(outputTopic.readKeyValuesToList()).containsExactlyElementsOf(rocksDbResults);
+        WindowStore<String, ValueAndTimestamp<Long>> store = testDriver.getTimestampedWindowStore(STATE_STORE_NAME);
+        assertThat(store.fetch("SW1", windowStart.toEpochMilli()).value()).isEqualTo(HOT_KEY_EVENTS);
+        assertThat(store.fetch("EC1", windowStart.plus(Duration.ofMinutes(1)).toEpochMilli()).value()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountLikePlainKeysWithDictionaryEncodedPostcodeKeys() {
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+        Instant closingEvent = windowStart.plus(Duration.ofMinutes(40));
+
+        KafkaStreamsConfig plain = newKafkaConfig();
+        plain.setRollups(List.of(rollup("5m", Duration.ofMinutes(5), FIVE_MINUTE_TOPIC)));
+        startDriver(plain);
+        pipeSkewedWindow(windowStart);
+        pipePageViewEvent("EC1", 0, "/home", closingEvent);
+        List<KeyValue<String, AggregatedPageViewEvent>> plainCounts = outputTopic.readKeyValuesToList();
+        List<KeyValue<String, AggregatedPageViewEvent>> plainRollups =
+                aggregatedOutputTopic(FIVE_MINUTE_TOPIC).readKeyValuesToList();
+
+        KafkaStreamsConfig encoded = newKafkaConfig();
+        encoded.setRollups(List.of(rollup("5m", Duration.ofMinutes(5), FIVE_MINUTE_TOPIC)));
+        encoded.setPostcodeDictionaryTopic(POSTCODE_DICTIONARY_TOPIC);
+        startDriver(encoded);
+        TestInputTopic<String, Integer> dictionaryTopic = testDriver.createInputTopic(POSTCODE_DICTIONARY_TOPIC,
+                Serdes.String().serializer(), Serdes.Integer().serializer());
+        dictionaryTopic.pipeInput("SW1", 200);
+        dictionaryTopic.pipeInput("EC1", 3);
+        TestOutputTopic<byte[], byte[]> changelog = testDriver.createOutputTopic(
+                "test-app-" + STATE_STORE_NAME + "-changelog",
+                Serdes.ByteArray().deserializer(), Serdes.ByteArray().deserializer());
+        pipeSkewedWindow(windowStart);
+        pipePageViewEvent("EC1", 0, "/home", closingEvent);
+
+        assertThat(outputTopic.readKeyValuesToList()).containsExactlyElementsOf(plainCounts);
+        assertThat(aggregatedOutputTopic(FIVE_MINUTE_TOPIC).readKeyValuesToList()).containsExactlyElementsOf(plainRollups);
+        WindowStore<String, ValueAndTimestamp<Long>> store = testDriver.getTimestampedWindowStore(STATE_STORE_NAME);
+        assertThat(store.fetch("SW1", windowStart.toEpochMilli()).value()).isEqualTo(HOT_KEY_EVENTS);
+
+        // Ids 200 and 3 take two and one byte varints in place of the three bytes of SW1 and EC1
+        Map<Integer, Long> changelogKeysByPostcodeLength = changelog.readKeyValuesToList().stream()
+                .collect(Collectors.groupingBy(kv -> kv.key.length - WINDOWED_CHANGELOG_KEY_SUFFIX,
+                        Collectors.counting()));
+        assertThat(changelogKeysByPostcodeLength).containsOnlyKeys(1, 2);
+        assertThat(deadLetterProducer.history()).isEmpty();
+    }
+
+    @Test
+    void shouldDeadLetterPageViewsOfPostcodesMissingFromTheDictionary() {
+        KafkaStreamsConfig encoded = newKafkaConfig();
+        encoded.setPostcodeDictionaryTopic(POSTCODE_DICTIONARY_TOPIC);
+        startDriver(encoded);
+        TestInputTopic<String, Integer> dictionaryTopic = testDriver.createInputTopic(POSTCODE_DICTIONARY_TOPIC,
+                Serdes.String().serializer(), Serdes.Integer().serializer());
+        dictionaryTopic.pipeInput("SW1", 1);
+        Instant windowStart = Instant.parse("2025-01-01T10:00:00Z");
+
+        pipePageViewEvent("SW1", 1, "/home", windowStart);
+        pipePageViewEvent("EC1", 2, "/home", windowStart.plusSeconds(5));
+        dictionaryTopic.pipeInput("EC1", 2);
+        pipePageViewEvent("EC1", 3, "/home", windowStart.plusSeconds(10));
+
+        // EC1 is only counted once registered, and so under a single key
+        List<KeyValue<String, AggregatedPageViewEvent>> results = outputTopic.readKeyValuesToList();
+        assertThat(lastCountFor(results, "SW1", windowStart)).isEqualTo(1);
+        assertThat(results).filteredOn(kv -> kv.key.equals("EC1"))
+                .singleElement()
+                .satisfies(kv -> assertThat(kv.value.getPageViewCount()).isEqualTo(1));
+        WindowStore<String, ValueAndTimestamp<Long>> store = testDriver.getTimestampedWindowStore(STATE_STORE_NAME);
+        assertThat(store.fetch("EC1", windowStart.toEpochMilli()).value()).isEqualTo(1);
+
+        assertThat(deadLetterProducer.history()).singleElement().satisfies(record -> {
+            assertThat(record.key()).isEqualTo("EC1".getBytes(StandardCharsets.UTF_8));
+            assertThat(header(record, DeadLetterPublisher.STAGE_HEADER)).isEqualTo("PROCESSING");
+            assertThat(header(record, DeadLetterPublisher.OFFSET_HEADER)).isEqualTo("1");
+        });
+        assertThat(meterRegistry.get(RegisteredPostcodeFilter.MISSES_METER).counter().count()).isEqualTo(1);
+    }
+
     @Test
     void shouldProduceNoOutputWhenNoInput() {
         assertThat(outputTopic.isEmpty()).isTrue();
@@ -330,6 +878,50 @@ class PageViewTopologyIntegrationTest {
                 .orElse(0);
     }
 
+    /**
+     * Pipes a hot postcode (SW1) with {@link #HOT_KEY_EVENTS} views spread across the window and a
+     * cold postcode (EC1) with {@link #COLD_KEY_EVENTS} views.
+     */
+    private void pipeSkewedWindow(Instant windowStart) {
+        for (int i = 0; i < HOT_KEY_EVENTS; i++) {
+            pipePageViewEvent("SW1", i, "/home", windowStart.plusMillis(i * 60_000L / HOT_KEY_EVENTS));
+        }
+        for (int i = 0; i < COLD_KEY_EVENTS; i++) {
+            pipePageViewEvent("EC1", i, "/about", windowStart.plusSeconds(i));
+        }
+    }
+
+    private static int partitionOf(String key) {
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % PARTITIONS;
+    }
+
+    private Rollup rollup(String name, Duration windowSize, String outputTopic) {
+        Rollup rollup = new Rollup();
+        rollup.setName(name);
+        rollup.setWindowSizeMs(windowSize.toMillis());
+        rollup.setGraceMs(Duration.ofMinutes(1).toMillis());
+        rollup.setRetentionMs(Duration.ofDays(1).toMillis());
+        rollup.setOutputTopic(outputTopic);
+        return rollup;
+    }
+
+    private TestOutputTopic<String, AggregatedPageViewEvent> aggregatedOutputTopic(String topic) {
+        return avroOutputTopic(topic);
+    }
+
+    private <V extends SpecificRecord> TestOutputTopic<String, V> avroOutputTopic(String topic) {
+        SpecificAvroSerde<V> valueSerde = new SpecificAvroSerde<>();
+        valueSerde.configure(Map.of(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, MOCK_SCHEMA_REGISTRY_URL), false);
+        return testDriver.createOutputTopic(topic, Serdes.String().deserializer(), valueSerde.deserializer());
+    }
+
+    private HyperLogLog sketchOf(DistinctUsersEvent event) {
+        ByteBuffer sketch = event.getUserSketch().duplicate();
+        byte[] bytes = new byte[sketch.remaining()];
+        sketch.get(bytes);
+        return HyperLogLog.fromByteArray(bytes);
+    }
+
     private void pipePageViewEvent(String postcode, int userId, String webpage, Instant timestamp) {
         PageViewEvent event = PageViewEvent.newBuilder()
                 .setUserId(userId)
@@ -0,0 +1,47 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostcodeDictionaryTest {
+
+    private static final long WAIT_MS = 10_000;
+
+    @Test
+    void waitsForAMissingPostcodeUntilTheTopicIsReadUpToItsEndOffsets() throws Exception {
+        PostcodeDictionary dictionary = new PostcodeDictionary(() -> Map.of(0, 2L, 1, 1L), WAIT_MS);
+        dictionary.read(1, 0);
+
+        CompletableFuture<Integer> registered = CompletableFuture.supplyAsync(() -> dictionary.awaitId("SW1"));
+        CompletableFuture<Integer> missing = CompletableFuture.supplyAsync(() -> dictionary.awaitId("EC1"));
+        CompletableFuture<String> byId = CompletableFuture.supplyAsync(() -> dictionary.awaitPostcode(1));
+        Thread.sleep(100);
+        assertThat(registered).isNotDone();
+        assertThat(missing).isNotDone();
+        assertThat(byId).isNotDone();
+
+        dictionary.read(0, 0);
+        dictionary.register("SW1", 1);
+        assertThat(registered.get(WAIT_MS, TimeUnit.MILLISECONDS)).isEqualTo(1);
+        assertThat(byId.get(WAIT_MS, TimeUnit.MILLISECONDS)).isEqualTo("SW1");
+        assertThat(missing).isNotDone();
+
+        dictionary.read(0, 1);
+        assertThat(missing.get(WAIT_MS, TimeUnit.MILLISECONDS)).isEqualTo(-1);
+    }
+
+    @Test
+    void timesOutRatherThanReportingAPostcodeMissingBeforeTheTopicIsRead() {
+        PostcodeDictionary dictionary = new PostcodeDictionary(() -> Map.of(0, 1L), 50);
+
+        assertThatThrownBy(() -> dictionary.awaitId("SW1")).isInstanceOf(TimeoutException.class);
+        assertThatThrownBy(() -> dictionary.awaitPostcode(1)).isInstanceOf(TimeoutException.class);
+    }
+}
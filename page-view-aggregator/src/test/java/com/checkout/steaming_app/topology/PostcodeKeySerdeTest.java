@@ -0,0 +1,48 @@
+package com.checkout.steaming_app.topology;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostcodeKeySerdeTest {
+
+    private final PostcodeDictionary dictionary = new PostcodeDictionary(Map::of, 0);
+    private final PostcodeKeySerde serde = new PostcodeKeySerde(dictionary);
+
+    @Test
+    void encodesRegisteredPostcodesAsVarintsAndDecodesToTheDictionaryInstance() {
+        int[] ids = {0, 126, 127, 16_382, 16_383, 2_097_150, PostcodeDictionary.MAX_ID};
+        int[] lengths = {1, 1, 2, 2, 3, 3, 4};
+        for (int i = 0; i < ids.length; i++) {
+            String postcode = "PC" + ids[i];
+            assertThat(dictionary.register(postcode, ids[i])).isTrue();
+
+            byte[] bytes = serde.serialize(postcode);
+            assertThat(bytes).hasSize(lengths[i]);
+            assertThat(serde.deserialize(bytes)).isSameAs(dictionary.postcode(ids[i]));
+        }
+    }
+
+    @Test
+    void rejectsUnregisteredPostcodes() {
+        assertThatThrownBy(() -> serde.serialize("SW1A 1AA")).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void keepsTheFirstIdOfEveryPostcode() {
+        assertThat(dictionary.register("SW1", 1)).isTrue();
+        assertThat(dictionary.register("SW1", 1)).isTrue();
+
+        assertThat(dictionary.register("SW1", 2)).isFalse();
+        assertThat(dictionary.register("EC1", 1)).isFalse();
+        assertThat(dictionary.register("EC1", PostcodeDictionary.MAX_ID + 1)).isFalse();
+        assertThat(dictionary.id("SW1")).isEqualTo(1);
+        assertThat(dictionary.id("EC1")).isEqualTo(-1);
+        assertThatThrownBy(() -> serde.deserialize(new byte[]{3})).isInstanceOf(TimeoutException.class);
+    }
+}
@@ -0,0 +1,105 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.events.AggregatedPageViewEvent;
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.topology.PageViewEventDeserializer;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of the Confluent framed Avro values read and written by the aggregator, and of the
+ * {@link PageViewEventDeserializer} that reads the input instead of {@code SpecificAvroSerde} when enabled. Run with
+ * {@code -prof gc} to compare their allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvroSerdeBenchmark {
+
+    private static final String INPUT_TOPIC = "benchmark.page-view";
+    private static final String OUTPUT_TOPIC = "benchmark.page-view.output";
+
+    private SpecificAvroSerde<PageViewEvent> pageViewSerde;
+    private SpecificAvroSerde<AggregatedPageViewEvent> aggregatedSerde;
+    private PageViewEventDeserializer leanPageViewDeserializer;
+    private PageViewEvent pageView;
+    private AggregatedPageViewEvent aggregated;
+    private byte[] pageViewBytes;
+    private byte[] aggregatedBytes;
+
+    @Setup
+    public void setUp() {
+        pageViewSerde = BenchmarkSerdes.specificAvroSerde();
+        aggregatedSerde = BenchmarkSerdes.specificAvroSerde();
+        leanPageViewDeserializer = new PageViewEventDeserializer();
+        leanPageViewDeserializer.configure(Map.of(
+                AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, BenchmarkSerdes.MOCK_SCHEMA_REGISTRY_URL), false);
+
+        pageView = PageViewEvent.newBuilder()
+                .setUserId(123_456)
+                .setPostcode("SW19")
+                .setWebpage("www.website.com/index.html")
+                .setTimestamp(Instant.parse("2025-01-01T10:00:00Z").toEpochMilli())
+                .build();
+        aggregated = AggregatedPageViewEvent.newBuilder()
+                .setPostcode("SW19")
+                .setPageViewCount(42)
+                .setAggregateIntervalInSeconds(60)
+                .setAggregationWindow(Instant.parse("2025-01-01T10:00:00Z"))
+                .build();
+
+        // Also registers the schemas, which the hot path then finds in the serializer's cache
+        pageViewBytes = pageViewSerde.serializer().serialize(INPUT_TOPIC, pageView);
+        aggregatedBytes = aggregatedSerde.serializer().serialize(OUTPUT_TOPIC, aggregated);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pageViewSerde.close();
+        aggregatedSerde.close();
+        leanPageViewDeserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serializePageViewEvent() {
+        return pageViewSerde.serializer().serialize(INPUT_TOPIC, pageView);
+    }
+
+    @Benchmark
+    public PageViewEvent deserializePageViewEvent() {
+        return pageViewSerde.deserializer().deserialize(INPUT_TOPIC, pageViewBytes);
+    }
+
+    @Benchmark
+    public PageViewEvent deserializePageViewEventLean() {
+        return leanPageViewDeserializer.deserialize(INPUT_TOPIC, pageViewBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeAggregatedPageViewEvent() {
+        return aggregatedSerde.serializer().serialize(OUTPUT_TOPIC, aggregated);
+    }
+
+    @Benchmark
+    public AggregatedPageViewEvent deserializeAggregatedPageViewEvent() {
+        return aggregatedSerde.deserializer().deserialize(OUTPUT_TOPIC, aggregatedBytes);
+    }
+}
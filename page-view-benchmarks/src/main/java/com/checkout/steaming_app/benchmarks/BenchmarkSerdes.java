@@ -0,0 +1,26 @@
+package com.checkout.steaming_app.benchmarks;
+
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import org.apache.avro.specific.SpecificRecord;
+
+import java.util.Map;
+
+/**
+ * Serdes backed by an in-memory mock schema registry, so the benchmarks run without a registry or a broker.
+ */
+final class BenchmarkSerdes {
+
+    static final String MOCK_SCHEMA_REGISTRY_URL = "mock://benchmark-schema-registry";
+
+    private BenchmarkSerdes() {
+    }
+
+    static <T extends SpecificRecord> SpecificAvroSerde<T> specificAvroSerde() {
+        SpecificAvroSerde<T> serde = new SpecificAvroSerde<>();
+        serde.configure(Map.of(
+                AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, MOCK_SCHEMA_REGISTRY_URL,
+                AbstractKafkaSchemaSerDeConfig.AUTO_REGISTER_SCHEMAS, "true"), false);
+        return serde;
+    }
+}
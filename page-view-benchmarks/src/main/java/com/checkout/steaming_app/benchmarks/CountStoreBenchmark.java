@@ -0,0 +1,148 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.steaming_app.config.CountStoreType;
+import com.checkout.steaming_app.topology.InMemoryCountWindowStoreSupplier;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.TimestampedWindowStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.apache.kafka.streams.state.WindowBytesStoreSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one page view increment against the count window store, as done by the windowed count: fetch the current
+ * count of the postcode's window, then put the incremented one. The increments run inside a processor of a
+ * {@link TopologyTestDriver}, a batch per piped record, so the stores get a real processing context. Record caching and
+ * the changelog are disabled so the stores themselves are compared; run with {@code -prof gc} to compare allocation
+ * per increment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CountStoreBenchmark {
+
+    private static final String STORE_NAME = "counts";
+    private static final String TRIGGER_TOPIC = "increments";
+    private static final long WINDOW_SIZE_MS = Duration.ofMinutes(1).toMillis();
+    private static final long RETENTION_MS = Duration.ofHours(1).toMillis();
+    private static final int INCREMENTS_PER_RECORD = 10_000;
+    private static final int SAMPLES = 1 << 16;
+
+    @Param({"ROCKS_DB", "IN_MEMORY"})
+    public CountStoreType storeType;
+
+    @Param({"100", "10000"})
+    public int postcodes;
+
+    private TopologyTestDriver testDriver;
+    private TestInputTopic<String, String> triggerTopic;
+    private Instant windowStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        WindowBytesStoreSupplier supplier = switch (storeType) {
+            case ROCKS_DB -> Stores.persistentTimestampedWindowStore(STORE_NAME, Duration.ofMillis(RETENTION_MS),
+                    Duration.ofMillis(WINDOW_SIZE_MS), false);
+            case IN_MEMORY -> new InMemoryCountWindowStoreSupplier(STORE_NAME, RETENTION_MS, WINDOW_SIZE_MS);
+        };
+        String[] keys = sampleKeys(postcodes, new Random(42));
+
+        Topology topology = new Topology();
+        topology.addSource("trigger", new StringDeserializer(), new StringDeserializer(), TRIGGER_TOPIC);
+        topology.addProcessor("increment", () -> new Incrementer(keys), "trigger");
+        topology.addStateStore(Stores.timestampedWindowStoreBuilder(supplier, Serdes.String(), Serdes.Long())
+                .withCachingDisabled()
+                .withLoggingDisabled(), "increment");
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "count-store-benchmark");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, Files.createTempDirectory("count-store-benchmark").toString());
+        testDriver = new TopologyTestDriver(topology, props);
+        triggerTopic = testDriver.createInputTopic(TRIGGER_TOPIC, new StringSerializer(), new StringSerializer());
+        windowStart = Instant.parse("2025-01-01T00:00:00Z");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        testDriver.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INCREMENTS_PER_RECORD)
+    public void increment() {
+        // Each batch counts into the next window, so old windows expire during the run
+        windowStart = windowStart.plusMillis(WINDOW_SIZE_MS);
+        triggerTopic.pipeInput(null, "", windowStart);
+    }
+
+    private static String[] sampleKeys(int postcodes, Random random) {
+        String[] keys = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            keys[i] = "PC" + random.nextInt(postcodes);
+        }
+        return keys;
+    }
+
+    private static final class Incrementer implements Processor<String, String, Void, Void> {
+
+        private final String[] keys;
+        private TimestampedWindowStore<String, Long> store;
+        private int next;
+
+        Incrementer(String[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public void init(ProcessorContext<Void, Void> context) {
+            store = context.getStateStore(STORE_NAME);
+        }
+
+        @Override
+        public void process(Record<String, String> record) {
+            long windowStart = record.timestamp();
+            for (int i = 0; i < INCREMENTS_PER_RECORD; i++) {
+                String key = keys[next];
+                next = (next + 1) & (SAMPLES - 1);
+
+                ValueAndTimestamp<Long> count = store.fetch(key, windowStart);
+                long updated = count == null ? 1 : count.value() + 1;
+                store.put(key, ValueAndTimestamp.make(updated, windowStart), windowStart);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.PageViewEventsPublisherApplication;
+import com.checkout.steaming_app.SteamingAppApplication;
+import com.checkout.steaming_app.config.BatchPublishProperties;
+import com.checkout.steaming_app.config.CaptureProperties;
+import com.checkout.steaming_app.config.KafkaProducerConfig;
+import com.checkout.steaming_app.config.KafkaProducerProperties;
+import com.checkout.steaming_app.config.KafkaStreamsConfig;
+import com.checkout.steaming_app.config.LoadGeneratorProperties;
+import com.checkout.steaming_app.config.PostcodeDistribution;
+import com.checkout.steaming_app.service.PageViewEventsPublishService;
+import com.checkout.steaming_app.service.PageViewLoadGenerator;
+import com.checkout.steaming_app.service.PostcodeDictionaryPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The publisher and the aggregator under their {@code local} profile, sharing an embedded broker and, as they run in
+ * one JVM, the {@code mock://local-stack} schema registry. Nothing needs to run on the machine, so end-to-end
+ * throughput can be measured offline.
+ * <p>
+ * Both applications live in the {@code com.checkout.steaming_app} package and read {@code application.yaml} from the
+ * classpath, where the aggregator's comes first. The aggregator's component scan therefore skips the publisher's
+ * classes, and the publisher is assembled from its beans rather than started as a second context.
+ */
+public class LocalStack implements AutoCloseable {
+
+    public static final String SCHEMA_REGISTRY_URL = "mock://local-stack";
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(5);
+
+    private final EmbeddedKafkaBroker broker;
+    private final ConfigurableApplicationContext aggregator;
+    private final List<ProducerFactory<?, ?>> producerFactories = new ArrayList<>();
+
+    private LocalStack(EmbeddedKafkaBroker broker, ConfigurableApplicationContext aggregator) {
+        this.broker = broker;
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Starts a single node broker and the aggregator, whose topics are created with {@code partitions} partitions.
+     * The properties, as {@code name=value}, override the aggregator's configuration.
+     */
+    public static LocalStack start(int partitions, String... aggregatorProperties) {
+        EmbeddedKafkaBroker broker = new EmbeddedKafkaKraftBroker(1, partitions);
+        broker.afterPropertiesSet();
+
+        List<String> properties = new ArrayList<>(List.of(aggregatorProperties));
+        properties.add("kafka.bootstrap-servers=" + broker.getBrokersAsString());
+        properties.add("kafka.schema-registry-url=" + SCHEMA_REGISTRY_URL);
+        properties.add("local-topics.partitions=" + partitions);
+        try {
+            ConfigurableApplicationContext aggregator = new SpringApplicationBuilder(SteamingAppApplication.class)
+                    .profiles("local")
+                    .initializers(context -> context.getBeanFactory().registerSingleton(
+                            "publisherExcludeFilter", new PublisherExcludeFilter()))
+                    // As command line arguments, which take precedence over application-local.yaml
+                    .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+            return new LocalStack(broker, aggregator);
+        } catch (RuntimeException e) {
+            broker.destroy();
+            throw e;
+        }
+    }
+
+    public String bootstrapServers() {
+        return broker.getBrokersAsString();
+    }
+
+    public ConfigurableApplicationContext aggregator() {
+        return aggregator;
+    }
+
+    public KafkaStreamsConfig aggregatorConfig() {
+        return aggregator.getBean(KafkaStreamsConfig.class);
+    }
+
+    /**
+     * Page views the aggregator has read so far, from its {@code page.view.stage.records} meter.
+     */
+    public long ingested() {
+        return (long) aggregator.getBean(MeterRegistry.class).find("page.view.stage.records").tag("stage", "ingest")
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    /**
+     * A template configured by the publisher's {@link KafkaProducerConfig}, sending to the aggregator's input topic.
+     */
+    public KafkaTemplate<String, PageViewEvent> publisherTemplate() {
+        KafkaProducerConfig config = new KafkaProducerConfig(publisherProperties());
+        ProducerFactory<String, PageViewEvent> producerFactory = config.producerFactory();
+        producerFactories.add(producerFactory);
+        return config.kafkaTemplate(producerFactory);
+    }
+
+    /**
+     * Runs the publisher's {@link PageViewLoadGenerator} to completion, logging the achieved rate and latencies.
+     */
+    public void publish(KafkaTemplate<String, PageViewEvent> template, LoadGeneratorProperties load)
+            throws InterruptedException, IOException {
+        KafkaProducerProperties properties = publisherProperties();
+        KafkaProducerConfig config = new KafkaProducerConfig(properties);
+        ProducerFactory<String, Integer> dictionaryProducerFactory = config.postcodeDictionaryProducerFactory();
+        producerFactories.add(dictionaryProducerFactory);
+        PostcodeDictionaryPublisher dictionaryPublisher = new PostcodeDictionaryPublisher(
+                config.postcodeDictionaryTemplate(dictionaryProducerFactory), properties);
+
+        CaptureProperties capture = new CaptureProperties();
+        new PageViewLoadGenerator(template, properties, load,
+                new PageViewEventsPublishService(template, properties, load, new BatchPublishProperties(),
+                        dictionaryPublisher, capture),
+                dictionaryPublisher, capture)
+                .run(null);
+    }
+
+    @Override
+    public void close() {
+        producerFactories.forEach(ProducerFactory::reset);
+        aggregator.close();
+        broker.destroy();
+    }
+
+    private KafkaProducerProperties publisherProperties() {
+        KafkaProducerProperties properties = new KafkaProducerProperties();
+        properties.setBootstrapServers(bootstrapServers());
+        properties.setSchemaRegistryUrl(SCHEMA_REGISTRY_URL);
+        properties.setSecurityProtocol("PLAINTEXT");
+        properties.setTopicName(aggregatorConfig().getPageViewInputTopic());
+        properties.setPostcodeDictionaryTopic(aggregatorConfig().getPostcodeDictionaryTopic());
+        return properties;
+    }
+
+    /**
+     * Publishes {@code -Dlocal-stack.events-per-second} (default 20,000) page views for
+     * {@code -Dlocal-stack.duration-ms} (default 60 s) over {@code -Dlocal-stack.postcodes} (default 10,000) Zipf
+     * distributed postcodes, then reports how long the aggregator took to read them. The arguments, as
+     * {@code name=value}, override the aggregator's configuration, e.g. {@code kafka.tuning-profile=LATENCY}.
+     */
+    public static void main(String[] args) throws Exception {
+        LoadGeneratorProperties load = new LoadGeneratorProperties();
+        load.setEnabled(true);
+        load.setEventsPerSecond(Integer.getInteger("local-stack.events-per-second", 20_000));
+        load.setDurationMs(Long.getLong("local-stack.duration-ms", 60_000));
+        load.setPostcodes(Integer.getInteger("local-stack.postcodes", 10_000));
+        load.setPostcodeDistribution(PostcodeDistribution.ZIPF);
+        long events = load.getEventsPerSecond() * load.getDurationMs() / 1_000;
+
+        try (LocalStack stack = start(Integer.getInteger("local-stack.partitions", 4), args)) {
+            long start = System.nanoTime();
+            stack.publish(stack.publisherTemplate(), load);
+            long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+            while (stack.ingested() < events && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%nAggregated %d of %d page views in %.1f s: %.0f events/s%n", stack.ingested(), events,
+                    elapsedSeconds, stack.ingested() / elapsedSeconds);
+        }
+    }
+
+    /**
+     * Excludes the publisher's configuration and services from the aggregator's component scan. Matching on names
+     * rather than code source also works in the shaded {@code benchmarks.jar}, where both share one jar.
+     */
+    static class PublisherExcludeFilter extends TypeExcludeFilter {
+
+        private static final Set<String> CONFIGURATIONS = Set.of(
+                PageViewEventsPublisherApplication.class.getName(), KafkaProducerConfig.class.getName());
+        private static final String SERVICES = PageViewEventsPublishService.class.getPackageName() + ".";
+
+        @Override
+        public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+            String className = metadataReader.getClassMetadata().getClassName();
+            return CONFIGURATIONS.contains(className) || className.startsWith(SERVICES);
+        }
+    }
+}
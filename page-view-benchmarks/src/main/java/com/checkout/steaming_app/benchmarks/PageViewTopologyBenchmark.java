@@ -0,0 +1,166 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.EmitMode;
+import com.checkout.steaming_app.config.KafkaStreamsConfig;
+import com.checkout.steaming_app.topology.PageViewTopology;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per second through the whole {@link PageViewTopology}, run in-process by a {@link TopologyTestDriver} with
+ * RocksDB state stores. Postcodes are drawn from {@code postcodes} distinct keys with a Zipf distribution of exponent
+ * {@code skew}; a skew of 0 spreads the views uniformly.
+ * <p>
+ * The driver commits after every record, flushing the stores and writing their checkpoints, so absolute numbers are far
+ * below those of a real deployment; compare runs of the same parameters across changes rather than against production
+ * throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PageViewTopologyBenchmark {
+
+    private static final String INPUT_TOPIC = "benchmark.page-view";
+    private static final String OUTPUT_TOPIC = "benchmark.page-view.output";
+    private static final String TOP_POSTCODES_TOPIC = "benchmark.page-view.top-postcodes";
+    private static final String DISTINCT_USERS_TOPIC = "benchmark.page-view.distinct-users";
+    private static final int BATCH_SIZE = 100;
+    private static final int SAMPLES = 1 << 16;
+    private static final int DISTINCT_USERS = 100_000;
+    /** Event time between consecutive views, so that a one minute window holds 600 of them. */
+    private static final long EVENT_SPACING_MS = 100;
+
+    @Param({"100", "10000"})
+    public int postcodes;
+
+    @Param({"0", "1.1"})
+    public double skew;
+
+    @Param({"EVERY_UPDATE", "ON_WINDOW_CLOSE"})
+    public EmitMode emitMode;
+
+    private TopologyTestDriver testDriver;
+    private TestInputTopic<String, PageViewEvent> inputTopic;
+    private List<TestOutputTopic<byte[], byte[]>> outputTopics;
+    private PageViewEvent[] events;
+    private int next;
+    private long eventTime;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        KafkaStreamsConfig kafkaConfig = new KafkaStreamsConfig();
+        kafkaConfig.setPageViewInputTopic(INPUT_TOPIC);
+        kafkaConfig.setSchemaRegistryUrl(BenchmarkSerdes.MOCK_SCHEMA_REGISTRY_URL);
+        kafkaConfig.setPageViewOutputTopic(OUTPUT_TOPIC);
+        kafkaConfig.setTopPostcodesOutputTopic(TOP_POSTCODES_TOPIC);
+        kafkaConfig.setDistinctUsersOutputTopic(DISTINCT_USERS_TOPIC);
+        kafkaConfig.setLateEventsOutputTopic("test.streaming.page-view.late");
+        kafkaConfig.setEmitMode(emitMode);
+
+        StreamsBuilder streamsBuilder = new StreamsBuilder();
+        new PageViewTopology(kafkaConfig, new SimpleMeterRegistry(), topic -> Map.of()).pageViewAggregationTopology(streamsBuilder);
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "page-view-benchmark");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, Files.createTempDirectory("page-view-benchmark").toString());
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, SpecificAvroSerde.class);
+        props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, BenchmarkSerdes.MOCK_SCHEMA_REGISTRY_URL);
+
+        testDriver = new TopologyTestDriver(streamsBuilder.build(), props);
+        SpecificAvroSerde<PageViewEvent> inputValueSerde = BenchmarkSerdes.specificAvroSerde();
+        inputTopic = testDriver.createInputTopic(
+                INPUT_TOPIC, Serdes.String().serializer(), inputValueSerde.serializer());
+        // Drained as raw bytes so that reading the results does not add to the measured cost
+        outputTopics = List.of(OUTPUT_TOPIC, TOP_POSTCODES_TOPIC, DISTINCT_USERS_TOPIC).stream()
+                .map(topic -> testDriver.createOutputTopic(
+                        topic, new ByteArrayDeserializer(), new ByteArrayDeserializer()))
+                .toList();
+
+        events = sampleEvents(postcodes, skew, new Random(42));
+        next = 0;
+        eventTime = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    }
+
+    @TearDown(Level.Iteration)
+    public void drainOutputTopics() {
+        outputTopics.forEach(TestOutputTopic::readRecordsToList);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        testDriver.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void pipePageViews() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            PageViewEvent event = events[next];
+            next = (next + 1) & (SAMPLES - 1);
+            eventTime += EVENT_SPACING_MS;
+            event.setTimestamp(eventTime);
+            inputTopic.pipeInput(event.getPostcode().toString(), event);
+        }
+    }
+
+    private static PageViewEvent[] sampleEvents(int postcodes, double skew, Random random) {
+        // Cumulative Zipf weights of the postcode ranks, sampled by binary search
+        double[] cumulative = new double[postcodes];
+        double total = 0;
+        for (int rank = 0; rank < postcodes; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cumulative[rank] = total;
+        }
+
+        PageViewEvent[] sampled = new PageViewEvent[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            rank = Math.min(rank < 0 ? -rank - 1 : rank, postcodes - 1);
+            sampled[i] = PageViewEvent.newBuilder()
+                    .setUserId(random.nextInt(DISTINCT_USERS))
+                    .setPostcode("PC" + rank)
+                    .setWebpage("www.website.com/index.html")
+                    .setTimestamp(0L)
+                    .build();
+        }
+        return sampled;
+    }
+}
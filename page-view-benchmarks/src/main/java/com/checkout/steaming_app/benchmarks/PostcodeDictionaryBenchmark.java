@@ -0,0 +1,201 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.EmitMode;
+import com.checkout.steaming_app.config.KafkaStreamsConfig;
+import com.checkout.steaming_app.config.Rollup;
+import com.checkout.steaming_app.topology.PageViewTopology;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.TestRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per second through the {@link PageViewTopology} with and without {@code kafka.postcode-dictionary-topic}, over
+ * {@code postcodes} distinct full-length postcodes viewed uniformly. Run with {@code -prof gc} to compare allocation.
+ * <p>
+ * The keys and values written to the changelog and repartition topics are drained after every iteration, and their
+ * size per page view is printed at the end of the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PostcodeDictionaryBenchmark {
+
+    private static final String APPLICATION_ID = "postcode-dictionary-benchmark";
+    private static final String INPUT_TOPIC = "benchmark.page-view";
+    private static final String OUTPUT_TOPIC = "benchmark.page-view.output";
+    private static final String DICTIONARY_TOPIC = "benchmark.postcode-dictionary";
+    private static final String LETTERS = "ABCDEFGHJKLMNPRSTUWXYZ";
+    private static final int BATCH_SIZE = 100;
+    private static final int SAMPLES = 1 << 16;
+    private static final long EVENT_SPACING_MS = 100;
+
+    @Param({"false", "true"})
+    public boolean dictionary;
+
+    @Param({"10000"})
+    public int postcodes;
+
+    private TopologyTestDriver testDriver;
+    private TestInputTopic<String, PageViewEvent> inputTopic;
+    private final Map<String, TestOutputTopic<byte[], byte[]>> outputTopics = new HashMap<>();
+    private PageViewEvent[] events;
+    private int next;
+    private long eventTime;
+    private long pageViews;
+    private long internalKeyBytes;
+    private long internalValueBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        KafkaStreamsConfig kafkaConfig = new KafkaStreamsConfig();
+        kafkaConfig.setPageViewInputTopic(INPUT_TOPIC);
+        kafkaConfig.setSchemaRegistryUrl(BenchmarkSerdes.MOCK_SCHEMA_REGISTRY_URL);
+        kafkaConfig.setPageViewOutputTopic(OUTPUT_TOPIC);
+        kafkaConfig.setTopPostcodesOutputTopic("benchmark.page-view.top-postcodes");
+        kafkaConfig.setDistinctUsersOutputTopic("benchmark.page-view.distinct-users");
+        kafkaConfig.setLateEventsOutputTopic("benchmark.page-view.late");
+        kafkaConfig.setEmitMode(EmitMode.ON_WINDOW_CLOSE);
+        kafkaConfig.setRollups(List.of(fiveMinuteRollup()));
+        if (dictionary) {
+            kafkaConfig.setPostcodeDictionaryTopic(DICTIONARY_TOPIC);
+        }
+
+        StreamsBuilder streamsBuilder = new StreamsBuilder();
+        new PageViewTopology(kafkaConfig, new SimpleMeterRegistry(), topic -> Map.of()).pageViewAggregationTopology(streamsBuilder);
+
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, APPLICATION_ID);
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.STATE_DIR_CONFIG, Files.createTempDirectory(APPLICATION_ID).toString());
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, SpecificAvroSerde.class);
+        props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, BenchmarkSerdes.MOCK_SCHEMA_REGISTRY_URL);
+
+        testDriver = new TopologyTestDriver(streamsBuilder.build(), props);
+        SpecificAvroSerde<PageViewEvent> inputValueSerde = BenchmarkSerdes.specificAvroSerde();
+        inputTopic = testDriver.createInputTopic(
+                INPUT_TOPIC, Serdes.String().serializer(), inputValueSerde.serializer());
+
+        String[] sampledPostcodes = postcodes(postcodes, new Random(42));
+        if (dictionary) {
+            TestInputTopic<String, Integer> dictionaryTopic = testDriver.createInputTopic(
+                    DICTIONARY_TOPIC, Serdes.String().serializer(), Serdes.Integer().serializer());
+            for (int id = 0; id < sampledPostcodes.length; id++) {
+                dictionaryTopic.pipeInput(sampledPostcodes[id], id);
+            }
+        }
+        events = sampleEvents(sampledPostcodes, new Random(42));
+        next = 0;
+        eventTime = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    }
+
+    @TearDown(Level.Iteration)
+    public void drainTopics() {
+        // Topics only become known to the driver once something has been written to them
+        for (String topic : testDriver.producedTopicNames()) {
+            TestOutputTopic<byte[], byte[]> outputTopic = outputTopics.computeIfAbsent(topic,
+                    name -> testDriver.createOutputTopic(name, new ByteArrayDeserializer(), new ByteArrayDeserializer()));
+            boolean internal = topic.startsWith(APPLICATION_ID + "-");
+            for (TestRecord<byte[], byte[]> record : outputTopic.readRecordsToList()) {
+                if (internal) {
+                    internalKeyBytes += record.key() == null ? 0 : record.key().length;
+                    internalValueBytes += record.value() == null ? 0 : record.value().length;
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nChangelog and repartition bytes per page view with dictionary=%s: keys %.1f, values %.1f%n",
+                dictionary, (double) internalKeyBytes / pageViews, (double) internalValueBytes / pageViews);
+        testDriver.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void pipePageViews() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            PageViewEvent event = events[next];
+            next = (next + 1) & (SAMPLES - 1);
+            eventTime += EVENT_SPACING_MS;
+            event.setTimestamp(eventTime);
+            inputTopic.pipeInput(event.getPostcode().toString(), event);
+        }
+        pageViews += BATCH_SIZE;
+    }
+
+    private static Rollup fiveMinuteRollup() {
+        Rollup rollup = new Rollup();
+        rollup.setName("5m");
+        rollup.setWindowSizeMs(Duration.ofMinutes(5).toMillis());
+        rollup.setGraceMs(Duration.ofMinutes(1).toMillis());
+        rollup.setRetentionMs(Duration.ofHours(1).toMillis());
+        rollup.setOutputTopic("benchmark.page-view.5m");
+        return rollup;
+    }
+
+    /** Distinct postcodes of the {@code AB12 3CD} form, the longest in use. */
+    private static String[] postcodes(int count, Random random) {
+        return random.ints(0, Integer.MAX_VALUE)
+                .mapToObj(seed -> "" + letter(seed) + letter(seed / 22) + (seed / 484 % 90 + 10) + " "
+                        + (seed / 43_560 % 10) + letter(seed / 435_600) + letter(seed / 9_583_200))
+                .distinct()
+                .limit(count)
+                .toArray(String[]::new);
+    }
+
+    private static char letter(int seed) {
+        return LETTERS.charAt(seed % LETTERS.length());
+    }
+
+    private static PageViewEvent[] sampleEvents(String[] postcodes, Random random) {
+        PageViewEvent[] sampled = new PageViewEvent[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            sampled[i] = PageViewEvent.newBuilder()
+                    .setUserId(random.nextInt(100_000))
+                    .setPostcode(postcodes[random.nextInt(postcodes.length)])
+                    .setWebpage("www.website.com/index.html")
+                    .setTimestamp(0L)
+                    .build();
+        }
+        return sampled;
+    }
+}
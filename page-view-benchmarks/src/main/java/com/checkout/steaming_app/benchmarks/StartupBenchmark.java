@@ -0,0 +1,280 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.steaming_app.config.KafkaStreamsConfig;
+import com.checkout.steaming_app.config.LocalTopicsConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from launching an aggregator process to its first processed page view, which is how long a replacement
+ * instance takes to take over, with each of the startup options of the Docker image.
+ * <p>
+ * The executable jar is unpacked and the CDS archive trained as the {@code Dockerfile} does, and every run starts the
+ * aggregator in a new JVM from there, under its default profile, against an embedded single node broker. It has a new
+ * application id and state directory, as on a new host. As the {@code mock://} schema registry lives in one JVM, the
+ * page view is published by the aggregator's own process, through {@link StartupProbe}, which is timed with it. The
+ * clock stops when the first count reaches the output topic.
+ */
+public class StartupBenchmark {
+
+    private static final String SCHEMA_REGISTRY_URL = "mock://startup-benchmark";
+    private static final Duration RUN_TIMEOUT = Duration.ofMinutes(3);
+    /** The settings the Dockerfile trains the archive with; they only have to resolve. */
+    private static final Map<String, String> TRAINING_ENVIRONMENT = Map.of(
+            "AWS_REGION", "us-east-1",
+            "KAFKA_BOOTSTRAP_SERVERS", "localhost:9092",
+            "KAFKA_SASL_JAAS_CONFIG", "org.apache.kafka.common.security.plain.PlainLoginModule required "
+                    + "username=\"training\" password=\"training\";",
+            "SCHEMA_REGISTRY_USER_INFO", "training:training");
+
+    /**
+     * Startup options, from the plain unpacked jar to the image as it runs.
+     */
+    enum Variant {
+        /** No class data archive, and bean definitions resolved at runtime. */
+        BASELINE(false, false),
+        /** With the application class data archive. */
+        CDS(true, false),
+        /** With the bean definitions generated at build time. */
+        AOT(false, true),
+        /** With both, as the image runs. */
+        CDS_AOT(true, true);
+
+        private final boolean cds;
+        private final boolean aot;
+
+        Variant(boolean cds, boolean aot) {
+            this.cds = cds;
+            this.aot = aot;
+        }
+    }
+
+    /**
+     * Runs every variant {@code -Dstartup.runs} times (default 5), in turn, after one untimed run, and reports the
+     * median, fastest and slowest time of each. The executable jar is {@code -Dstartup.exec-jar}, by default the one
+     * in {@code page-view-aggregator/target}, and the topics have {@code -Dstartup.partitions} (default 4) partitions.
+     */
+    public static void main(String[] args) throws Exception {
+        Path execJar = System.getProperty("startup.exec-jar") != null
+                ? Path.of(System.getProperty("startup.exec-jar"))
+                : execJar(Path.of("page-view-aggregator", "target"));
+        int runs = Integer.getInteger("startup.runs", 5);
+        int partitions = Integer.getInteger("startup.partitions", 4);
+
+        Path work = Files.createTempDirectory("startup-benchmark");
+        Path application = work.resolve("application");
+        java(work, work.resolve("extract.log"), Map.of(), "-Djarmode=tools", "-jar", execJar.toAbsolutePath().toString(),
+                "extract", "--destination", application.toString(), "--application-filename", "app.jar");
+        Map<String, String> training = new HashMap<>(TRAINING_ENVIRONMENT);
+        training.put("KAFKA_STATE_DIR", work.resolve("training-state").toString());
+        java(application, work.resolve("training.log"), training, "-XX:ArchiveClassesAtExit=app.jsa",
+                "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh", "-jar", "app.jar");
+        Path probe = copyProbe(work.resolve("probe"));
+
+        KafkaStreamsConfig config = aggregatorConfig();
+        EmbeddedKafkaBroker broker = new EmbeddedKafkaKraftBroker(1, partitions, topics(config));
+        broker.afterPropertiesSet();
+        Map<Variant, List<Long>> millis = new EnumMap<>(Variant.class);
+        try (KafkaConsumer<byte[], byte[]> output = outputConsumer(broker, config.getPageViewOutputTopic())) {
+            Launcher launcher = new Launcher(application, probe, work, broker, config, output);
+            launcher.timeToFirstRecord(Variant.BASELINE);
+            for (int run = 0; run < runs; run++) {
+                for (Variant variant : Variant.values()) {
+                    millis.computeIfAbsent(variant, v -> new ArrayList<>()).add(launcher.timeToFirstRecord(variant));
+                }
+            }
+        } finally {
+            broker.destroy();
+        }
+        FileSystemUtils.deleteRecursively(work);
+
+        long baseline = median(millis.get(Variant.BASELINE));
+        System.out.printf("%nTime to the first processed page view over %d runs, in ms%n", runs);
+        System.out.printf("%-14s %8s %8s %8s %12s%n", "variant", "median", "min", "max", "vs baseline");
+        millis.forEach((variant, times) -> System.out.printf("%-14s %8d %8d %8d %11.0f%%%n", variant, median(times),
+                times.stream().mapToLong(Long::longValue).min().orElseThrow(),
+                times.stream().mapToLong(Long::longValue).max().orElseThrow(),
+                100.0 * (median(times) - baseline) / baseline));
+    }
+
+    /**
+     * Starts aggregator processes and waits for their first output.
+     */
+    private static final class Launcher {
+
+        private final Path application;
+        private final Path probe;
+        private final Path work;
+        private final EmbeddedKafkaBroker broker;
+        private final KafkaStreamsConfig config;
+        private final KafkaConsumer<byte[], byte[]> output;
+        private int launches;
+
+        Launcher(Path application, Path probe, Path work, EmbeddedKafkaBroker broker, KafkaStreamsConfig config,
+                 KafkaConsumer<byte[], byte[]> output) {
+            this.application = application;
+            this.probe = probe;
+            this.work = work;
+            this.broker = broker;
+            this.config = config;
+            this.output = output;
+        }
+
+        long timeToFirstRecord(Variant variant) throws IOException, InterruptedException {
+            int launch = ++launches;
+            List<String> command = new ArrayList<>(List.of(javaCommand()));
+            if (variant.cds) {
+                command.add("-XX:SharedArchiveFile=app.jsa");
+            }
+            if (variant.aot) {
+                command.add("-Dspring.aot.enabled=true");
+            }
+            command.addAll(List.of(
+                    "-Dstartup-probe.bootstrap-servers=" + broker.getBrokersAsString(),
+                    "-Dstartup-probe.topic=" + config.getPageViewInputTopic(),
+                    "-Dstartup-probe.schema-registry-url=" + SCHEMA_REGISTRY_URL,
+                    // The dump time classpath followed by the probe, so that the archive still applies
+                    "-cp", "app.jar" + File.pathSeparator + probe,
+                    StartupProbe.class.getName(),
+                    "--kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                    "--kafka.schema-registry-url=" + SCHEMA_REGISTRY_URL,
+                    "--kafka.security-protocol=PLAINTEXT",
+                    "--kafka.sasl-jaas-config=",
+                    "--kafka.basic-auth-user-info=",
+                    "--kafka.replication-factor=1",
+                    "--kafka.min-insync-replicas=1",
+                    "--kafka.tuning-profile=LATENCY",
+                    "--kafka.application-id=startup-benchmark-" + launch,
+                    "--kafka.state-dir=" + work.resolve("state-" + launch),
+                    "--server.port=0"));
+            Path log = work.resolve("launch-" + launch + ".log");
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .directory(application.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile());
+            builder.environment().put("AWS_REGION", "us-east-1");
+
+            output.seekToEnd(output.assignment());
+            output.assignment().forEach(output::position);
+            long start = System.nanoTime();
+            Process process = builder.start();
+            try {
+                while (output.poll(Duration.ofMillis(10)).isEmpty()) {
+                    if (!process.isAlive() || System.nanoTime() - start > RUN_TIMEOUT.toNanos()) {
+                        throw new IllegalStateException(
+                                variant + " aggregator did not process a page view, see " + log);
+                    }
+                }
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            } finally {
+                process.destroy();
+                if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                    process.destroyForcibly().waitFor();
+                }
+            }
+        }
+    }
+
+    private static Path execJar(Path target) throws IOException {
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(file -> file.getFileName().toString().endsWith("-exec.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No executable jar in " + target
+                            + ", package page-view-aggregator first or set -Dstartup.exec-jar"));
+        }
+    }
+
+    private static void java(Path directory, Path log, Map<String, String> environment, String... args)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(javaCommand()));
+        command.addAll(List.of(args));
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        builder.environment().putAll(environment);
+        int exitCode = builder.start().waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException(String.join(" ", args) + " exited with " + exitCode + ", see " + log);
+        }
+    }
+
+    private static String javaCommand() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    /**
+     * Writes the probe's class file to a directory of its own, so that the aggregator's classpath only gains that
+     * class, whether this runs from the classes directory or the shaded jar.
+     */
+    private static Path copyProbe(Path directory) throws IOException {
+        Path classFile = directory.resolve(StartupProbe.class.getName().replace('.', '/') + ".class");
+        Files.createDirectories(classFile.getParent());
+        try (InputStream in = StartupProbe.class.getResourceAsStream(StartupProbe.class.getSimpleName() + ".class")) {
+            Files.copy(in, classFile);
+        }
+        return directory;
+    }
+
+    /**
+     * The aggregator's {@code kafka} settings from its {@code application.yaml}, with the defaults of unset
+     * environment variables.
+     */
+    private static KafkaStreamsConfig aggregatorConfig() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        for (PropertySource<?> source : new YamlPropertySourceLoader()
+                .load("application.yaml", new ClassPathResource("application.yaml"))) {
+            environment.getPropertySources().addLast(source);
+        }
+        return Binder.get(environment).bindOrCreate("kafka", KafkaStreamsConfig.class);
+    }
+
+    /**
+     * The input and output topics, as the {@code local} profile creates them. AOT processing fixes the profile to
+     * the default one, so the aggregator cannot create them itself.
+     */
+    private static String[] topics(KafkaStreamsConfig config) {
+        return new LocalTopicsConfig().topics(config).stream()
+                .map(NewTopic::name)
+                .toArray(String[]::new);
+    }
+
+    private static KafkaConsumer<byte[], byte[]> outputConsumer(EmbeddedKafkaBroker broker, String topic) {
+        KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(
+                Map.of(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()),
+                new ByteArrayDeserializer(), new ByteArrayDeserializer());
+        consumer.assign(consumer.partitionsFor(topic).stream()
+                .map(partition -> new TopicPartition(topic, partition.partition()))
+                .toList());
+        return consumer;
+    }
+
+    private static long median(List<Long> times) {
+        return times.stream().sorted().toList().get(times.size() / 2);
+    }
+}
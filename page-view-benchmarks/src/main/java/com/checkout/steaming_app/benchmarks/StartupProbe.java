@@ -0,0 +1,47 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.SteamingAppApplication;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.util.Map;
+
+/**
+ * Main class of the aggregator processes started by {@link StartupBenchmark}. The {@code mock://} schema registry
+ * lives in one JVM, so the page view the aggregator is timed on is published from its own process, with
+ * {@code -Dstartup-probe.bootstrap-servers}, {@code -Dstartup-probe.topic} and
+ * {@code -Dstartup-probe.schema-registry-url}. {@link SteamingAppApplication} then runs with the arguments.
+ * <p>
+ * It runs on the aggregator's classpath, so it only uses classes from there and is a single class file.
+ */
+public final class StartupProbe {
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Object> props = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, System.getProperty("startup-probe.bootstrap-servers"),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class,
+                AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG,
+                System.getProperty("startup-probe.schema-registry-url"));
+        PageViewEvent event = PageViewEvent.newBuilder()
+                .setUserId(1)
+                .setPostcode("SW19 1AA")
+                .setWebpage("www.website.com/index.html")
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+        try (KafkaProducer<String, PageViewEvent> producer = new KafkaProducer<>(props)) {
+            producer.send(new ProducerRecord<>(System.getProperty("startup-probe.topic"),
+                    event.getPostcode().toString(), event)).get();
+        }
+        // Called rather than SpringApplication.run, so that the application class is the one AOT processed
+        SteamingAppApplication.main(args);
+    }
+}
@@ -0,0 +1,57 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.topology.PageViewTopology.PageViewEventTimestampExtractor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading the event time from a deserialized page view, and of the fallback to the partition time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampExtractorBenchmark {
+
+    private static final long PARTITION_TIME = 1_735_725_600_000L;
+
+    private final PageViewEventTimestampExtractor extractor = new PageViewEventTimestampExtractor();
+    private ConsumerRecord<Object, Object> pageViewRecord;
+    private ConsumerRecord<Object, Object> otherRecord;
+
+    @Setup
+    public void setUp() {
+        PageViewEvent event = PageViewEvent.newBuilder()
+                .setUserId(123_456)
+                .setPostcode("SW19")
+                .setWebpage("www.website.com/index.html")
+                .setTimestamp(PARTITION_TIME + 1_000)
+                .build();
+        pageViewRecord = new ConsumerRecord<>("benchmark.page-view", 0, 0L, "SW19", event);
+        otherRecord = new ConsumerRecord<>("benchmark.page-view", 0, 1L, "SW19", "not a page view");
+    }
+
+    @Benchmark
+    public long extractPageViewEvent() {
+        return extractor.extract(pageViewRecord, PARTITION_TIME);
+    }
+
+    @Benchmark
+    public long extractFallback() {
+        return extractor.extract(otherRecord, PARTITION_TIME);
+    }
+}
@@ -0,0 +1,167 @@
+package com.checkout.steaming_app.benchmarks;
+
+import com.checkout.events.AggregatedPageViewEvent;
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.LoadGeneratorProperties;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.ProducerListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pushes {@code -Dsoak.events} (default 1,000,000) page views through the {@link LocalStack} at
+ * {@code -Dsoak.events-per-second} (default 20,000), and asserts that the aggregator reads them at no less than
+ * {@code -Dsoak.min-events-per-second} (default 1,000) over every 30 second interval, and that its final per postcode
+ * counts match those of the acknowledged events exactly.
+ * Excluded from the default build; run with {@code mvn -pl page-view-benchmarks -am test -Pbenchmark}.
+ */
+class LocalStackSoakBenchmark {
+
+    private static final long EVENTS = Long.getLong("soak.events", 1_000_000);
+    private static final int EVENTS_PER_SECOND = Integer.getInteger("soak.events-per-second", 20_000);
+    private static final long MIN_EVENTS_PER_SECOND = Long.getLong("soak.min-events-per-second", 1_000);
+    private static final int PARTITIONS = 4;
+    private static final int POSTCODES = 10_000;
+    private static final int SAMPLE_WINDOW_SECONDS = 30;
+    private static final long WINDOW_SIZE_MS = 60_000;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(5);
+
+    @TempDir
+    Path stateDir;
+
+    @Test
+    void sustainsThroughputWithExactCounts() throws Exception {
+        try (LocalStack stack = LocalStack.start(PARTITIONS, "server.port=0", "kafka.state-dir=" + stateDir)) {
+            Map<String, LongAdder> expectedCounts = new ConcurrentHashMap<>();
+            KafkaTemplate<String, PageViewEvent> template = stack.publisherTemplate();
+            template.setProducerListener(new ProducerListener<>() {
+                @Override
+                public void onSuccess(ProducerRecord<String, PageViewEvent> record, RecordMetadata metadata) {
+                    expectedCounts.computeIfAbsent(countKey(record.key(), windowStart(record.value().getTimestamp())),
+                            key -> new LongAdder()).increment();
+                }
+            });
+
+            LoadGeneratorProperties load = new LoadGeneratorProperties();
+            load.setEnabled(true);
+            load.setEventsPerSecond(EVENTS_PER_SECOND);
+            load.setDurationMs(EVENTS * 1_000 / EVENTS_PER_SECOND);
+            load.setPostcodes(POSTCODES);
+            CompletableFuture<Void> publishing = CompletableFuture.runAsync(() -> {
+                try {
+                    stack.publish(template, load);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            // Ingested page views once a second, from the first one read to the last
+            List<Long> ingested = new ArrayList<>();
+            long deadline = System.nanoTime() + Duration.ofMillis(load.getDurationMs()).plus(DRAIN_TIMEOUT).toNanos();
+            while (!(publishing.isDone() && stack.ingested() >= acknowledged(expectedCounts))
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(1_000);
+                long total = stack.ingested();
+                if (total > 0) {
+                    ingested.add(total);
+                }
+            }
+            publishing.join();
+
+            long acknowledged = acknowledged(expectedCounts);
+            long slowestWindow = slowestWindowEventsPerSecond(ingested);
+            System.out.printf("%nPublished %d page views, aggregated %d in about %d s: %d events/s on average, "
+                            + "%d events/s in the slowest %d s%n", acknowledged, stack.ingested(), ingested.size(),
+                    acknowledged / Math.max(1, ingested.size()), slowestWindow, SAMPLE_WINDOW_SECONDS);
+
+            assertThat(acknowledged).isEqualTo(EVENTS);
+            assertThat(stack.ingested()).isEqualTo(acknowledged);
+            assertThat(slowestWindow).isGreaterThanOrEqualTo(MIN_EVENTS_PER_SECOND);
+
+            Map<String, Long> expected = new HashMap<>();
+            expectedCounts.forEach((key, count) -> expected.put(key, count.sum()));
+            assertThat(finalCounts(stack, expected)).isEqualTo(expected);
+        }
+    }
+
+    /**
+     * The lowest rate over any {@value #SAMPLE_WINDOW_SECONDS} second interval, leaving out the last interval during
+     * which the aggregator may only be draining the tail of the input.
+     */
+    private static long slowestWindowEventsPerSecond(List<Long> ingested) {
+        long slowest = Long.MAX_VALUE;
+        for (int i = 0; i + SAMPLE_WINDOW_SECONDS < ingested.size() - 1; i++) {
+            long events = ingested.get(i + SAMPLE_WINDOW_SECONDS) - ingested.get(i);
+            slowest = Math.min(slowest, events / SAMPLE_WINDOW_SECONDS);
+        }
+        return slowest == Long.MAX_VALUE ? 0 : slowest;
+    }
+
+    /**
+     * Reads the output topic until the latest count of every postcode and window matches, or the drain timeout
+     * passes, and returns the latest counts.
+     */
+    private static Map<String, Long> finalCounts(LocalStack stack, Map<String, Long> expected) {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, stack.bootstrapServers());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "soak-benchmark");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KafkaAvroDeserializer.class);
+        props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, LocalStack.SCHEMA_REGISTRY_URL);
+        props.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
+
+        Map<String, Long> counts = new HashMap<>();
+        try (KafkaConsumer<String, AggregatedPageViewEvent> consumer = new KafkaConsumer<>(props)) {
+            consumer.subscribe(List.of(stack.aggregatorConfig().getPageViewOutputTopic()));
+            long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+            while (!counts.equals(expected) && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, AggregatedPageViewEvent> record : consumer.poll(Duration.ofSeconds(1))) {
+                    AggregatedPageViewEvent count = record.value();
+                    counts.put(countKey(count.getPostcode().toString(), count.getAggregationWindow().toEpochMilli()),
+                            (long) count.getPageViewCount());
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static long acknowledged(Map<String, LongAdder> expectedCounts) {
+        return expectedCounts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    private static long windowStart(long timestamp) {
+        return timestamp - timestamp % WINDOW_SIZE_MS;
+    }
+
+    private static String countKey(String postcode, long windowStart) {
+        return postcode + "@" + windowStart;
+    }
+}
@@ -0,0 +1,22 @@
+package com.checkout.steaming_app.capture;
+
+/**
+ * Layout of a capture file, a recording of page views that can be replayed as captured.
+ * <p>
+ * The file starts with {@link #MAGIC}, {@link #VERSION} and the length and JSON of the Avro schema the values are
+ * written with. Each record follows as its length, excluding the length itself, the capture timestamp, the length and
+ * UTF-8 bytes of the key, and the Avro binary encoding of the value without the schema registry framing. Integers are
+ * big-endian.
+ */
+final class CaptureFile {
+
+    /** {@code PVCP} in ASCII. */
+    static final int MAGIC = 0x50564350;
+    static final int VERSION = 1;
+    /** Timestamp and key length of a record, ahead of its key. */
+    static final int RECORD_OVERHEAD = Long.BYTES + Short.BYTES;
+    static final int MAX_KEY_LENGTH = 0xFFFF;
+
+    private CaptureFile() {
+    }
+}
@@ -0,0 +1,108 @@
+package com.checkout.steaming_app.capture;
+
+import org.apache.avro.Schema;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a capture file through a memory mapping, handing out the key and value of each record as slices of it, so
+ * that reading the file copies nothing onto the heap. Files beyond 2 GB, the limit of a single mapping, are mapped
+ * one region at a time; a region always starts at a record.
+ */
+public class CaptureFileReader implements Iterator<CapturedRecord>, Closeable {
+
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final long size;
+    private final Schema schema;
+    private MappedByteBuffer region;
+    private long regionStart;
+
+    public CaptureFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            map(0);
+            if (region.remaining() < 3 * Integer.BYTES || region.getInt() != CaptureFile.MAGIC) {
+                throw new IOException(file + " is not a capture file");
+            }
+            int version = region.getInt();
+            if (version != CaptureFile.VERSION) {
+                throw new IOException(file + " is a version " + version + " capture file, only version "
+                        + CaptureFile.VERSION + " can be read");
+            }
+            byte[] schemaJson = new byte[region.getInt()];
+            region.get(schemaJson);
+            this.schema = new Schema.Parser().parse(new String(schemaJson, StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Schema the values are written with.
+     */
+    public Schema schema() {
+        return schema;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return regionStart + region.position() < size;
+    }
+
+    /**
+     * The next record, whose slices stay readable after the reader is closed.
+     */
+    @Override
+    public CapturedRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (region.remaining() < Integer.BYTES
+                || region.remaining() - Integer.BYTES < region.getInt(region.position())) {
+            // The record runs past this region, which only happens when the file was too large to map at once
+            map(regionStart + region.position());
+        }
+        long position = regionStart + region.position();
+        int length = region.remaining() < Integer.BYTES ? -1 : region.getInt();
+        if (length < CaptureFile.RECORD_OVERHEAD || length > region.remaining()) {
+            throw new IllegalStateException("Truncated or corrupt capture record at byte " + position);
+        }
+        long timestampMs = region.getLong();
+        int keyLength = Short.toUnsignedInt(region.getShort());
+        int valueLength = length - CaptureFile.RECORD_OVERHEAD - keyLength;
+        if (valueLength < 0) {
+            throw new IllegalStateException("Corrupt capture record at byte " + position);
+        }
+        int keyStart = region.position();
+        region.position(keyStart + keyLength + valueLength);
+        return new CapturedRecord(timestampMs, region.slice(keyStart, keyLength),
+                region.slice(keyStart + keyLength, valueLength));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long start) {
+        try {
+            region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, MAX_REGION_SIZE));
+            regionStart = start;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map the capture file from byte " + start, e);
+        }
+    }
+}
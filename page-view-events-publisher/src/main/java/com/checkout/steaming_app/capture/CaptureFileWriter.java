@@ -0,0 +1,87 @@
+package com.checkout.steaming_app.capture;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes page views to a new capture file, see {@link CaptureFile} for the layout. Records are written in the order
+ * of the calls, which may come from several threads.
+ */
+public class CaptureFileWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private final SpecificDatumWriter<IndexedRecord> datumWriter;
+    private final ByteArrayOutputStream value = new ByteArrayOutputStream();
+    // A lock rather than synchronized, so the load generator's virtual threads do not pin their carrier on a write
+    private final ReentrantLock lock = new ReentrantLock();
+    private BinaryEncoder encoder;
+    private long records;
+
+    public CaptureFileWriter(Path file, Schema schema) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+        this.datumWriter = new SpecificDatumWriter<>(schema);
+        byte[] schemaJson = schema.toString().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(CaptureFile.MAGIC);
+        out.writeInt(CaptureFile.VERSION);
+        out.writeInt(schemaJson.length);
+        out.write(schemaJson);
+    }
+
+    /**
+     * Appends a record, {@code value} being a record of the file's schema.
+     */
+    public void write(long timestampMs, String key, IndexedRecord value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > CaptureFile.MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key of " + keyBytes.length + " bytes is too long to capture");
+        }
+        lock.lock();
+        try {
+            this.value.reset();
+            encoder = EncoderFactory.get().directBinaryEncoder(this.value, encoder);
+            datumWriter.write(value, encoder);
+            out.writeInt(CaptureFile.RECORD_OVERHEAD + keyBytes.length + this.value.size());
+            out.writeLong(timestampMs);
+            out.writeShort(keyBytes.length);
+            out.write(keyBytes);
+            this.value.writeTo(out);
+            records++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long records() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            out.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
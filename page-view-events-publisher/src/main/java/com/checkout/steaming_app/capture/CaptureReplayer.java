@@ -0,0 +1,169 @@
+package com.checkout.steaming_app.capture;
+
+import com.checkout.steaming_app.config.CaptureProperties;
+import com.checkout.steaming_app.config.KafkaProducerConfig;
+import com.checkout.steaming_app.config.KafkaProducerProperties;
+import com.checkout.steaming_app.config.ReplayPace;
+import com.checkout.steaming_app.service.BatchPublishResult;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.serialization.ByteBufferSerializer;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes the page views of the capture file at {@code capture.file} to the page view topic, in the order and, unless
+ * {@code capture.pace} is {@code MAXIMUM}, with the gaps they were captured with. Then logs the achieved throughput
+ * and the send-to-acknowledgement latency percentiles, like the load generator.
+ * <p>
+ * The capture's schema is registered with the target registry, and the captured values are sent as they are behind
+ * its schema id, without being decoded. The record timestamps are the time of the replay; the page views keep their
+ * captured event times, which the aggregator windows by.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "capture", name = "mode", havingValue = "REPLAY")
+public class CaptureReplayer implements ApplicationRunner {
+
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+    /** Magic byte and schema id that {@code KafkaAvroSerializer} writes ahead of the Avro encoding. */
+    private static final int FRAMING_LENGTH = 1 + Integer.BYTES;
+
+    private final KafkaProducerConfig producerConfig;
+    private final KafkaProducerProperties kafkaProperties;
+    private final CaptureProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException, InterruptedException {
+        Path file = properties.getFile();
+        Map<String, Object> producerProps = producerConfig.producerProps();
+        byte[] framing = framing(file, producerProps);
+        if (framing == null) {
+            log.warn("Capture file {} holds no page views", file);
+            return;
+        }
+        DefaultKafkaProducerFactory<ByteBuffer, ByteBuffer> producerFactory = new DefaultKafkaProducerFactory<>(
+                producerProps, new ByteBufferSerializer(), new SchemaRegistryFramingSerializer(framing));
+        try (CaptureFileReader reader = new CaptureFileReader(file)) {
+            replay(reader, new KafkaTemplate<>(producerFactory));
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    /**
+     * Sends every record of {@code reader}, waits for them to be acknowledged and logs how the replay went.
+     */
+    BatchPublishResult replay(CaptureFileReader reader, KafkaTemplate<ByteBuffer, ByteBuffer> template)
+            throws InterruptedException {
+        // Captured milliseconds to replayed nanoseconds, 0 when page views are not paced
+        double nanosPerCapturedMs = switch (properties.getPace()) {
+            case ORIGINAL -> 1e6;
+            case SCALED -> 1e6 / properties.getSpeedFactor();
+            case MAXIMUM -> 0;
+        };
+        Semaphore inFlight = new Semaphore(properties.getMaxInFlight());
+        Histogram latencyMicros = new ConcurrentHistogram(3);
+        AtomicLong failures = new AtomicLong();
+
+        log.info("Replaying {} at {} pace", properties.getFile(), properties.getPace() == ReplayPace.SCALED
+                ? properties.getSpeedFactor() + "x" : properties.getPace());
+        long start = System.nanoTime();
+        long firstTimestampMs = 0;
+        long sent = 0;
+        while (reader.hasNext()) {
+            CapturedRecord record = reader.next();
+            if (sent == 0) {
+                firstTimestampMs = record.timestampMs();
+            }
+            if (nanosPerCapturedMs > 0) {
+                LockSupport.parkNanos(start + (long) ((record.timestampMs() - firstTimestampMs) * nanosPerCapturedMs)
+                        - System.nanoTime());
+            }
+            inFlight.acquire();
+            send(template, record, inFlight, latencyMicros, failures);
+            sent++;
+        }
+        template.flush();
+        if (!inFlight.tryAcquire(properties.getMaxInFlight(), DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Gave up waiting for {} unacknowledged sends",
+                    properties.getMaxInFlight() - inFlight.availablePermits());
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long acknowledged = latencyMicros.getTotalCount();
+        log.info("Replayed {} of {} page views in {} s: {} events/s, {} failed", acknowledged, sent,
+                String.format("%.1f", elapsedSeconds), String.format("%.0f", acknowledged / elapsedSeconds),
+                failures.get());
+        log.info("Send-ack latency: p50={} ms p99={} ms p999={} ms max={} ms",
+                millis(latencyMicros.getValueAtPercentile(50)), millis(latencyMicros.getValueAtPercentile(99)),
+                millis(latencyMicros.getValueAtPercentile(99.9)), millis(latencyMicros.getMaxValue()));
+        return new BatchPublishResult(acknowledged, failures.get());
+    }
+
+    private void send(KafkaTemplate<ByteBuffer, ByteBuffer> template, CapturedRecord record, Semaphore inFlight,
+                      Histogram latencyMicros, AtomicLong failures) {
+        long sentAt = System.nanoTime();
+        template.send(kafkaProperties.getTopicName(), record.key(), record.value())
+                .whenComplete((result, ex) -> {
+                    inFlight.release();
+                    if (ex != null) {
+                        // Only the first failure is logged in full, a broken cluster would otherwise flood the log
+                        if (failures.getAndIncrement() == 0) {
+                            log.error("Failed to publish captured page view key={}",
+                                    StandardCharsets.UTF_8.decode(record.key().duplicate()), ex);
+                        }
+                    } else {
+                        latencyMicros.recordValue((System.nanoTime() - sentAt) / 1_000);
+                    }
+                });
+    }
+
+    /**
+     * Registers the capture's schema by serializing its first page view, and returns the framing the registry's
+     * serializer puts ahead of the values, or null for a capture without page views.
+     */
+    byte[] framing(Path file, Map<String, Object> producerProps) throws IOException {
+        try (CaptureFileReader reader = new CaptureFileReader(file);
+             KafkaAvroSerializer serializer = new KafkaAvroSerializer()) {
+            if (!reader.hasNext()) {
+                return null;
+            }
+            Schema schema = reader.schema();
+            ByteBuffer value = reader.next().value();
+            byte[] bytes = new byte[value.remaining()];
+            value.get(bytes);
+            GenericRecord first = new GenericDatumReader<GenericRecord>(schema)
+                    .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+            serializer.configure(producerProps, false);
+            return Arrays.copyOf(serializer.serialize(kafkaProperties.getTopicName(), first), FRAMING_LENGTH);
+        }
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1_000.0);
+    }
+}
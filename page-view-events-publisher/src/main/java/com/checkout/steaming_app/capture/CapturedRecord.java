@@ -0,0 +1,14 @@
+package com.checkout.steaming_app.capture;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A record of a capture file. The key and value are slices of the memory-mapped file rather than copies, so they can
+ * be handed to the producer as they are.
+ *
+ * @param timestampMs when the page view was sent, or its event time if it was captured from the archive
+ * @param key         the UTF-8 postcode
+ * @param value       the Avro binary encoding of the page view, in the schema of the capture file
+ */
+public record CapturedRecord(long timestampMs, ByteBuffer key, ByteBuffer value) {
+}
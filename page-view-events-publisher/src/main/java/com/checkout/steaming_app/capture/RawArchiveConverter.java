@@ -0,0 +1,121 @@
+package com.checkout.steaming_app.capture;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.CaptureProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Writes the raw page views archived by {@code page-view-raw-s3-sink-connector.json} into a capture file, so that a
+ * production traffic shape can be replayed. The archive is read from {@code capture.archive-dir}, a local copy of the
+ * bucket or of a part of it, e.g. fetched with {@code aws s3 sync}. Objects of the {@code avro} and {@code json} sink
+ * profiles, gzipped or not, are read in any directory below it. Parquet objects need Hadoop and are skipped, which is
+ * why the sink's {@code start.sh} archives the raw page views with the avro profile unless {@code RAW_SINK_PROFILE}
+ * says otherwise.
+ * <p>
+ * The archive is partitioned by postcode and keeps no arrival times, so the page views are captured in event time
+ * order, with their event time as capture timestamp. They are sorted in memory, so the archive copy should be limited
+ * to the hours to replay.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "capture", name = "mode", havingValue = "CONVERT_ARCHIVE")
+public class RawArchiveConverter implements ApplicationRunner {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final CaptureProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        long captured = convert(properties.getArchiveDir(), properties.getFile());
+        log.info("Captured {} archived page views from {} into {}", captured, properties.getArchiveDir(),
+                properties.getFile());
+    }
+
+    /**
+     * Captures the page views archived under {@code archiveDir} into {@code captureFile}, and returns how many.
+     */
+    public static long convert(Path archiveDir, Path captureFile) throws IOException {
+        List<PageViewEvent> events = new ArrayList<>();
+        int skipped = 0;
+        try (Stream<Path> objects = Files.walk(archiveDir)) {
+            for (Path object : objects.filter(Files::isRegularFile).sorted().toList()) {
+                String name = object.getFileName().toString();
+                String format = name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+                if (format.endsWith(".avro")) {
+                    readAvro(object, events);
+                } else if (format.endsWith(".json")) {
+                    readJson(object, events);
+                } else if (format.endsWith(".parquet")) {
+                    skipped++;
+                }
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} Parquet objects, which need Hadoop to read. Archive with RAW_SINK_PROFILE avro or json "
+                    + "to capture them", skipped);
+        }
+
+        events.sort(Comparator.comparingLong(PageViewEvent::getTimestamp));
+        try (CaptureFileWriter writer = new CaptureFileWriter(captureFile, PageViewEvent.getClassSchema())) {
+            for (PageViewEvent event : events) {
+                writer.write(event.getTimestamp(), event.getPostcode().toString(), event);
+            }
+            return writer.records();
+        }
+    }
+
+    /**
+     * Reads an Avro container file, resolving its writer schema against {@code PageViewEvent}.
+     */
+    private static void readAvro(Path object, List<PageViewEvent> events) throws IOException {
+        try (DataFileStream<PageViewEvent> records =
+                     new DataFileStream<>(open(object), new SpecificDatumReader<>(PageViewEvent.class))) {
+            records.forEach(events::add);
+        }
+    }
+
+    /**
+     * Reads the schemaless JSON objects the sink writes one per line.
+     */
+    private static void readJson(Path object, List<PageViewEvent> events) throws IOException {
+        try (MappingIterator<JsonNode> records = MAPPER.readerFor(JsonNode.class).readValues(open(object))) {
+            while (records.hasNext()) {
+                JsonNode record = records.next();
+                events.add(PageViewEvent.newBuilder()
+                        .setUserId(record.required("user_id").asInt())
+                        .setPostcode(record.required("postcode").asText())
+                        .setWebpage(record.required("webpage").asText())
+                        .setTimestamp(record.required("timestamp").asLong())
+                        .build());
+            }
+        }
+    }
+
+    private static InputStream open(Path object) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(object));
+        return object.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(in) : in;
+    }
+}
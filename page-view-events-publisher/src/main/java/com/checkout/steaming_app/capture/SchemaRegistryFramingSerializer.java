@@ -0,0 +1,33 @@
+package com.checkout.steaming_app.capture;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sends captured Avro values the way {@code KafkaAvroSerializer} would have written them: the magic byte and schema id
+ * of the target registry, then the value's bytes as captured. The producer needs a byte array, so the value is copied
+ * once, straight from the mapped capture file into it, and is never decoded.
+ */
+class SchemaRegistryFramingSerializer implements Serializer<ByteBuffer> {
+
+    private final byte[] header;
+
+    /**
+     * @param header the first bytes of any value serialized by {@code KafkaAvroSerializer} with the capture's schema
+     */
+    SchemaRegistryFramingSerializer(byte[] header) {
+        this.header = header.clone();
+    }
+
+    @Override
+    public byte[] serialize(String topic, ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] framed = new byte[header.length + value.remaining()];
+        System.arraycopy(header, 0, framed, 0, header.length);
+        value.get(value.position(), framed, header.length, value.remaining());
+        return framed;
+    }
+}
@@ -0,0 +1,27 @@
+package com.checkout.steaming_app.config;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings of the batch publish API of {@link com.checkout.steaming_app.service.PageViewEventsPublishService}.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "batch-publish")
+public class BatchPublishProperties {
+
+    /**
+     * Sends awaiting an acknowledgement, across all batches, before the callers block.
+     */
+    @Positive
+    private int maxInFlight = 10_000;
+
+    /**
+     * One in this many acknowledged sends is logged, with the batch's progress.
+     */
+    @Positive
+    private long successLogInterval = 10_000;
+}
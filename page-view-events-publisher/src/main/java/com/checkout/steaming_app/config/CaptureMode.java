@@ -0,0 +1,19 @@
+package com.checkout.steaming_app.config;
+
+/**
+ * What the publisher does with the capture file at {@code capture.file}.
+ */
+public enum CaptureMode {
+
+    /** No capture file is read or written. */
+    OFF,
+
+    /** The load generator also writes every page view it sends to the capture file. Requires {@code load-generator.enabled}. */
+    RECORD,
+
+    /** The page views of the capture file are published in place of the sample or generated ones. */
+    REPLAY,
+
+    /** The raw page views archived by the S3 sink under {@code capture.archive-dir} are written to the capture file. */
+    CONVERT_ARCHIVE
+}
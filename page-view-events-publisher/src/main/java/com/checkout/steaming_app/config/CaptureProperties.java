@@ -0,0 +1,58 @@
+package com.checkout.steaming_app.config;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the capture files that make load tests reproducible: a load generator run or a slice of the raw S3
+ * archive is captured once, and replayed against every aggregator build.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "capture")
+public class CaptureProperties {
+
+    @NotNull
+    private CaptureMode mode = CaptureMode.OFF;
+
+    /**
+     * Capture file written by {@code RECORD} and {@code CONVERT_ARCHIVE}, and read by {@code REPLAY}.
+     */
+    private Path file;
+
+    /**
+     * Local copy of the raw page view bucket, or of a prefix of it, read by {@code CONVERT_ARCHIVE}.
+     */
+    private Path archiveDir;
+
+    @NotNull
+    private ReplayPace pace = ReplayPace.ORIGINAL;
+
+    /**
+     * How many times faster than captured a {@code SCALED} replay runs.
+     */
+    @Positive
+    private double speedFactor = 1.0;
+
+    /**
+     * Replayed sends awaiting an acknowledgement before the replay blocks, bounding the producer's buffered records.
+     */
+    @Positive
+    private int maxInFlight = 10_000;
+
+    @AssertTrue(message = "capture.file must be set unless capture.mode is OFF")
+    public boolean isFileSetWhenEnabled() {
+        return mode == null || mode == CaptureMode.OFF || file != null;
+    }
+
+    @AssertTrue(message = "capture.archive-dir must be set when capture.mode is CONVERT_ARCHIVE")
+    public boolean isArchiveDirSetWhenConverting() {
+        return mode != CaptureMode.CONVERT_ARCHIVE || archiveDir != null;
+    }
+}
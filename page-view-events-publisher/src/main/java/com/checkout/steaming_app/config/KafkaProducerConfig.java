@@ -8,6 +8,7 @@ import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.CommonClientConfigs;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.config.SaslConfigs;
+import org.apache.kafka.common.serialization.IntegerSerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -21,19 +22,53 @@ import java.util.Map;
 
 @Configuration
 @RequiredArgsConstructor
-@EnableConfigurationProperties(KafkaProducerProperties.class)
+@EnableConfigurationProperties({KafkaProducerProperties.class, LoadGeneratorProperties.class,
+        BatchPublishProperties.class, CaptureProperties.class})
 public class KafkaProducerConfig {
 
     private final KafkaProducerProperties properties;
 
     @Bean
     public ProducerFactory<String, PageViewEvent> producerFactory() {
+        return new DefaultKafkaProducerFactory<>(producerProps());
+    }
+
+    @Bean
+    public KafkaTemplate<String, PageViewEvent> kafkaTemplate(ProducerFactory<String, PageViewEvent> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Registers postcodes and their ids on {@code kafka.postcode-dictionary-topic}.
+     */
+    @Bean
+    public ProducerFactory<String, Integer> postcodeDictionaryProducerFactory() {
+        Map<String, Object> props = producerProps();
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, IntegerSerializer.class);
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, Integer> postcodeDictionaryTemplate(
+            ProducerFactory<String, Integer> postcodeDictionaryProducerFactory) {
+        return new KafkaTemplate<>(postcodeDictionaryProducerFactory);
+    }
+
+    /**
+     * Settings shared by every producer of the publisher, with the Avro serializer's registry settings.
+     */
+    public Map<String, Object> producerProps() {
         Map<String, Object> props = new HashMap<>();
 
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.getBootstrapServers());
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
         props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, properties.isEnableIdempotence());
+        props.put(ProducerConfig.LINGER_MS_CONFIG, properties.getLingerMs());
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, properties.getBatchSize());
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, properties.getCompressionType());
+        props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, properties.getBufferMemory());
         props.put(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, properties.getSchemaRegistryUrl());
 
         if (properties.isSaslSsl()) {
@@ -47,11 +82,6 @@ public class KafkaProducerConfig {
             props.put(SchemaRegistryClientConfig.USER_INFO_CONFIG, properties.getBasicAuthUserInfo());
         }
 
-        return new DefaultKafkaProducerFactory<>(props);
-    }
-
-    @Bean
-    public KafkaTemplate<String, PageViewEvent> kafkaTemplate(ProducerFactory<String, PageViewEvent> producerFactory) {
-        return new KafkaTemplate<>(producerFactory);
+        return props;
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.checkout.steaming_app.config;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
@@ -33,6 +35,42 @@ public class KafkaProducerProperties {
 
     private String basicAuthUserInfo;
 
+    /**
+     * Compacted topic the postcodes and their ids are registered on before any page view is sent, read by the
+     * aggregator to encode its postcode keys compactly. Unset, nothing is registered.
+     */
+    private String postcodeDictionaryTopic;
+
+    /**
+     * Retried sends are written once and in order per partition. Without it a send retried after a lost
+     * acknowledgement is duplicated, and the aggregator counts the page view twice.
+     */
+    private boolean enableIdempotence = true;
+
+    /**
+     * How long the producer waits for more records to fill a batch. Together with {@link #batchSize} and
+     * {@link #compressionType}, trades a few milliseconds of latency for far fewer, smaller requests under load.
+     */
+    @PositiveOrZero
+    private long lingerMs = 20;
+
+    @Positive
+    private int batchSize = 128 * 1024;
+
+    @NotBlank
+    private String compressionType = "lz4";
+
+    /**
+     * Bytes of unsent records the producer buffers before {@code send} blocks, which must hold the records of every
+     * in-flight send.
+     */
+    @Positive
+    private long bufferMemory = 64L * 1024 * 1024;
+
+    public boolean isPostcodeDictionaryEnabled() {
+        return postcodeDictionaryTopic != null && !postcodeDictionaryTopic.isBlank();
+    }
+
     public boolean isSaslSsl() {
         return "SASL_SSL".equalsIgnoreCase(securityProtocol);
     }
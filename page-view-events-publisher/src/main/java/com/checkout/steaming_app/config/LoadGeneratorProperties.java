@@ -0,0 +1,71 @@
+package com.checkout.steaming_app.config;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Settings of the load generation mode, which replaces the startup sample of ten events with a sustained stream of
+ * page views at a target rate.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "load-generator")
+public class LoadGeneratorProperties {
+
+    private boolean enabled = false;
+
+    @Positive
+    private int eventsPerSecond = 1_000;
+
+    @Positive
+    private long durationMs = 60_000;
+
+    /**
+     * Number of virtual threads sharing the target rate.
+     */
+    @Positive
+    private int concurrency = 4;
+
+    /**
+     * Sends awaiting an acknowledgement before the generator blocks, bounding the producer's buffered records.
+     */
+    @Positive
+    private int maxInFlight = 10_000;
+
+    /**
+     * Number of synthetic postcodes to spread the views over; 0 uses the postcodes of {@code random-postcode.json}.
+     */
+    @PositiveOrZero
+    private int postcodes = 0;
+
+    @NotNull
+    private PostcodeDistribution postcodeDistribution = PostcodeDistribution.UNIFORM;
+
+    @Positive
+    private double zipfExponent = 1.1;
+
+    /**
+     * Event times are moved back by up to this much, so events arrive out of order within the aggregator's grace.
+     */
+    @PositiveOrZero
+    private long maxDisorderMs = 0;
+
+    /**
+     * Share of events whose event time is {@code late-event-delay-ms} in the past.
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double lateEventRatio = 0;
+
+    /**
+     * Defaults to beyond the aggregator's 30 minute grace period, so late events are dropped by the windows.
+     */
+    @PositiveOrZero
+    private long lateEventDelayMs = 45 * 60_000;
+}
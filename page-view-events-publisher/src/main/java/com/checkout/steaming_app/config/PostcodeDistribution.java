@@ -0,0 +1,13 @@
+package com.checkout.steaming_app.config;
+
+/**
+ * How the load generator spreads page views over the postcodes.
+ */
+public enum PostcodeDistribution {
+
+    /** Every postcode is equally likely. */
+    UNIFORM,
+
+    /** The n-th most popular postcode gets views proportional to {@code 1 / n^zipf-exponent}, producing hot keys. */
+    ZIPF
+}
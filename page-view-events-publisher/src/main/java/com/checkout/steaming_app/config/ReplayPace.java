@@ -0,0 +1,16 @@
+package com.checkout.steaming_app.config;
+
+/**
+ * How fast a capture file is replayed.
+ */
+public enum ReplayPace {
+
+    /** Page views are sent as far apart as they were captured. */
+    ORIGINAL,
+
+    /** The captured gaps between page views are divided by {@code capture.speed-factor}. */
+    SCALED,
+
+    /** Page views are sent as fast as the producer and {@code capture.max-in-flight} allow. */
+    MAXIMUM
+}
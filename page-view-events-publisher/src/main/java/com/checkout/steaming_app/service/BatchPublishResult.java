@@ -0,0 +1,7 @@
+package com.checkout.steaming_app.service;
+
+/**
+ * Outcome of a batch publish: the sends the broker acknowledged, and those that failed after the producer's retries.
+ */
+public record BatchPublishResult(long acknowledged, long failed) {
+}
@@ -1,7 +1,11 @@
 package com.checkout.steaming_app.service;
 
 import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.BatchPublishProperties;
+import com.checkout.steaming_app.config.CaptureMode;
+import com.checkout.steaming_app.config.CaptureProperties;
 import com.checkout.steaming_app.config.KafkaProducerProperties;
+import com.checkout.steaming_app.config.LoadGeneratorProperties;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -20,6 +24,9 @@ import java.util.List;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 
 @Slf4j
@@ -28,20 +35,51 @@ public class PageViewEventsPublishService {
 
     private final KafkaTemplate<String, PageViewEvent> kafkaTemplate;
     private final KafkaProducerProperties properties;
+    private final LoadGeneratorProperties loadGeneratorProperties;
+    private final BatchPublishProperties batchProperties;
+    private final PostcodeDictionaryPublisher dictionaryPublisher;
+    private final CaptureProperties captureProperties;
+    /** Unacknowledged sends of all batches. */
+    private final Semaphore inFlight;
+    private final AtomicLong batchAcknowledged = new AtomicLong();
 
     private List<String> postcodes;
 
     private static final Random RANDOM = new Random();
 
-    public PageViewEventsPublishService(KafkaTemplate<String, PageViewEvent> kafkaTemplate, KafkaProducerProperties properties) {
+    public PageViewEventsPublishService(KafkaTemplate<String, PageViewEvent> kafkaTemplate, KafkaProducerProperties properties,
+                                        LoadGeneratorProperties loadGeneratorProperties,
+                                        BatchPublishProperties batchProperties,
+                                        PostcodeDictionaryPublisher dictionaryPublisher,
+                                        CaptureProperties captureProperties) {
+        // Only the load generator writes to the capture file, so a recording would otherwise stay empty
+        if (captureProperties.getMode() == CaptureMode.RECORD && !loadGeneratorProperties.isEnabled()) {
+            throw new IllegalStateException("capture.mode RECORD requires load-generator.enabled");
+        }
         this.kafkaTemplate = kafkaTemplate;
         this.properties = properties;
-        this.postcodes= getPostcodes();
+        this.loadGeneratorProperties = loadGeneratorProperties;
+        this.batchProperties = batchProperties;
+        this.dictionaryPublisher = dictionaryPublisher;
+        this.captureProperties = captureProperties;
+        this.inFlight = new Semaphore(batchProperties.getMaxInFlight());
+        this.postcodes= readPostcodes();
     }
 
     @PostConstruct
     public void loadPostcodes() throws IOException, InterruptedException {
         log.info("Loaded {} postcodes: {}", postcodes.size(), postcodes);
+        // Ids are positions in random-postcode.json, which is only ever appended to
+        dictionaryPublisher.register(postcodes, 0);
+        if (loadGeneratorProperties.isEnabled()) {
+            log.info("Load generator enabled, skipping the sample events");
+            return;
+        }
+        CaptureMode captureMode = captureProperties.getMode();
+        if (captureMode == CaptureMode.REPLAY || captureMode == CaptureMode.CONVERT_ARCHIVE) {
+            log.info("Capture mode {}, skipping the sample events", captureMode);
+            return;
+        }
         int [] count = {0,0,0,0,0};
         for(int i=0;i<10;i++) {
             int index = RANDOM.nextInt(0, count.length);
@@ -72,7 +110,7 @@ public class PageViewEventsPublishService {
             if (ex != null) {
                 log.error("Failed to publish PageViewEvent key={}", key, ex);
             } else {
-                log.info("Published PageViewEvent key={} partition={} offset={}",
+                log.debug("Published PageViewEvent key={} partition={} offset={}",
                         key,
                         result.getRecordMetadata().partition(),
                         result.getRecordMetadata().offset());
@@ -82,7 +120,92 @@ public class PageViewEventsPublishService {
         return future;
     }
 
-    private List<String> getPostcodes(){
+    /**
+     * Publishes the events in order, blocking while {@code batch-publish.max-in-flight} sends are unacknowledged.
+     * The returned future completes once every send has been acknowledged or has failed.
+     */
+    public CompletableFuture<BatchPublishResult> publishAll(List<PageViewEvent> events) {
+        PublishBatch batch = new PublishBatch();
+        try {
+            for (PageViewEvent event : events) {
+                inFlight.acquire();
+                batch.send(event);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.abort(e);
+        }
+        batch.inputEnded();
+        return batch.result;
+    }
+
+    /**
+     * Publishes the events as they are delivered, requesting the next one only once a send may start, so a slow
+     * broker slows the publisher down. The wait for a send to be acknowledged blocks the thread delivering the
+     * events. The returned future fails if the publisher does, and otherwise completes once every send has been
+     * acknowledged or has failed.
+     */
+    public CompletableFuture<BatchPublishResult> publishAll(Flow.Publisher<PageViewEvent> events) {
+        PublishBatch batch = new PublishBatch();
+        events.subscribe(new Flow.Subscriber<>() {
+
+            private Flow.Subscription subscription;
+            private boolean holdsPermit;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                requestNext();
+            }
+
+            @Override
+            public void onNext(PageViewEvent event) {
+                holdsPermit = false;
+                batch.send(event);
+                requestNext();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                releasePermit();
+                batch.abort(throwable);
+                batch.inputEnded();
+            }
+
+            @Override
+            public void onComplete() {
+                releasePermit();
+                batch.inputEnded();
+            }
+
+            private void requestNext() {
+                try {
+                    inFlight.acquire();
+                    holdsPermit = true;
+                    subscription.request(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    subscription.cancel();
+                    batch.abort(e);
+                    batch.inputEnded();
+                }
+            }
+
+            private void releasePermit() {
+                if (holdsPermit) {
+                    holdsPermit = false;
+                    inFlight.release();
+                }
+            }
+        });
+        return batch.result;
+    }
+
+    public List<String> getPostcodes() {
+        return postcodes;
+    }
+
+    private List<String> readPostcodes(){
         ObjectMapper mapper = new ObjectMapper();
         try (InputStream is = new ClassPathResource("random-postcode.json").getInputStream()) {
             return mapper.readValue(is, new TypeReference<>() {});
@@ -90,4 +213,62 @@ public class PageViewEventsPublishService {
             throw new RuntimeException();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The sends of one {@code publishAll} call. Each holds an in-flight permit until it is acknowledged.
+     */
+    private final class PublishBatch {
+
+        private final CompletableFuture<BatchPublishResult> result = new CompletableFuture<>();
+        // One more than the unacknowledged sends until the input has ended, so the batch cannot complete early
+        private final AtomicLong pending = new AtomicLong(1);
+        private final AtomicLong acknowledged = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        void send(PageViewEvent event) {
+            String key = event.getPostcode().toString();
+            pending.incrementAndGet();
+            CompletableFuture<SendResult<String, PageViewEvent>> future;
+            try {
+                future = kafkaTemplate.send(properties.getTopicName(), key, event);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((sendResult, ex) -> {
+                inFlight.release();
+                if (ex != null) {
+                    // Only a batch's first failure is logged in full, a broken cluster would otherwise flood the log
+                    if (failed.getAndIncrement() == 0) {
+                        log.error("Failed to publish PageViewEvent key={}", key, ex);
+                    }
+                } else {
+                    acknowledged.incrementAndGet();
+                    if (batchAcknowledged.incrementAndGet() % batchProperties.getSuccessLogInterval() == 0) {
+                        log.info("Published {} batched page views, latest key={} partition={} offset={}",
+                                batchAcknowledged.get(), key, sendResult.getRecordMetadata().partition(),
+                                sendResult.getRecordMetadata().offset());
+                    }
+                }
+                settled();
+            });
+        }
+
+        void inputEnded() {
+            settled();
+        }
+
+        void abort(Throwable cause) {
+            result.completeExceptionally(cause);
+        }
+
+        private void settled() {
+            if (pending.decrementAndGet() == 0) {
+                if (failed.get() > 0) {
+                    log.warn("Failed to publish {} of {} batched page views", failed.get(),
+                            acknowledged.get() + failed.get());
+                }
+                result.complete(new BatchPublishResult(acknowledged.get(), failed.get()));
+            }
+        }
+    }
+}
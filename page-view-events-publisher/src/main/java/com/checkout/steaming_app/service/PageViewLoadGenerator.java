@@ -0,0 +1,196 @@
+package com.checkout.steaming_app.service;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.capture.CaptureFileWriter;
+import com.checkout.steaming_app.config.CaptureMode;
+import com.checkout.steaming_app.config.CaptureProperties;
+import com.checkout.steaming_app.config.KafkaProducerProperties;
+import com.checkout.steaming_app.config.LoadGeneratorProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Publishes page views at {@code load-generator.events-per-second} for {@code load-generator.duration-ms}, then logs
+ * the achieved throughput and the send-to-acknowledgement latency percentiles.
+ * <p>
+ * The rate is shared by {@code concurrency} virtual threads, each sending every {@code concurrency}-th event of a
+ * fixed schedule. Sends are not awaited individually; at most {@code max-in-flight} may be unacknowledged, beyond
+ * which the threads block and the achieved rate falls below the target.
+ * <p>
+ * With {@code capture.mode: RECORD} every page view is also written to {@code capture.file} as it is sent, so the run
+ * can be replayed exactly.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "load-generator", name = "enabled", havingValue = "true")
+public class PageViewLoadGenerator implements ApplicationRunner {
+
+    private static final int WEBPAGES = 1_000;
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+    /** Dictionary id of the first synthetic postcode, above those of {@code random-postcode.json}. */
+    static final int SYNTHETIC_POSTCODE_FIRST_ID = 1 << 16;
+
+    private final KafkaTemplate<String, PageViewEvent> kafkaTemplate;
+    private final KafkaProducerProperties kafkaProperties;
+    private final LoadGeneratorProperties properties;
+    private final PageViewEventsPublishService publishService;
+    private final PostcodeDictionaryPublisher dictionaryPublisher;
+    private final CaptureProperties captureProperties;
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException, IOException {
+        List<String> postcodes = postcodes();
+        dictionaryPublisher.register(postcodes, properties.getPostcodes() == 0 ? 0 : SYNTHETIC_POSTCODE_FIRST_ID);
+        PostcodeSampler sampler = new PostcodeSampler(postcodes, properties.getPostcodeDistribution(),
+                properties.getZipfExponent());
+        long events = properties.getEventsPerSecond() * properties.getDurationMs() / 1_000;
+        double nanosPerEvent = 1e9 / properties.getEventsPerSecond();
+        int concurrency = properties.getConcurrency();
+
+        Semaphore inFlight = new Semaphore(properties.getMaxInFlight());
+        Histogram latencyMicros = new ConcurrentHistogram(3);
+        AtomicLong failures = new AtomicLong();
+
+        log.info("Generating {} page views at {}/s over {} virtual threads", events, properties.getEventsPerSecond(),
+                concurrency);
+        long start = System.nanoTime();
+        try (CaptureFileWriter capture = captureWriter();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Void>> workers = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                int offset = worker;
+                workers.add(executor.submit(() -> {
+                    for (long i = offset; i < events; i += concurrency) {
+                        LockSupport.parkNanos(start + (long) (i * nanosPerEvent) - System.nanoTime());
+                        inFlight.acquire();
+                        PageViewEvent event = nextEvent(sampler);
+                        if (capture != null) {
+                            capture.write(System.currentTimeMillis(), event.getPostcode().toString(), event);
+                        }
+                        send(event, inFlight, latencyMicros, failures);
+                    }
+                    return null;
+                }));
+            }
+            // Waits for the workers, so that every page view sent is counted
+            executor.close();
+            awaitWorkers(workers);
+            if (capture != null) {
+                log.info("Captured {} page views in {}", capture.records(), captureProperties.getFile());
+            }
+        }
+        kafkaTemplate.flush();
+        if (!inFlight.tryAcquire(properties.getMaxInFlight(), DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Gave up waiting for {} unacknowledged sends",
+                    properties.getMaxInFlight() - inFlight.availablePermits());
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long acknowledged = latencyMicros.getTotalCount();
+        log.info("Published {} of {} page views in {} s: {} events/s (target {}), {} failed",
+                acknowledged, events, String.format("%.1f", elapsedSeconds),
+                String.format("%.0f", acknowledged / elapsedSeconds), properties.getEventsPerSecond(), failures.get());
+        log.info("Send-ack latency: p50={} ms p99={} ms p999={} ms max={} ms",
+                millis(latencyMicros.getValueAtPercentile(50)), millis(latencyMicros.getValueAtPercentile(99)),
+                millis(latencyMicros.getValueAtPercentile(99.9)), millis(latencyMicros.getMaxValue()));
+    }
+
+    private void send(PageViewEvent event, Semaphore inFlight, Histogram latencyMicros, AtomicLong failures) {
+        long sentAt = System.nanoTime();
+        CompletableFuture<?> future;
+        try {
+            future = kafkaTemplate.send(kafkaProperties.getTopicName(), event.getPostcode().toString(), event);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, ex) -> {
+            inFlight.release();
+            if (ex != null) {
+                // Only the first failure is logged in full, a broken cluster would otherwise flood the log
+                if (failures.getAndIncrement() == 0) {
+                    log.error("Failed to publish PageViewEvent key={}", event.getPostcode(), ex);
+                }
+            } else {
+                latencyMicros.recordValue((System.nanoTime() - sentAt) / 1_000);
+            }
+        });
+    }
+
+    /**
+     * Rethrows the failure of the first worker that stopped early, such as one that could not write the capture file,
+     * rather than reporting the page views it never sent as a shorter run.
+     */
+    private static void awaitWorkers(List<Future<Void>> workers) throws InterruptedException, IOException {
+        for (Future<Void> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                switch (e.getCause()) {
+                    case IOException io -> throw io;
+                    case InterruptedException interrupted -> throw interrupted;
+                    case RuntimeException runtime -> throw runtime;
+                    default -> throw new IllegalStateException("Load generator worker failed", e.getCause());
+                }
+            }
+        }
+    }
+
+    private CaptureFileWriter captureWriter() throws IOException {
+        if (captureProperties.getMode() != CaptureMode.RECORD) {
+            return null;
+        }
+        return new CaptureFileWriter(captureProperties.getFile(), PageViewEvent.getClassSchema());
+    }
+
+    private PageViewEvent nextEvent(PostcodeSampler sampler) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long timestamp = System.currentTimeMillis();
+        if (properties.getLateEventRatio() > 0 && random.nextDouble() < properties.getLateEventRatio()) {
+            timestamp -= properties.getLateEventDelayMs();
+        } else if (properties.getMaxDisorderMs() > 0) {
+            timestamp -= random.nextLong(properties.getMaxDisorderMs() + 1);
+        }
+        return PageViewEvent.newBuilder()
+                .setPostcode(sampler.next(random))
+                .setTimestamp(timestamp)
+                .setUserId(random.nextInt(0, Integer.MAX_VALUE))
+                .setWebpage("www.sample.com/" + random.nextInt(WEBPAGES))
+                .build();
+    }
+
+    private List<String> postcodes() {
+        if (properties.getPostcodes() == 0) {
+            return publishService.getPostcodes();
+        }
+        return IntStream.range(0, properties.getPostcodes())
+                .mapToObj(i -> String.format("PC%05d", i))
+                .toList();
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1_000.0);
+    }
+}
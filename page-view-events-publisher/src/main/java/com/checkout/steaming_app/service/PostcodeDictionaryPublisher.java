@@ -0,0 +1,46 @@
+package com.checkout.steaming_app.service;
+
+import com.checkout.steaming_app.config.KafkaProducerProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Registers postcodes and their compact ids on {@code kafka.postcode-dictionary-topic}, which the aggregator encodes its
+ * postcode keys with. Ids must never change, so they are derived from the position of each postcode in an append-only
+ * list; registering the same list again writes the same entries.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostcodeDictionaryPublisher {
+
+    private final KafkaTemplate<String, Integer> postcodeDictionaryTemplate;
+    private final KafkaProducerProperties properties;
+
+    /**
+     * Registers {@code postcodes} under the ids {@code firstId} onwards and waits for the broker to acknowledge them,
+     * so that they are in the dictionary before the page views sent afterwards.
+     */
+    public void register(List<String> postcodes, int firstId) {
+        if (!properties.isPostcodeDictionaryEnabled()) {
+            return;
+        }
+        String topic = properties.getPostcodeDictionaryTopic();
+        CompletableFuture<?>[] sends = IntStream.range(0, postcodes.size())
+                .mapToObj(i -> postcodeDictionaryTemplate.send(topic, postcodes.get(i), firstId + i))
+                .toArray(CompletableFuture[]::new);
+        postcodeDictionaryTemplate.flush();
+        try {
+            CompletableFuture.allOf(sends).join();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Could not register " + postcodes.size() + " postcodes on " + topic, e);
+        }
+        log.info("Registered {} postcodes with ids from {} on {}", postcodes.size(), firstId, topic);
+    }
+}
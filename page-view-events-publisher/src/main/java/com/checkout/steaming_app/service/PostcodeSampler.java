@@ -0,0 +1,47 @@
+package com.checkout.steaming_app.service;
+
+import com.checkout.steaming_app.config.PostcodeDistribution;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws postcodes uniformly or with a Zipf skew, the first postcode of the list being the most popular one.
+ */
+public class PostcodeSampler {
+
+    private final List<String> postcodes;
+    /** Cumulative Zipf weights by popularity rank, or null when sampling uniformly. */
+    private final double[] cumulativeWeights;
+
+    public PostcodeSampler(List<String> postcodes, PostcodeDistribution distribution, double zipfExponent) {
+        if (postcodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one postcode is required");
+        }
+        this.postcodes = List.copyOf(postcodes);
+        this.cumulativeWeights = distribution == PostcodeDistribution.ZIPF
+                ? zipfWeights(postcodes.size(), zipfExponent)
+                : null;
+    }
+
+    public String next(RandomGenerator random) {
+        if (cumulativeWeights == null) {
+            return postcodes.get(random.nextInt(postcodes.size()));
+        }
+        double total = cumulativeWeights[cumulativeWeights.length - 1];
+        int rank = Arrays.binarySearch(cumulativeWeights, random.nextDouble() * total);
+        rank = rank < 0 ? -rank - 1 : rank;
+        return postcodes.get(Math.min(rank, postcodes.size() - 1));
+    }
+
+    private static double[] zipfWeights(int size, double exponent) {
+        double[] weights = new double[size];
+        double total = 0;
+        for (int rank = 0; rank < size; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            weights[rank] = total;
+        }
+        return weights;
+    }
+}
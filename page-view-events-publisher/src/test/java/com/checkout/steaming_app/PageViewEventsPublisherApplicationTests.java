@@ -2,12 +2,16 @@ package com.checkout.steaming_app;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+@SpringBootTest(properties = "kafka.bootstrap-servers=${spring.embedded.kafka.brokers}")
+@ActiveProfiles("local")
+@EmbeddedKafka(topics = {"test.streaming.page-view", "test.streaming.postcode-dictionary"})
 class PageViewEventsPublisherApplicationTests {
 
 	@Test
 	void contextLoads() {
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+package com.checkout.steaming_app.capture;
+
+import com.checkout.events.PageViewEvent;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CaptureFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void mapsBackWhatWasWritten() throws IOException {
+        Path file = dir.resolve("run.capture");
+        List<PageViewEvent> events = List.of(pageView(1, "SW19 1AA", 1_000), pageView(2, "EC1A 1BB", 900),
+                pageView(3, "SW19 1AA", 1_100));
+        try (CaptureFileWriter writer = new CaptureFileWriter(file, PageViewEvent.getClassSchema())) {
+            for (int i = 0; i < events.size(); i++) {
+                writer.write(5_000 + i, events.get(i).getPostcode().toString(), events.get(i));
+            }
+        }
+
+        List<CapturedRecord> records = read(file);
+
+        assertThat(records).extracting(CapturedRecord::timestampMs).containsExactly(5_000L, 5_001L, 5_002L);
+        assertThat(records).extracting(record -> utf8(record.key()))
+                .containsExactly("SW19 1AA", "EC1A 1BB", "SW19 1AA");
+        assertThat(records).extracting(record -> decode(record.value())).isEqualTo(events);
+    }
+
+    @Test
+    void rejectsTruncatedCaptures() throws IOException {
+        Path file = dir.resolve("run.capture");
+        try (CaptureFileWriter writer = new CaptureFileWriter(file, PageViewEvent.getClassSchema())) {
+            writer.write(0, "SW19", pageView(1, "SW19", 0));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        try (CaptureFileReader reader = new CaptureFileReader(file)) {
+            assertThatThrownBy(reader::next).isInstanceOf(IllegalStateException.class);
+        }
+        Files.write(file, "not a capture".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> new CaptureFileReader(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void capturesTheRawArchiveInEventTimeOrder() throws IOException {
+        // The object layout of page-view-raw-s3-sink-connector.json under the avro and json sink profiles
+        Path archive = dir.resolve("test-page-view-raw-output");
+        Path avroObject = archive.resolve("topics/test.streaming.page-view/postcode=SW19 1AA/"
+                + "test.streaming.page-view+0+0000000000.avro");
+        Files.createDirectories(avroObject.getParent());
+        try (DataFileWriter<PageViewEvent> writer = new DataFileWriter<>(new SpecificDatumWriter<>(PageViewEvent.class))) {
+            writer.create(PageViewEvent.getClassSchema(), avroObject.toFile());
+            writer.append(pageView(1, "SW19 1AA", 3_000));
+            writer.append(pageView(2, "SW19 1AA", 1_000));
+        }
+        Path jsonObject = archive.resolve("topics/test.streaming.page-view/postcode=EC1A 1BB/"
+                + "test.streaming.page-view+1+0000000000.json");
+        Files.createDirectories(jsonObject.getParent());
+        Files.writeString(jsonObject, """
+                {"user_id":3,"postcode":"EC1A 1BB","webpage":"/checkout","timestamp":2000}
+                {"user_id":4,"postcode":"EC1A 1BB","webpage":"/checkout","timestamp":4000}
+                """);
+        Path file = dir.resolve("archive.capture");
+
+        long captured = RawArchiveConverter.convert(archive, file);
+
+        List<CapturedRecord> records = read(file);
+        assertThat(captured).isEqualTo(4);
+        assertThat(records).extracting(CapturedRecord::timestampMs).containsExactly(1_000L, 2_000L, 3_000L, 4_000L);
+        assertThat(records).extracting(record -> decode(record.value()).getUserId()).containsExactly(2, 3, 1, 4);
+        assertThat(utf8(records.get(1).key())).isEqualTo("EC1A 1BB");
+    }
+
+    private static List<CapturedRecord> read(Path file) throws IOException {
+        List<CapturedRecord> records = new ArrayList<>();
+        try (CaptureFileReader reader = new CaptureFileReader(file)) {
+            assertThat(reader.schema()).isEqualTo(PageViewEvent.getClassSchema());
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    private static PageViewEvent decode(ByteBuffer value) {
+        byte[] bytes = new byte[value.remaining()];
+        value.duplicate().get(bytes);
+        try {
+            return new SpecificDatumReader<>(PageViewEvent.class)
+                    .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String utf8(ByteBuffer key) {
+        return StandardCharsets.UTF_8.decode(key.duplicate()).toString();
+    }
+
+    static PageViewEvent pageView(int userId, String postcode, long timestamp) {
+        return PageViewEvent.newBuilder()
+                .setUserId(userId)
+                .setPostcode(postcode)
+                .setWebpage("/checkout")
+                .setTimestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.checkout.steaming_app.capture;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.CaptureMode;
+import com.checkout.steaming_app.config.CaptureProperties;
+import com.checkout.steaming_app.config.KafkaProducerConfig;
+import com.checkout.steaming_app.config.KafkaProducerProperties;
+import com.checkout.steaming_app.config.ReplayPace;
+import com.checkout.steaming_app.service.BatchPublishResult;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteBufferSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static com.checkout.steaming_app.capture.CaptureFileTest.pageView;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CaptureReplayerTest {
+
+    private static final String TOPIC = "test.streaming.page-view";
+
+    @TempDir
+    Path dir;
+
+    private final MockProducer<ByteBuffer, ByteBuffer> producer =
+            new MockProducer<>(true, null, new ByteBufferSerializer(), new ByteBufferSerializer()) {
+                // The template closes its producer after every send, which MockProducerFactory does not guard against
+                @Override
+                public void close(Duration timeout) {
+                }
+            };
+    private final KafkaProducerProperties kafkaProperties = new KafkaProducerProperties();
+    private final CaptureProperties properties = new CaptureProperties();
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        kafkaProperties.setBootstrapServers("localhost:9092");
+        kafkaProperties.setSchemaRegistryUrl("mock://capture-replayer-test");
+        kafkaProperties.setTopicName(TOPIC);
+        file = dir.resolve("run.capture");
+        properties.setMode(CaptureMode.REPLAY);
+        properties.setFile(file);
+    }
+
+    @Test
+    void replaysCapturedValuesAsTheAvroSerializerWouldWriteThem() throws IOException, InterruptedException {
+        List<PageViewEvent> events = List.of(pageView(1, "SW19 1AA", 1_000), pageView(2, "EC1A 1BB", 900),
+                pageView(3, "SW19 1AA", 1_100));
+        try (CaptureFileWriter writer = new CaptureFileWriter(file, PageViewEvent.getClassSchema())) {
+            for (int i = 0; i < events.size(); i++) {
+                writer.write(i * 1_000L, events.get(i).getPostcode().toString(), events.get(i));
+            }
+        }
+        properties.setPace(ReplayPace.SCALED);
+        properties.setSpeedFactor(10);
+        KafkaProducerConfig producerConfig = new KafkaProducerConfig(kafkaProperties);
+        CaptureReplayer replayer = new CaptureReplayer(producerConfig, kafkaProperties, properties);
+        Map<String, Object> producerProps = producerConfig.producerProps();
+        SchemaRegistryFramingSerializer framing =
+                new SchemaRegistryFramingSerializer(replayer.framing(file, producerProps));
+
+        long start = System.nanoTime();
+        BatchPublishResult result;
+        try (CaptureFileReader reader = new CaptureFileReader(file)) {
+            result = replayer.replay(reader, new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)));
+        }
+
+        // Two seconds of captured gaps at ten times the speed
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+        assertThat(result).isEqualTo(new BatchPublishResult(3, 0));
+        List<ProducerRecord<ByteBuffer, ByteBuffer>> sent = producer.history();
+        assertThat(sent).extracting(ProducerRecord::topic).containsOnly(TOPIC);
+        assertThat(sent).extracting(record -> StandardCharsets.UTF_8.decode(record.key().duplicate()).toString())
+                .containsExactly("SW19 1AA", "EC1A 1BB", "SW19 1AA");
+        try (KafkaAvroSerializer serializer = new KafkaAvroSerializer()) {
+            serializer.configure(producerProps, false);
+            for (int i = 0; i < events.size(); i++) {
+                assertThat(framing.serialize(TOPIC, sent.get(i).value()))
+                        .isEqualTo(serializer.serialize(TOPIC, events.get(i)));
+            }
+        }
+    }
+}
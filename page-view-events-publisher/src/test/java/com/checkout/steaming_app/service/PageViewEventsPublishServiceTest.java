@@ -0,0 +1,117 @@
+package com.checkout.steaming_app.service;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.BatchPublishProperties;
+import com.checkout.steaming_app.config.CaptureMode;
+import com.checkout.steaming_app.config.CaptureProperties;
+import com.checkout.steaming_app.config.KafkaProducerProperties;
+import com.checkout.steaming_app.config.LoadGeneratorProperties;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class PageViewEventsPublishServiceTest {
+
+    private static final int MAX_IN_FLIGHT = 2;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private MockProducer<String, PageViewEvent> producer;
+    private PageViewEventsPublishService service;
+
+    @BeforeEach
+    void setUp() {
+        producer = new MockProducer<>(false, null, new StringSerializer(), (topic, event) -> new byte[0]) {
+            // The template closes its producer after every send, which MockProducerFactory does not guard against
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        KafkaProducerProperties properties = new KafkaProducerProperties();
+        properties.setTopicName("page-view");
+        BatchPublishProperties batchProperties = new BatchPublishProperties();
+        batchProperties.setMaxInFlight(MAX_IN_FLIGHT);
+        service = new PageViewEventsPublishService(new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)),
+                properties, new LoadGeneratorProperties(), batchProperties,
+                // Without a postcode dictionary topic nothing is registered
+                new PostcodeDictionaryPublisher(null, properties), new CaptureProperties());
+    }
+
+    @Test
+    void listBatchWaitsForAcknowledgementsBeyondMaxInFlight() {
+        CompletableFuture<CompletableFuture<BatchPublishResult>> publishing =
+                CompletableFuture.supplyAsync(() -> service.publishAll(events(5)));
+
+        await().during(Duration.ofMillis(200)).atMost(TIMEOUT)
+                .until(() -> producer.history().size() == MAX_IN_FLIGHT);
+        assertThat(publishing).isNotDone();
+
+        completeSends(3);
+        await().atMost(TIMEOUT).until(() -> producer.errorNext(new RuntimeException("broker unavailable")));
+        completeSends(1);
+
+        BatchPublishResult result = publishing.join().join();
+        assertThat(result).isEqualTo(new BatchPublishResult(4, 1));
+        assertThat(producer.history()).hasSize(5);
+    }
+
+    @Test
+    void flowBatchRequestsEventsOnlyWhileSendsMayStart() {
+        CompletableFuture<BatchPublishResult> result;
+        try (SubmissionPublisher<PageViewEvent> events = new SubmissionPublisher<>()) {
+            result = service.publishAll(events);
+            events(4).forEach(events::submit);
+
+            await().atMost(TIMEOUT).until(() -> producer.history().size() == MAX_IN_FLIGHT);
+            await().during(Duration.ofMillis(200)).atMost(TIMEOUT)
+                    .until(() -> producer.history().size() == MAX_IN_FLIGHT);
+            completeSends(2);
+        }
+
+        completeSends(2);
+        assertThat(result).succeedsWithin(TIMEOUT).isEqualTo(new BatchPublishResult(4, 0));
+    }
+
+    @Test
+    void recordingRequiresTheLoadGenerator() {
+        KafkaProducerProperties properties = new KafkaProducerProperties();
+        CaptureProperties captureProperties = new CaptureProperties();
+        captureProperties.setMode(CaptureMode.RECORD);
+
+        assertThatThrownBy(() -> new PageViewEventsPublishService(
+                new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)), properties,
+                new LoadGeneratorProperties(), new BatchPublishProperties(),
+                new PostcodeDictionaryPublisher(null, properties), captureProperties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("load-generator.enabled");
+    }
+
+    private void completeSends(int count) {
+        for (int i = 0; i < count; i++) {
+            await().atMost(TIMEOUT).until(producer::completeNext);
+        }
+    }
+
+    private static List<PageViewEvent> events(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> PageViewEvent.newBuilder()
+                        .setPostcode("PC" + i)
+                        .setTimestamp(i)
+                        .setUserId(i)
+                        .setWebpage("/page")
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,82 @@
+package com.checkout.steaming_app.service;
+
+import com.checkout.events.PageViewEvent;
+import com.checkout.steaming_app.config.CaptureProperties;
+import com.checkout.steaming_app.config.KafkaProducerProperties;
+import com.checkout.steaming_app.config.LoadGeneratorProperties;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageViewLoadGeneratorTest {
+
+    private static final int EVENTS = 20;
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final AtomicInteger sends = new AtomicInteger();
+
+    @Test
+    void countsSendsThatThrowAsFailuresWithoutHoldingTheirPermits() {
+        PageViewLoadGenerator generator = generator(() -> {
+            throw new SerializationException("unserializable");
+        });
+
+        // Each of the single permit's sends throws, so a leaked permit would block the second one
+        assertThat(CompletableFuture.runAsync(() -> run(generator))).succeedsWithin(TIMEOUT);
+        assertThat(sends).hasValue(EVENTS);
+    }
+
+    @Test
+    void failsTheRunWhenAWorkerStops() {
+        PageViewLoadGenerator generator = generator(() -> {
+            throw new AssertionError("worker stopped");
+        });
+
+        assertThat(CompletableFuture.runAsync(() -> run(generator))).failsWithin(TIMEOUT)
+                .withThrowableThat().havingRootCause().withMessage("worker stopped");
+    }
+
+    private PageViewLoadGenerator generator(Supplier<CompletableFuture<SendResult<String, PageViewEvent>>> send) {
+        MockProducer<String, PageViewEvent> producer =
+                new MockProducer<>(true, null, new StringSerializer(), (topic, event) -> new byte[0]);
+        KafkaTemplate<String, PageViewEvent> template =
+                new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)) {
+                    @Override
+                    public CompletableFuture<SendResult<String, PageViewEvent>> send(String topic, String key,
+                                                                                     PageViewEvent data) {
+                        sends.incrementAndGet();
+                        return send.get();
+                    }
+                };
+        KafkaProducerProperties kafkaProperties = new KafkaProducerProperties();
+        kafkaProperties.setTopicName("page-view");
+        LoadGeneratorProperties properties = new LoadGeneratorProperties();
+        properties.setEventsPerSecond(1_000);
+        properties.setDurationMs(EVENTS);
+        properties.setConcurrency(1);
+        properties.setMaxInFlight(1);
+        properties.setPostcodes(10);
+        return new PageViewLoadGenerator(template, kafkaProperties, properties, null,
+                // Without a postcode dictionary topic nothing is registered
+                new PostcodeDictionaryPublisher(null, kafkaProperties), new CaptureProperties());
+    }
+
+    private static void run(PageViewLoadGenerator generator) {
+        try {
+            generator.run(null);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.checkout.steaming_app.service;
+
+import com.checkout.steaming_app.config.PostcodeDistribution;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+class PostcodeSamplerTest {
+
+    private static final List<String> POSTCODES = List.of("SW1A1", "EC2R8", "M160Q", "B152T", "LS11U");
+    private static final int SAMPLES = 100_000;
+
+    @Test
+    void uniformSamplingSpreadsViewsEvenly() {
+        Map<String, Long> views = sample(new PostcodeSampler(POSTCODES, PostcodeDistribution.UNIFORM, 1.1));
+
+        assertThat(views).containsOnlyKeys(POSTCODES);
+        views.values().forEach(count -> assertThat(count).isCloseTo(SAMPLES / POSTCODES.size(), withinPercentage(5)));
+    }
+
+    @Test
+    void zipfSamplingFavoursTheFirstPostcodes() {
+        Map<String, Long> views = sample(new PostcodeSampler(POSTCODES, PostcodeDistribution.ZIPF, 1.0));
+
+        // Weights 1, 1/2, ..., 1/5 sum to 137/60, so the first postcode gets 60/137 of the views
+        assertThat(views.get("SW1A1")).isCloseTo(SAMPLES * 60 / 137, withinPercentage(5));
+        assertThat(views.get("SW1A1")).isGreaterThan(views.get("EC2R8"));
+        assertThat(views.get("EC2R8")).isGreaterThan(views.get("LS11U"));
+    }
+
+    private static Map<String, Long> sample(PostcodeSampler sampler) {
+        Random random = new Random(42);
+        return IntStream.range(0, SAMPLES)
+                .mapToObj(i -> sampler.next(random))
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    }
+}
@@ -14,6 +14,31 @@ while ! curl -s http://localhost:8083/connectors > /dev/null 2>&1; do
 done
 echo "Kafka Connect is ready."
 
+# The output format and batching settings substituted into the connector configs. The raw page views keep a
+# format RawArchiveConverter can read back, as it cannot read Parquet.
+SINK_PROFILE=${SINK_PROFILE:-parquet}
+RAW_SINK_PROFILE=${RAW_SINK_PROFILE:-avro}
+for PROFILE in "${SINK_PROFILE}" "${RAW_SINK_PROFILE}"; do
+  if [ ! -f "/connectors/profiles/${PROFILE}.env" ]; then
+    echo "ERROR: Unknown sink profile ${PROFILE}, expected one of: $(ls /connectors/profiles | sed 's/\.env$//' | tr '\n' ' ')"
+    exit 1
+  fi
+done
+if [ "${RAW_SINK_PROFILE}" = "parquet" ]; then
+  echo "WARNING: Raw page views archived as Parquet cannot be captured for replay."
+fi
+echo "Using sink profile ${SINK_PROFILE}, and ${RAW_SINK_PROFILE} for the raw page views."
+
+# Prints a connector config with the settings of a sink profile substituted
+render() {
+  (
+    set -a
+    source "/connectors/profiles/$1.env"
+    set +a
+    envsubst < "/connectors/$2"
+  )
+}
+
 # Delete existing connectors
 echo "Deleting existing connectors..."
 curl -s -X DELETE http://localhost:8083/connectors/page-view-s3-sink || true
@@ -21,13 +46,13 @@ curl -s -X DELETE http://localhost:8083/connectors/page-view-event-s3-sink || tr
 
 # Deploy the aggregated page view S3 Sink Connector
 echo "Deploying aggregated page view S3 Sink Connector..."
-envsubst < /connectors/s3-sink-connector.json | curl -X POST http://localhost:8083/connectors \
+render "${SINK_PROFILE}" s3-sink-connector.json | curl -X POST http://localhost:8083/connectors \
   -H "Content-Type: application/json" \
   -d @-
 
 # Deploy the raw page view S3 Sink Connector
 echo "Deploying raw page view S3 Sink Connector..."
-envsubst < /connectors/page-view-raw-s3-sink-connector.json | curl -X POST http://localhost:8083/connectors \
+render "${RAW_SINK_PROFILE}" page-view-raw-s3-sink-connector.json | curl -X POST http://localhost:8083/connectors \
   -H "Content-Type: application/json" \
   -d @-
 
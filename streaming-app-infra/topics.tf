@@ -8,6 +8,50 @@ locals {
       name       = "${var.environment}.streaming.page-view.output"
       partitions = 2
     }
+    page_view_output_5m = {
+      name       = "${var.environment}.streaming.page-view.output.5m"
+      partitions = 2
+    }
+    page_view_output_1h = {
+      name       = "${var.environment}.streaming.page-view.output.1h"
+      partitions = 2
+    }
+    page_view_output_1d = {
+      name       = "${var.environment}.streaming.page-view.output.1d"
+      partitions = 2
+    }
+    page_view_output_by_webpage = {
+      name       = "${var.environment}.streaming.page-view.output.by-webpage"
+      partitions = 2
+    }
+    page_view_output_by_postcode_webpage = {
+      name       = "${var.environment}.streaming.page-view.output.by-postcode-webpage"
+      partitions = 2
+    }
+    page_view_distinct_users = {
+      name       = "${var.environment}.streaming.page-view.distinct-users"
+      partitions = 2
+    }
+    page_view_top_postcodes = {
+      name       = "${var.environment}.streaming.page-view.top-postcodes"
+      partitions = 2
+    }
+    page_view_late = {
+      name         = "${var.environment}.streaming.page-view.late"
+      partitions   = 2
+      retention_ms = "604800000" # 7 days, for batch reconciliation
+    }
+    page_view_dlq = {
+      name         = "${var.environment}.streaming.page-view.dlq"
+      partitions   = 2
+      retention_ms = "604800000" # 7 days, to leave time to inspect and replay
+    }
+    postcode_dictionary = {
+      name           = "${var.environment}.streaming.postcode-dictionary"
+      partitions     = 1
+      cleanup_policy = "compact" # one id per postcode, kept for as long as the postcode is
+      retention_ms   = "-1"
+    }
   }
 }
 
@@ -22,8 +66,8 @@ resource "confluent_kafka_topic" "topics" {
   partitions_count = each.value.partitions
 
   config = {
-    "cleanup.policy" = "delete"
-    "retention.ms"   = "86400000" # 1 days
+    "cleanup.policy" = lookup(each.value, "cleanup_policy", "delete")
+    "retention.ms"   = lookup(each.value, "retention_ms", "86400000") # 1 day unless overridden
   }
 
   rest_endpoint = var.confluent_cluster_rest_endpoint